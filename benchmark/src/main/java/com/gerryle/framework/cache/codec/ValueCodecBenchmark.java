@@ -0,0 +1,121 @@
+package com.gerryle.framework.cache.codec;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+
+/**
+ * 值编解码的JMH对比：
+ *   legacy为改造前的路径，gson.toJson得到String，再由jedis按UTF-8编码，读取时先转String再解析JSON；
+ *   gson为GsonValueCodec，binary为BinaryValueCodec，compressing为BinaryValueCodec外包装压缩（阈值256字节）。
+ *   payload：string为短字符串，long为数字，object为一般的业务对象
+ * @author Gerryle 2026年10月18日 下午4:50:20
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class ValueCodecBenchmark {
+
+	@Param({"legacy", "gson", "binary", "compressing"})
+	public String codecName;
+
+	@Param({"string", "long", "object"})
+	public String payload;
+
+	private final Gson gson=new Gson();
+
+	private ValueCodec codec;
+
+	private Object value;
+
+	private Type type;
+
+	private byte[] encoded;
+
+	@Setup
+	public void setup(){
+		if("gson".equals(codecName)){
+			codec=new GsonValueCodec(gson);
+		}else if("binary".equals(codecName)){
+			codec=new BinaryValueCodec(gson);
+		}else if("compressing".equals(codecName)){
+			codec=new CompressingValueCodec(new BinaryValueCodec(gson), 256);
+		}
+		if("string".equals(payload)){
+			value="user:10086:session:5f2c9a";
+		}else if("long".equals(payload)){
+			value=1508236800123L;
+		}else{
+			value=Order.sample();
+		}
+		type=value.getClass();
+		encoded=encode();
+	}
+
+	@Benchmark
+	public byte[] encode(){
+		if(codec==null){
+			return gson.toJson(value).getBytes(StandardCharsets.UTF_8);
+		}
+		return codec.encode(value);
+	}
+
+	@Benchmark
+	public Object decode(){
+		if(codec==null){
+			return gson.fromJson(new String(encoded, StandardCharsets.UTF_8), type);
+		}
+		return codec.decode(encoded, type);
+	}
+
+	/**
+	 * 一般的业务对象
+	 */
+	public static class Order {
+
+		private String orderId;
+
+		private long storeId;
+
+		private String storeName;
+
+		private double amount;
+
+		private int status;
+
+		private long createTime;
+
+		private List<String> items;
+
+		static Order sample(){
+			Order order=new Order();
+			order.orderId="20261018165020000123";
+			order.storeId=10086;
+			order.storeName="gerryle demo store";
+			order.amount=128.5;
+			order.status=2;
+			order.createTime=1508236800123L;
+			order.items=Arrays.asList("coffee", "sandwich", "orange juice", "cookie");
+			return order;
+		}
+	}
+}
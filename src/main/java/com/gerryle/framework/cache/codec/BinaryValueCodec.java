@@ -0,0 +1,164 @@
+package com.gerryle.framework.cache.codec;
+
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.google.gson.Gson;
+
+/**
+ * 紧凑的二进制编解码
+ *   字符串、基本类型的包装类以及byte[]以一个类型字节加定长（字符串为UTF-8）内容保存，没有JSON的引号、转义和解析开销；
+ *   其它对象仍然以UTF-8的JSON保存，JSON的第一个字节不会是类型字节，
+ *   所以也可以直接读取GsonValueCodec写入的旧数据
+ * @author Gerryle 2026年10月17日 下午4:40:18
+ */
+public class BinaryValueCodec implements ValueCodec {
+
+	private static final byte TYPE_STRING=0x10;
+	private static final byte TYPE_INT=0x11;
+	private static final byte TYPE_LONG=0x12;
+	private static final byte TYPE_DOUBLE=0x13;
+	private static final byte TYPE_FLOAT=0x14;
+	private static final byte TYPE_BOOLEAN=0x15;
+	private static final byte TYPE_SHORT=0x16;
+	private static final byte TYPE_BYTE=0x17;
+	private static final byte TYPE_CHAR=0x18;
+	private static final byte TYPE_BYTES=0x19;
+
+	/**大于等于该值的第一个字节表示JSON*/
+	private static final byte JSON_START=0x20;
+
+	private final Gson gson;
+
+	public BinaryValueCodec(){
+		this(new Gson());
+	}
+
+	public BinaryValueCodec(Gson gson){
+		this.gson=gson;
+	}
+
+	@Override
+	public byte[] encode(Object value) {
+		if(value instanceof String){
+			byte[] s=((String)value).getBytes(StandardCharsets.UTF_8);
+			byte[] data=new byte[s.length+1];
+			data[0]=TYPE_STRING;
+			System.arraycopy(s, 0, data, 1, s.length);
+			return data;
+		}
+		if(value instanceof Integer){
+			return ByteBuffer.allocate(5).put(TYPE_INT).putInt((Integer)value).array();
+		}
+		if(value instanceof Long){
+			return ByteBuffer.allocate(9).put(TYPE_LONG).putLong((Long)value).array();
+		}
+		if(value instanceof Double){
+			return ByteBuffer.allocate(9).put(TYPE_DOUBLE).putDouble((Double)value).array();
+		}
+		if(value instanceof Float){
+			return ByteBuffer.allocate(5).put(TYPE_FLOAT).putFloat((Float)value).array();
+		}
+		if(value instanceof Boolean){
+			return new byte[]{TYPE_BOOLEAN,(byte)((Boolean)value?1:0)};
+		}
+		if(value instanceof Short){
+			return ByteBuffer.allocate(3).put(TYPE_SHORT).putShort((Short)value).array();
+		}
+		if(value instanceof Byte){
+			return new byte[]{TYPE_BYTE,(Byte)value};
+		}
+		if(value instanceof Character){
+			return ByteBuffer.allocate(3).put(TYPE_CHAR).putChar((Character)value).array();
+		}
+		if(value instanceof byte[]){
+			byte[] bytes=(byte[])value;
+			byte[] data=new byte[bytes.length+1];
+			data[0]=TYPE_BYTES;
+			System.arraycopy(bytes, 0, data, 1, bytes.length);
+			return data;
+		}
+		return gson.toJson(value).getBytes(StandardCharsets.UTF_8);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T decode(byte[] data, Type type) {
+		byte tag=data[0];
+		if(tag>=JSON_START||tag<0){
+			return gson.fromJson(new String(data, StandardCharsets.UTF_8), type);
+		}
+		ByteBuffer buffer=ByteBuffer.wrap(data, 1, data.length-1);
+		Object value;
+		switch (tag) {
+		case TYPE_STRING:
+			value=new String(data, 1, data.length-1, StandardCharsets.UTF_8);
+			break;
+		case TYPE_INT:
+			value=buffer.getInt();
+			break;
+		case TYPE_LONG:
+			value=buffer.getLong();
+			break;
+		case TYPE_DOUBLE:
+			value=buffer.getDouble();
+			break;
+		case TYPE_FLOAT:
+			value=buffer.getFloat();
+			break;
+		case TYPE_BOOLEAN:
+			value=data[1]!=0;
+			break;
+		case TYPE_SHORT:
+			value=buffer.getShort();
+			break;
+		case TYPE_BYTE:
+			value=data[1];
+			break;
+		case TYPE_CHAR:
+			value=buffer.getChar();
+			break;
+		case TYPE_BYTES:
+			value=Arrays.copyOfRange(data, 1, data.length);
+			break;
+		default:
+			throw new IllegalArgumentException("unknown binary value type: "+tag);
+		}
+		return (T)convert(value, type);
+	}
+
+	/**
+	 * 保存的数字类型与读取的类型不一致时转换，例如Integer保存、Long读取
+	 * @param value
+	 * @param type
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午4:52:30
+	 */
+	private static Object convert(Object value,Type type){
+		if(!(value instanceof Number)||!(type instanceof Class)||((Class<?>)type).isInstance(value)){
+			return value;
+		}
+		Number number=(Number)value;
+		if(type==Integer.class||type==int.class){
+			return number.intValue();
+		}
+		if(type==Long.class||type==long.class){
+			return number.longValue();
+		}
+		if(type==Double.class||type==double.class){
+			return number.doubleValue();
+		}
+		if(type==Float.class||type==float.class){
+			return number.floatValue();
+		}
+		if(type==Short.class||type==short.class){
+			return number.shortValue();
+		}
+		if(type==Byte.class||type==byte.class){
+			return number.byteValue();
+		}
+		return value;
+	}
+}
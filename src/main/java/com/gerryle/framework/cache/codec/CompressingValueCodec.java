@@ -0,0 +1,139 @@
+package com.gerryle.framework.cache.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Type;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 压缩装饰编解码器，编码结果超过阈值时使用deflate压缩并加上头部字节，解码时根据头部自动解压。
+ *   压缩格式：0x01 + 4字节原始长度（大端） + deflate数据（无zlib头）；
+ *   没有头部的数据直接交给被装饰的编解码器，所以压缩和未压缩的值可以共存，
+ *   阈值小于等于0时只解压不压缩，可以先全量部署读取端再打开压缩
+ * @author Gerryle 2026年10月17日 下午6:02:15
+ */
+public class CompressingValueCodec implements ValueCodec {
+
+	/**压缩数据的头部字节*/
+	public static final byte DEFLATE_HEADER=0x01;
+
+	private static final int HEADER_LENGTH=5;
+
+	/**Deflater/Inflater创建时会分配本地内存，每个线程复用一个*/
+	private static final ThreadLocal<Deflater> DEFLATER=new ThreadLocal<Deflater>(){
+		@Override
+		protected Deflater initialValue() {
+			return new Deflater(Deflater.BEST_SPEED, true);
+		}
+	};
+
+	private static final ThreadLocal<Inflater> INFLATER=new ThreadLocal<Inflater>(){
+		@Override
+		protected Inflater initialValue() {
+			return new Inflater(true);
+		}
+	};
+
+	private final ValueCodec delegate;
+
+	private final int thresholdBytes;
+
+	/**
+	 * @param delegate 被装饰的编解码器
+	 * @param thresholdBytes 编码结果超过该字节数时压缩，小于等于0不压缩
+	 */
+	public CompressingValueCodec(ValueCodec delegate,int thresholdBytes){
+		this.delegate=delegate;
+		this.thresholdBytes=thresholdBytes;
+	}
+
+	@Override
+	public byte[] encode(Object value) {
+		byte[] data=delegate.encode(value);
+		if(thresholdBytes<=0||data.length<=thresholdBytes){
+			return data;
+		}
+		byte[] compressed=compress(data);
+		//压缩后没有变小（已经压缩过的数据等）时保存原始数据
+		return compressed.length<data.length?compressed:data;
+	}
+
+	@Override
+	public <T> T decode(byte[] data, Type type) {
+		if(data[0]==DEFLATE_HEADER){
+			return delegate.decode(decompress(data), type);
+		}
+		return delegate.decode(data, type);
+	}
+
+	public ValueCodec getDelegate() {
+		return delegate;
+	}
+
+	public int getThresholdBytes() {
+		return thresholdBytes;
+	}
+
+	/**
+	 * 压缩并加上头部
+	 * @param data
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午6:06:30
+	 */
+	static byte[] compress(byte[] data){
+		Deflater deflater=DEFLATER.get();
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+			ByteArrayOutputStream out=new ByteArrayOutputStream(data.length/4+HEADER_LENGTH);
+			out.write(DEFLATE_HEADER);
+			out.write(data.length>>>24);
+			out.write(data.length>>>16);
+			out.write(data.length>>>8);
+			out.write(data.length);
+			byte[] buffer=new byte[Math.min(data.length, 64*1024)];
+			while(!deflater.finished()){
+				int n=deflater.deflate(buffer);
+				out.write(buffer, 0, n);
+			}
+			return out.toByteArray();
+		} finally {
+			deflater.reset();
+		}
+	}
+
+	/**
+	 * 去掉头部并解压
+	 * @param data
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午6:08:12
+	 */
+	static byte[] decompress(byte[] data){
+		if(data.length<HEADER_LENGTH){
+			throw new IllegalArgumentException("invalid compressed value, length "+data.length);
+		}
+		int length=((data[1]&0xFF)<<24)|((data[2]&0xFF)<<16)|((data[3]&0xFF)<<8)|(data[4]&0xFF);
+		Inflater inflater=INFLATER.get();
+		try {
+			inflater.setInput(data, HEADER_LENGTH, data.length-HEADER_LENGTH);
+			byte[] result=new byte[length];
+			int offset=0;
+			while(offset<length){
+				int n=inflater.inflate(result, offset, length-offset);
+				if(n==0&&(inflater.finished()||inflater.needsInput())){
+					break;
+				}
+				offset+=n;
+			}
+			if(offset!=length){
+				throw new IllegalArgumentException("invalid compressed value, expect "+length+" bytes but got "+offset);
+			}
+			return result;
+		} catch (DataFormatException e) {
+			throw new IllegalArgumentException("invalid compressed value", e);
+		} finally {
+			inflater.reset();
+		}
+	}
+}
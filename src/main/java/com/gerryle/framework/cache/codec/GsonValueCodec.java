@@ -0,0 +1,33 @@
+package com.gerryle.framework.cache.codec;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.Gson;
+
+/**
+ * JSON编解码（默认），编码结果为UTF-8的JSON，与原来的字符串方式保存的数据完全兼容
+ * @author Gerryle 2026年10月17日 下午4:33:20
+ */
+public class GsonValueCodec implements ValueCodec {
+
+	private final Gson gson;
+
+	public GsonValueCodec(){
+		this(new Gson());
+	}
+
+	public GsonValueCodec(Gson gson){
+		this.gson=gson;
+	}
+
+	@Override
+	public byte[] encode(Object value) {
+		return gson.toJson(value).getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public <T> T decode(byte[] data, Type type) {
+		return gson.fromJson(new String(data, StandardCharsets.UTF_8), type);
+	}
+}
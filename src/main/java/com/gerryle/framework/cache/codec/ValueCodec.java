@@ -0,0 +1,30 @@
+package com.gerryle.framework.cache.codec;
+
+import java.lang.reflect.Type;
+
+/**
+ * 缓存值编解码SPI，RedisDataSource通过jedis的二进制命令直接读写编码后的字节。
+ *   编码结果的第一个字节不能小于0x10，0x00-0x0F保留给框架自身的头部（压缩、元数据等）；
+ *   只用于字符串值和hash的值，set成员和list元素固定使用JSON编码；
+ *   实现必须是线程安全的
+ * @author Gerryle 2026年10月17日 下午4:30:12
+ */
+public interface ValueCodec {
+
+	/**
+	 * 编码对象
+	 * @param value 不为null
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午4:31:05
+	 */
+	byte[] encode(Object value);
+
+	/**
+	 * 解码对象
+	 * @param data 不为null且长度大于0
+	 * @param type
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午4:31:40
+	 */
+	<T> T decode(byte[] data,Type type);
+}
@@ -0,0 +1,372 @@
+package com.gerryle.framework.cache.redis;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * RedisDataSource的异步门面，方法与RedisDataSource对应，返回CompletableFuture。
+ *   命令在独立的有界线程池中执行，调用线程不会阻塞在获取连接和网络读写上；
+ *   并发数不应超过连接池的最大连接数，队列满时返回的future以RejectedExecutionException失败；
+ *   超时或者取消时，排队中的命令不再执行并从队列中移除，已经在执行的命令会执行完但结果被丢弃
+ * @author Gerryle 2026年10月17日 下午3:02:18
+ */
+public class AsyncRedisDataSource {
+
+	private final RedisDataSource dataSource;
+
+	private final ThreadPoolExecutor executor;
+
+	/**用于超时的定时器，命令完成时取消的超时任务立即从队列中移除，不会堆积到超时时间*/
+	private final ScheduledThreadPoolExecutor timer;
+
+	/**默认超时毫秒数，小于等于0表示不超时*/
+	private volatile long defaultTimeoutMillis;
+
+	private AsyncRedisDataSource(RedisDataSource dataSource,int concurrency,int queueCapacity,long defaultTimeoutMillis){
+		this.dataSource=dataSource;
+		this.defaultTimeoutMillis=defaultTimeoutMillis;
+		this.executor=new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(queueCapacity), new NamedThreadFactory("redis-async-"),
+				new ThreadPoolExecutor.AbortPolicy());
+		this.executor.allowCoreThreadTimeOut(true);
+		this.timer=new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("redis-async-timer-"));
+		this.timer.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * 创建异步数据源
+	 * @param dataSource
+	 * @param concurrency 同时执行的最大命令数（线程数）
+	 * @param queueCapacity 等待执行的最大命令数
+	 * @param defaultTimeoutMillis 默认超时毫秒数，小于等于0表示不超时
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午3:05:40
+	 */
+	public static AsyncRedisDataSource create(RedisDataSource dataSource,int concurrency,int queueCapacity,long defaultTimeoutMillis){
+		return new AsyncRedisDataSource(dataSource, concurrency, queueCapacity, defaultTimeoutMillis);
+	}
+
+	/**
+	 * 在异步线程池中执行任意操作，使用默认超时
+	 * @param task
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午3:06:52
+	 */
+	public <T> CompletableFuture<T> submit(Callable<T> task){
+		return submit(task, defaultTimeoutMillis);
+	}
+
+	/**
+	 * 在异步线程池中执行任意操作
+	 * @param task
+	 * @param timeoutMillis 超时毫秒数，超时后future以TimeoutException失败，小于等于0表示不超时
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午3:08:15
+	 */
+	public <T> CompletableFuture<T> submit(final Callable<T> task,long timeoutMillis){
+		final CompletableFuture<T> future=new CompletableFuture<T>();
+		final FutureTask<Void> running=new FutureTask<Void>(new Runnable() {
+			@Override
+			public void run() {
+				if(future.isDone()){
+					return;
+				}
+				try {
+					future.complete(task.call());
+				} catch (Throwable e) {
+					future.completeExceptionally(e);
+				}
+			}
+		}, null);
+		try {
+			executor.execute(running);
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(e);
+			return future;
+		}
+		final ScheduledFuture<?> timeout=timeoutMillis>0?timer.schedule(new Runnable() {
+			@Override
+			public void run() {
+				future.completeExceptionally(new TimeoutException("redis async command timeout"));
+			}
+		}, timeoutMillis, TimeUnit.MILLISECONDS):null;
+		future.whenComplete(new BiConsumer<T, Throwable>() {
+			@Override
+			public void accept(T result, Throwable error) {
+				if(timeout!=null){
+					timeout.cancel(false);
+				}
+				//超时或取消时从队列中移除还在排队的命令，释放有界队列的位置；不中断正在执行的命令，避免破坏连接状态
+				if(error!=null){
+					running.cancel(false);
+					executor.remove(running);
+				}
+			}
+		});
+		return future;
+	}
+
+	public CompletableFuture<Boolean> existskey(final String key){
+		return submit(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return dataSource.existskey(key);
+			}
+		});
+	}
+
+	public CompletableFuture<Void> delKey(final String key){
+		return submit(new Callable<Void>() {
+			@Override
+			public Void call() {
+				dataSource.delKey(key);
+				return null;
+			}
+		});
+	}
+
+	public CompletableFuture<String> getValue(final String key){
+		return submit(new Callable<String>() {
+			@Override
+			public String call() {
+				return dataSource.getValue(key);
+			}
+		});
+	}
+
+	public <T> CompletableFuture<T> getValue(final String key,final Class<T> c){
+		return submit(new Callable<T>() {
+			@Override
+			public T call() {
+				return dataSource.getValue(key, c);
+			}
+		});
+	}
+
+	public <T> CompletableFuture<List<T>> getValues(final String[] keys,final Class<T> c){
+		return submit(new Callable<List<T>>() {
+			@Override
+			public List<T> call() {
+				return dataSource.getValues(keys, c);
+			}
+		});
+	}
+
+	public <T> CompletableFuture<Void> setValue(final String key,final T value,final int expireSeconds){
+		return submit(new Callable<Void>() {
+			@Override
+			public Void call() {
+				dataSource.setValue(key, value, expireSeconds);
+				return null;
+			}
+		});
+	}
+
+	public <T> CompletableFuture<Void> setValue(final String key,final T value,final int expireSeconds,final boolean needSetFlag){
+		return submit(new Callable<Void>() {
+			@Override
+			public Void call() {
+				dataSource.setValue(key, value, expireSeconds, needSetFlag);
+				return null;
+			}
+		});
+	}
+
+	public CompletableFuture<Boolean> setnx(final String key,final String value,final int expireSeconds){
+		return submit(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return dataSource.setnx(key, value, expireSeconds);
+			}
+		});
+	}
+
+	public <T> CompletableFuture<T> getValueFromHashMap(final String hashKey,final String key,final Class<T> c){
+		return submit(new Callable<T>() {
+			@Override
+			public T call() {
+				return dataSource.getValueFromHashMap(hashKey, key, c);
+			}
+		});
+	}
+
+	public <T> CompletableFuture<Map<String, T>> getAllFromHashMap(final String hashKey,final Class<T> c){
+		return submit(new Callable<Map<String, T>>() {
+			@Override
+			public Map<String, T> call() {
+				return dataSource.getAllFromHashMap(hashKey, c);
+			}
+		});
+	}
+
+	public <T> CompletableFuture<Void> addToHashMap(final String hashKey,final String key,final T value){
+		return submit(new Callable<Void>() {
+			@Override
+			public Void call() {
+				dataSource.addToHashMap(hashKey, key, value);
+				return null;
+			}
+		});
+	}
+
+	public <T> CompletableFuture<Void> addToHashMap(final String hashKey,final Map<String, T> map){
+		return submit(new Callable<Void>() {
+			@Override
+			public Void call() {
+				dataSource.addToHashMap(hashKey, map);
+				return null;
+			}
+		});
+	}
+
+	public CompletableFuture<Long> removeFromHashMap(final String hashKey,final String... keys){
+		return submit(new Callable<Long>() {
+			@Override
+			public Long call() {
+				return dataSource.removeFromHashMap(hashKey, keys);
+			}
+		});
+	}
+
+	public CompletableFuture<Boolean> hasKeyHashMap(final String hashKey,final String key){
+		return submit(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return dataSource.hasKeyHashMap(hashKey, key);
+			}
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> CompletableFuture<Integer> sAdd(final String key,final T... values){
+		return submit(new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return dataSource.sAdd(key, values);
+			}
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> CompletableFuture<Integer> sRemove(final String key,final T... members){
+		return submit(new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return dataSource.sRemove(key, members);
+			}
+		});
+	}
+
+	public <T> CompletableFuture<Boolean> sExists(final String key,final T member){
+		return submit(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return dataSource.sExists(key, member);
+			}
+		});
+	}
+
+	public <T> CompletableFuture<Set<T>> sSet(final String key,final Class<T> c){
+		return submit(new Callable<Set<T>>() {
+			@Override
+			public Set<T> call() {
+				return dataSource.sSet(key, c);
+			}
+		});
+	}
+
+	public <T> CompletableFuture<Void> addList(final String key,final List<T> list){
+		return submit(new Callable<Void>() {
+			@Override
+			public Void call() {
+				dataSource.addList(key, list);
+				return null;
+			}
+		});
+	}
+
+	public <T> CompletableFuture<List<T>> getListRange(final String key,final int start,final int end,final Class<T> c){
+		return submit(new Callable<List<T>>() {
+			@Override
+			public List<T> call() {
+				return dataSource.getListRange(key, start, end, c);
+			}
+		});
+	}
+
+	public <T> CompletableFuture<List<T>> getAllList(final String key,final Class<T> c){
+		return submit(new Callable<List<T>>() {
+			@Override
+			public List<T> call() {
+				return dataSource.getAllList(key, c);
+			}
+		});
+	}
+
+	public CompletableFuture<Integer> getListSize(final String key){
+		return submit(new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return dataSource.getListSize(key);
+			}
+		});
+	}
+
+	public long getDefaultTimeoutMillis() {
+		return defaultTimeoutMillis;
+	}
+
+	public void setDefaultTimeoutMillis(long defaultTimeoutMillis) {
+		this.defaultTimeoutMillis = defaultTimeoutMillis;
+	}
+
+	/**
+	 * 排队等待执行的命令数
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午3:20:11
+	 */
+	public int getQueueSize(){
+		return executor.getQueue().size();
+	}
+
+	/**
+	 * 关闭线程池，已提交的命令继续执行完，不关闭底层的RedisDataSource
+	 * @author Gerryle 2026年10月17日 下午3:21:03
+	 */
+	public void shutdown(){
+		executor.shutdown();
+		timer.shutdown();
+	}
+
+	private static class NamedThreadFactory implements ThreadFactory{
+
+		private final String prefix;
+
+		private final AtomicInteger index=new AtomicInteger();
+
+		NamedThreadFactory(String prefix){
+			this.prefix=prefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread=new Thread(r, prefix+index.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,511 @@
+package com.gerryle.framework.cache.redis;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * redis批量操作，先排队多个命令，flush时在同一个连接上一次性pipeline发送，
+ * 每个命令的结果通过返回的RedisBatchResult获取。非线程安全，flush之后可以继续复用
+ * @author Gerryle 2026年10月17日 上午11:10:45
+ */
+public class RedisBatch {
+
+	private final RedisDataSource dataSource;
+
+	private final List<BatchOp<?, ?>> ops=new ArrayList<BatchOp<?, ?>>();
+
+	/**写操作需要失效的近端缓存，flush成功后处理*/
+	private final List<Invalidation> invalidations=new ArrayList<Invalidation>();
+
+	RedisBatch(RedisDataSource dataSource){
+		this.dataSource=dataSource;
+	}
+
+	/**
+	 * 保存字符串，与RedisDataSource.setValue语义一致：expireSeconds小于等于0时保留原有的剩余过期时间
+	 * @param key
+	 * @param value
+	 * @param expireSeconds
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午11:12:10
+	 */
+	public RedisBatchResult<String> set(final String key,final String value,final int expireSeconds){
+		return setBytes(key, RedisDataSource.rawKey(value), expireSeconds);
+	}
+
+	/**
+	 * 保存对象，expireSeconds小于等于0时保留原有的剩余过期时间
+	 * @param key
+	 * @param value
+	 * @param expireSeconds
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午11:13:02
+	 */
+	public <T> RedisBatchResult<String> set(final String key,T value,final int expireSeconds){
+		return setBytes(key, dataSource.encode(value), expireSeconds);
+	}
+
+	/**
+	 * 保存编码后的值，与RedisDataSource.setBytes一致：排队时丢弃延迟写入缓冲中的旧值并检查值的大小（超过上限抛出IllegalArgumentException），
+	 *   开启分块时大值在同一个pipeline中分块写入，flush时删除旧值的分块
+	 * @param key
+	 * @param data
+	 * @param expireSeconds
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午11:58:20
+	 */
+	RedisBatchResult<String> setBytes(final String key,final byte[] data,final int expireSeconds){
+		dataSource.discardPending(key);
+		return setPendingBytes(key, data, expireSeconds);
+	}
+
+	/**
+	 * 延迟写入的后台线程写入缓冲中的值，不丢弃缓冲中的值（要写入的正是这个值，丢弃时会等待自己的写入完成）
+	 * @param key
+	 * @param data
+	 * @param expireSeconds
+	 * @return
+	 * @author Gerryle 2026年10月18日 下午4:10:30
+	 */
+	RedisBatchResult<String> setPendingBytes(final String key,final byte[] data,final int expireSeconds){
+		final boolean chunked=dataSource.isChunkedWrite(data.length);
+		dataSource.checkValueSize(key, data.length, chunked);
+		dataSource.bloomPut(key);
+		invalidations.add(new Invalidation(key));
+		if(chunked){
+			return add(new BatchOp<Object, String>() {
+				@Override
+				Response<Object> queue(RedisPipeline pipeline) {
+					return dataSource.queueChunked(pipeline, key, data, expireSeconds, false);
+				}
+
+				@Override
+				void afterSync(Jedis jedis, Object raw) {
+					dataSource.dropChunks(jedis, key, raw);
+					dataSource.getMetrics().recordChunkedWrite();
+				}
+
+				@Override
+				String convert(Object raw) {
+					return "OK";
+				}
+			});
+		}
+		final boolean dropChunks=dataSource.isChunkEnabled();
+		return add(new BatchOp<Object, String>() {
+			@Override
+			Response<Object> queue(RedisPipeline pipeline) {
+				List<byte[]> args=dataSource.setValueRawArgs(data, expireSeconds, false);
+				//开启分块时返回旧值的头部，旧值分块保存时删除旧的分块
+				return RedisScripts.SET_VALUE.evalBinary(pipeline, dataSource.setValueRawKeys(key),
+						dropChunks?dataSource.withOldHead(args):args);
+			}
+
+			@Override
+			void afterSync(Jedis jedis, Object raw) {
+				if(dropChunks){
+					dataSource.dropChunks(jedis, key, raw);
+				}
+			}
+
+			@Override
+			String convert(Object raw) {
+				if(dropChunks){
+					return "OK";
+				}
+				return raw instanceof byte[]?SafeEncoder.encode((byte[])raw):null;
+			}
+		});
+	}
+
+	/**
+	 * 获取字符串，不存在时结果为null
+	 * @param key
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午11:13:40
+	 */
+	public RedisBatchResult<String> get(final String key){
+		return add(new BatchOp<byte[], String>() {
+			@Override
+			Response<byte[]> queue(RedisPipeline pipeline) {
+				return pipeline.get(RedisDataSource.rawKey(key));
+			}
+
+			@Override
+			String convert(byte[] raw) {
+				byte[] data=dataSource.loadChunks(key, raw);
+				return data==null?null:SafeEncoder.encode(RedisValueEnvelope.unwrap(data));
+			}
+		});
+	}
+
+	/**
+	 * 获取对象，不存在时结果为null
+	 * @param key
+	 * @param c
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午11:14:18
+	 */
+	public <T> RedisBatchResult<T> get(final String key,final Class<T> c){
+		return add(new BatchOp<byte[], T>() {
+			@Override
+			Response<byte[]> queue(RedisPipeline pipeline) {
+				return pipeline.get(RedisDataSource.rawKey(key));
+			}
+
+			@Override
+			T convert(byte[] raw) {
+				return dataSource.decode(dataSource.loadChunks(key, raw), c);
+			}
+		});
+	}
+
+	/**
+	 * 设置过期时间，key存在并设置成功结果为true；
+	 *   只设置key本身，分块保存的值请使用RedisDataSource.setKeyExpireTime，否则分块保持原来的过期时间
+	 * @param key
+	 * @param expireSeconds
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午11:15:02
+	 */
+	public RedisBatchResult<Boolean> expire(final String key,final int expireSeconds){
+		return add(new BatchOp<Long, Boolean>() {
+			@Override
+			Response<Long> queue(RedisPipeline pipeline) {
+				return pipeline.expire(key, expireSeconds);
+			}
+
+			@Override
+			Boolean convert(Long raw) {
+				return raw!=null&&raw==1;
+			}
+		});
+	}
+
+	/**
+	 * 保存hash字段，新增字段结果为true，覆盖已有字段结果为false
+	 * @param hashKey
+	 * @param field
+	 * @param value
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午11:16:20
+	 */
+	public <T> RedisBatchResult<Boolean> hset(final String hashKey,final String field,T value){
+		return hsetBytes(hashKey, field, dataSource.encode(value));
+	}
+
+	/**
+	 * 保存编码后的hash字段
+	 * @param hashKey
+	 * @param field
+	 * @param data
+	 * @return
+	 * @author Gerryle 2026年10月18日 上午1:20:30
+	 */
+	RedisBatchResult<Boolean> hsetBytes(final String hashKey,final String field,final byte[] data){
+		dataSource.bloomPut(hashKey, RedisDataSource.rawKey(field));
+		invalidations.add(new Invalidation(hashKey, field));
+		return add(new BatchOp<Long, Boolean>() {
+			@Override
+			Response<Long> queue(RedisPipeline pipeline) {
+				return pipeline.hset(RedisDataSource.rawKey(hashKey), RedisDataSource.rawKey(field), data);
+			}
+
+			@Override
+			Boolean convert(Long raw) {
+				return raw!=null&&raw==1;
+			}
+		});
+	}
+
+	/**
+	 * 获取hash字段对象，不存在时结果为null
+	 * @param hashKey
+	 * @param field
+	 * @param typeOfT
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午11:17:05
+	 */
+	public <T> RedisBatchResult<T> hget(final String hashKey,final String field,final Type typeOfT){
+		return add(new BatchOp<byte[], T>() {
+			@Override
+			Response<byte[]> queue(RedisPipeline pipeline) {
+				return pipeline.hget(RedisDataSource.rawKey(hashKey), RedisDataSource.rawKey(field));
+			}
+
+			@Override
+			T convert(byte[] raw) {
+				return dataSource.decode(raw, typeOfT);
+			}
+		});
+	}
+
+	/**
+	 * 添加set元素，结果为新增的元素个数
+	 * @param key
+	 * @param members
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午11:18:11
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> RedisBatchResult<Integer> sadd(final String key,T... members){
+		final byte[][] val=new byte[members.length][];
+		for(int i=0;i<members.length;i++){
+			val[i]=dataSource.encodeMember(members[i]);
+			dataSource.bloomPut(key, val[i]);
+		}
+		return add(new BatchOp<Long, Integer>() {
+			@Override
+			Response<Long> queue(RedisPipeline pipeline) {
+				return pipeline.sadd(RedisDataSource.rawKey(key), val);
+			}
+
+			@Override
+			Integer convert(Long raw) {
+				return raw==null?0:raw.intValue();
+			}
+		});
+	}
+
+	/**
+	 * 删除key，结果为删除的key个数；与RedisDataSource.delKeys一致，排队时丢弃延迟写入缓冲中的值，
+	 *   优先使用UNLINK，开启分块时flush后删除分块保存的值的分块
+	 * @param keys
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午11:18:50
+	 */
+	public RedisBatchResult<Long> del(final String... keys){
+		for(String key:keys){
+			dataSource.discardPending(key);
+			invalidations.add(new Invalidation(key));
+		}
+		return add(new DelOp(keys));
+	}
+
+	/**
+	 * 已排队的命令数
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午11:19:21
+	 */
+	public int size(){
+		return ops.size();
+	}
+
+	/**
+	 * 在一个连接上pipeline发送所有排队的命令，并填充各自的结果
+	 * @return 全部发送成功返回true，连接异常返回false（此时所有结果都为失败）
+	 * @author Gerryle 2026年10月17日 上午11:21:36
+	 */
+	public boolean flush(){
+		if(ops.isEmpty()){
+			return true;
+		}
+		final List<BatchOp<?, ?>> pending=new ArrayList<BatchOp<?, ?>>(ops);
+		final List<Invalidation> pendingInvalidations=new ArrayList<Invalidation>(invalidations);
+		ops.clear();
+		invalidations.clear();
+		Boolean ok=dataSource.execute("PIPELINE", new RedisCall<Boolean>() {
+			@Override
+			public Boolean execute(Jedis jedis) {
+				RedisPipeline pipeline=RedisPipeline.pipelined(jedis);
+				for(BatchOp<?, ?> op:pending){
+					op.send(pipeline);
+				}
+				RedisNearCache nearCache=dataSource.getNearCache();
+				if(nearCache!=null){
+					for(Invalidation invalidation:pendingInvalidations){
+						pipeline.publish(nearCache.getChannel(),
+								nearCache.invalidationMessage(invalidation.key, invalidation.fields));
+					}
+				}
+				pipeline.sync();
+				for(BatchOp<?, ?> op:pending){
+					op.finish(jedis);
+				}
+				if(nearCache!=null){
+					for(Invalidation invalidation:pendingInvalidations){
+						nearCache.invalidate(invalidation.key, invalidation.fields);
+					}
+				}
+				for(Invalidation invalidation:pendingInvalidations){
+					dataSource.invalidateHotKey(invalidation.key);
+				}
+				return true;
+			}
+		});
+		if(ok==null){
+			IllegalStateException error=new IllegalStateException("redis batch flush failed");
+			for(BatchOp<?, ?> op:pending){
+				op.result.fail(error);
+			}
+			return false;
+		}
+		for(BatchOp<?, ?> op:pending){
+			op.complete();
+		}
+		return true;
+	}
+
+	private <R, T> RedisBatchResult<T> add(BatchOp<R, T> op){
+		ops.add(op);
+		return op.result;
+	}
+
+	/**
+	 * 排队的单个命令
+	 * @param <R> jedis返回的原始类型
+	 * @param <T> 结果类型
+	 */
+	private abstract static class BatchOp<R, T>{
+
+		final RedisBatchResult<T> result=new RedisBatchResult<T>();
+
+		private Response<R> response;
+
+		abstract Response<R> queue(RedisPipeline pipeline);
+
+		@SuppressWarnings("unchecked")
+		T convert(R raw){
+			return (T)raw;
+		}
+
+		/**
+		 * pipeline执行完成后在同一个连接上执行的后续命令，命令出错时不执行
+		 * @param jedis
+		 * @param raw 命令的原始结果
+		 */
+		void afterSync(Jedis jedis,R raw){
+		}
+
+		void send(RedisPipeline pipeline){
+			response=queue(pipeline);
+		}
+
+		void finish(Jedis jedis){
+			R raw;
+			try {
+				raw=response.get();
+			} catch (JedisDataException e) {
+				//错误在complete时设置到结果中
+				return;
+			}
+			afterSync(jedis, raw);
+		}
+
+		void complete(){
+			try {
+				result.complete(convert(response.get()));
+			} catch (Exception e) {
+				result.fail(e);
+			}
+		}
+	}
+
+	/**
+	 * 删除key：每页不超过MAX_KEYS_PER_UNLINK个key，开启分块时先读出值的头部，flush后删除找到的分块
+	 */
+	private class DelOp extends BatchOp<Long, Long>{
+
+		private final String[] keys;
+
+		private final List<Response<Object>> heads=new ArrayList<Response<Object>>();
+
+		private final List<Response<?>> deletes=new ArrayList<Response<?>>();
+
+		private long deleted;
+
+		private JedisDataException error;
+
+		DelOp(String[] keys){
+			this.keys=keys;
+		}
+
+		@Override
+		Response<Long> queue(RedisPipeline pipeline) {
+			for(int from=0;from<keys.length;from+=RedisDataSource.MAX_KEYS_PER_UNLINK){
+				List<byte[]> rawKeys=rawKeys(page(from));
+				if(dataSource.isChunkEnabled()){
+					heads.add(RedisScripts.VALUE_HEADS.evalBinary(pipeline, rawKeys, Collections.<byte[]>emptyList()));
+				}
+				if(dataSource.isUnlinkSupported()){
+					deletes.add(RedisScripts.UNLINK.evalBinary(pipeline, rawKeys, Collections.<byte[]>emptyList()));
+				}else{
+					deletes.add(pipeline.del(rawKeys.toArray(new byte[rawKeys.size()][])));
+				}
+			}
+			return null;
+		}
+
+		@Override
+		void finish(Jedis jedis) {
+			try {
+				List<String> chunkKeys=new ArrayList<String>();
+				for(int i=0;i<deletes.size();i++){
+					List<String> page=Arrays.asList(page(i*RedisDataSource.MAX_KEYS_PER_UNLINK));
+					if(!heads.isEmpty()){
+						RedisChunkedValue.collectChunkKeys(page, (List<?>)heads.get(i).get(), chunkKeys);
+					}
+					deleted+=deleted(jedis, page, deletes.get(i));
+				}
+				if(!chunkKeys.isEmpty()){
+					dataSource.unlinkKeys(jedis, chunkKeys.toArray(new String[chunkKeys.size()]));
+				}
+			} catch (JedisDataException e) {
+				error=e;
+			}
+		}
+
+		@Override
+		void complete() {
+			if(error!=null){
+				result.fail(error);
+			}else{
+				result.complete(deleted);
+			}
+		}
+
+		private String[] page(int from){
+			return Arrays.copyOfRange(keys, from, Math.min(from+RedisDataSource.MAX_KEYS_PER_UNLINK, keys.length));
+		}
+
+		private List<byte[]> rawKeys(String[] page){
+			List<byte[]> rawKeys=new ArrayList<byte[]>(page.length);
+			for(String key:page){
+				rawKeys.add(RedisDataSource.rawKey(key));
+			}
+			return rawKeys;
+		}
+
+		/**
+		 * 一页的删除结果，服务端不支持UNLINK时通过RedisDataSource降级为DEL并记住结果
+		 */
+		private long deleted(Jedis jedis,List<String> page,Response<?> response){
+			try {
+				return (Long)response.get();
+			} catch (JedisDataException e) {
+				if(e.getMessage()==null||!e.getMessage().contains("Unknown Redis command")){
+					throw e;
+				}
+				return dataSource.unlinkKeys(jedis, page.toArray(new String[page.size()]));
+			}
+		}
+	}
+
+	private static class Invalidation{
+		final String key;
+		final String[] fields;
+
+		Invalidation(String key,String... fields){
+			this.key=key;
+			this.fields=fields;
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package com.gerryle.framework.cache.redis;
+
+/**
+ * 批量操作中单个命令的结果，RedisBatch flush之后才可以获取
+ * @author Gerryle 2026年10月17日 上午11:05:21
+ */
+public class RedisBatchResult<T> {
+
+	private volatile boolean done;
+
+	private T value;
+
+	private Exception error;
+
+	/**
+	 * 是否已经执行完成（成功或失败）
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午11:06:02
+	 */
+	public boolean isDone() {
+		return done;
+	}
+
+	/**
+	 * 是否执行失败
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午11:06:30
+	 */
+	public boolean isFailed(){
+		return done&&error!=null;
+	}
+
+	/**
+	 * 获取命令的结果，未flush或者执行失败抛出IllegalStateException
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午11:07:14
+	 */
+	public T get(){
+		if(!done){
+			throw new IllegalStateException("redis batch has not been flushed");
+		}
+		if(error!=null){
+			throw new IllegalStateException("redis batch command failed", error);
+		}
+		return value;
+	}
+
+	/**
+	 * 执行失败的异常，成功时为null
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午11:07:50
+	 */
+	public Exception getError() {
+		return error;
+	}
+
+	void complete(T value){
+		this.value=value;
+		this.done=true;
+	}
+
+	void fail(Exception error){
+		this.error=error;
+		this.done=true;
+	}
+}
@@ -0,0 +1,42 @@
+package com.gerryle.framework.cache.redis;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import redis.clients.jedis.Client;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * 补充jedis2.4.2缺少的二进制HSCAN/SSCAN，按字符串读取会破坏非UTF-8编码的值
+ * @author Gerryle 2026年10月17日 下午5:10:36
+ */
+final class RedisBinaryScans {
+
+	private RedisBinaryScans(){}
+
+	@SuppressWarnings("unchecked")
+	static ScanResult<byte[]> sscan(Jedis jedis,byte[] key,String cursor,ScanParams params){
+		Client client=jedis.getClient();
+		client.sscan(key, SafeEncoder.encode(cursor), params);
+		List<Object> reply=client.getObjectMultiBulkReply();
+		return new ScanResult<byte[]>(SafeEncoder.encode((byte[])reply.get(0)), (List<byte[]>)reply.get(1));
+	}
+
+	@SuppressWarnings("unchecked")
+	static ScanResult<Map.Entry<String, byte[]>> hscan(Jedis jedis,byte[] key,String cursor,ScanParams params){
+		Client client=jedis.getClient();
+		client.hscan(key, SafeEncoder.encode(cursor), params);
+		List<Object> reply=client.getObjectMultiBulkReply();
+		List<byte[]> raw=(List<byte[]>)reply.get(1);
+		List<Map.Entry<String, byte[]>> entries=new ArrayList<Map.Entry<String, byte[]>>(raw.size()/2);
+		for(int i=0;i+1<raw.size();i+=2){
+			entries.add(new AbstractMap.SimpleImmutableEntry<String, byte[]>(SafeEncoder.encode(raw.get(i)), raw.get(i+1)));
+		}
+		return new ScanResult<Map.Entry<String, byte[]>>(SafeEncoder.encode((byte[])reply.get(0)), entries);
+	}
+}
@@ -0,0 +1,525 @@
+package com.gerryle.framework.cache.redis;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import redis.clients.jedis.BitOP;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * 指定key前缀下的布隆过滤器，过滤器判断不存在时existskey/hasKeyHashMap/sExists直接返回false，不访问redis。
+ *   元素为key、key+hash字段、key+set成员，通过RedisDataSource写入时先加入过滤器再写redis；
+ *   过滤器不能删除元素，定期通过SCAN重建清除已删除的元素，重建期间的写入同时加入新旧两个过滤器；
+ *   重建开始前已经加入旧过滤器的写入可能晚于SCAN到达redis，所以开始重建后先等待一个宽限期再SCAN；
+ *   第一次重建完成之前不使用过滤器。
+ *   不经过RedisDataSource的写入（其它系统、lua脚本等）在下一次重建之前会被误判为不存在，只应用于完全由本框架写入的前缀。
+ *   本地模式（不共享位图）下其它节点的写入同样要到下一次重建才可见，只能用于只有一个节点写入的前缀（bloomFilterSingleWriter）；
+ *   多个节点写入时必须使用共享模式，其它节点的写入最多在一个同步周期后可见。
+ *   共享模式下过滤器的位图保存在redis中：
+ *     每个节点定期把本地过滤器BITOP OR到共享位图再取回合并，其它节点的写入在一个同步周期内可见；
+ *     同一时间只有拿到锁的节点重建，重建后递增代数，其它节点发现代数变化时采用新位图，并带上本代以来自己写入的元素。
+ *   查询只读一个volatile引用，不加锁；写入只在替换过滤器时与替换互斥
+ * @author Gerryle 2026年10月17日 下午11:20:36
+ */
+class RedisBloomFilter {
+
+	private static final int SCAN_COUNT=1000;
+
+	/**key与hash字段、set成员之间的分隔字节*/
+	private static final byte SEPARATOR=0;
+
+	private final RedisDataSource dataSource;
+
+	private final List<String> prefixes;
+
+	private final long expectedInsertions;
+
+	private final double fpp;
+
+	/**开始重建到开始SCAN之间的等待毫秒数，应大于一次写入从加入过滤器到写入redis的最长时间*/
+	private final long graceMillis;
+
+	/**共享位图的key，为null时只使用本地过滤器*/
+	private final String sharedKey;
+
+	private final String nodeId=UUID.randomUUID().toString();
+
+	/**替换过滤器时与写入互斥，写入之间不互斥*/
+	private final ReentrantReadWriteLock swapLock=new ReentrantReadWriteLock();
+
+	private volatile BloomFilter<byte[]> filter;
+
+	/**重建中的过滤器，重建期间的写入同时加入*/
+	private volatile BloomFilter<byte[]> rebuilding;
+
+	/**共享模式下采用当前代以来本节点写入的元素，由swapLock保护替换*/
+	private BloomFilter<byte[]> generationAdds;
+
+	/**共享模式下当前采用的代数，只在调度线程中访问*/
+	private long generation;
+
+	private volatile boolean ready;
+
+	private ScheduledExecutorService scheduler;
+
+	RedisBloomFilter(RedisDataSource dataSource,List<String> prefixes,long expectedInsertions,double fpp,String sharedKey,
+			long graceMillis){
+		this.dataSource=dataSource;
+		this.prefixes=new ArrayList<String>(prefixes);
+		this.expectedInsertions=expectedInsertions;
+		this.fpp=fpp;
+		this.graceMillis=Math.max(graceMillis, 0);
+		this.sharedKey=sharedKey;
+		this.filter=newFilter();
+		this.generationAdds=sharedKey==null?null:newFilter();
+	}
+
+	/**
+	 * 启动后台重建和同步
+	 * @param rebuildSeconds 重建间隔秒数，共享模式下同一间隔内整个集群只有一个节点重建
+	 * @param syncSeconds 共享模式下与共享位图同步的间隔秒数
+	 * @author Gerryle 2026年10月17日 下午11:24:10
+	 */
+	synchronized void start(int rebuildSeconds,int syncSeconds){
+		scheduler=Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread=new Thread(r, "redis-bloom-filter");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		final int rebuildMillis=(int)TimeUnit.SECONDS.toMillis(Math.max(rebuildSeconds, 1));
+		if(sharedKey==null){
+			scheduler.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						rebuild(rebuildMillis);
+					} catch (RuntimeException e) {
+						//异常会取消后续的调度
+						e.printStackTrace();
+					}
+				}
+			}, 0, rebuildMillis, TimeUnit.MILLISECONDS);
+			return;
+		}
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					rebuild(rebuildMillis);
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				}
+			}
+		}, rebuildMillis, rebuildMillis, TimeUnit.MILLISECONDS);
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					sync(rebuildMillis);
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				}
+			}
+		}, 0, Math.max(syncSeconds, 1), TimeUnit.SECONDS);
+	}
+
+	synchronized void stop(){
+		if(scheduler!=null){
+			scheduler.shutdownNow();
+			scheduler=null;
+		}
+		ready=false;
+	}
+
+	boolean covers(String key){
+		for(String prefix:prefixes){
+			if(key.startsWith(prefix)){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * key是否可能存在，过滤器未就绪或者key不在过滤范围内时返回true
+	 * @param key
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午11:26:02
+	 */
+	boolean mightContain(String key){
+		return !ready||!covers(key)||filter.mightContain(RedisDataSource.rawKey(key));
+	}
+
+	/**
+	 * hash字段或者set成员是否可能存在
+	 * @param key
+	 * @param member hash字段名或者编码后的set成员
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午11:26:40
+	 */
+	boolean mightContain(String key,byte[] member){
+		return !ready||!covers(key)||filter.mightContain(element(RedisDataSource.rawKey(key), member));
+	}
+
+	void put(String key){
+		if(covers(key)){
+			putElement(RedisDataSource.rawKey(key));
+		}
+	}
+
+	void put(String key,byte[] member){
+		if(covers(key)){
+			byte[] rawKey=RedisDataSource.rawKey(key);
+			putElement(rawKey);
+			putElement(element(rawKey, member));
+		}
+	}
+
+	boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * 当前过滤器的估计误判率
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午11:27:30
+	 */
+	double expectedFpp(){
+		return filter.expectedFpp();
+	}
+
+	private void putElement(byte[] element){
+		swapLock.readLock().lock();
+		try {
+			filter.put(element);
+			BloomFilter<byte[]> next=rebuilding;
+			if(next!=null){
+				next.put(element);
+			}
+			if(generationAdds!=null){
+				generationAdds.put(element);
+			}
+		} finally {
+			swapLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * 通过SCAN重建过滤器，共享模式下只有拿到锁的节点重建，锁在重建间隔内不释放
+	 * @param rebuildMillis
+	 * @author Gerryle 2026年10月17日 下午11:29:05
+	 */
+	private void rebuild(int rebuildMillis){
+		RedisLease lease=null;
+		if(sharedKey!=null){
+			lease=dataSource.getLock(sharedKey+":rebuild").tryAcquire(rebuildMillis);
+			if(lease==null){
+				return;
+			}
+		}
+		BloomFilter<byte[]> fresh=newFilter();
+		//在写锁中发布，之后完成的写入一定同时加入新过滤器
+		swapLock.writeLock().lock();
+		try {
+			rebuilding=fresh;
+		} finally {
+			swapLock.writeLock().unlock();
+		}
+		//发布之前只加入旧过滤器的写入，等它们到达redis后再SCAN，否则SCAN可能已经越过它们的位置
+		try {
+			Thread.sleep(graceMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			rebuilding=null;
+			if(lease!=null){
+				lease.release();
+			}
+			return;
+		}
+		Boolean scanned=dataSource.execute("BLOOM_REBUILD", new ScanCall(fresh));
+		if(scanned==null){
+			rebuilding=null;
+			if(lease!=null){
+				lease.release();
+			}
+			return;
+		}
+		Long newGeneration=null;
+		if(sharedKey!=null){
+			newGeneration=publish(fresh);
+			if(newGeneration==null){
+				rebuilding=null;
+				lease.release();
+				return;
+			}
+		}
+		swapLock.writeLock().lock();
+		try {
+			filter=fresh;
+			rebuilding=null;
+			if(newGeneration!=null){
+				generationAdds=newFilter();
+				generation=newGeneration;
+			}
+			ready=true;
+		} finally {
+			swapLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * 共享模式的同步：代数没变时把本地过滤器合并到共享位图并取回，代数变化时采用新的共享位图
+	 * @param rebuildMillis
+	 * @author Gerryle 2026年10月17日 下午11:31:40
+	 */
+	private void sync(int rebuildMillis){
+		final String generationKey=sharedKey+":generation";
+		String value=dataSource.execute("BLOOM_SYNC", new RedisCall<String>() {
+			@Override
+			public String execute(Jedis jedis) {
+				String value=jedis.get(generationKey);
+				return value==null?"0":value;
+			}
+		});
+		if(value==null){
+			return;
+		}
+		long current=Long.parseLong(value);
+		if(current==0){
+			//还没有共享位图，立即重建
+			rebuild(rebuildMillis);
+			return;
+		}
+		if(current!=generation){
+			BloomFilter<byte[]> remote=readFilter(getShared());
+			if(remote==null){
+				rebuild(rebuildMillis);
+				return;
+			}
+			if(!remote.isCompatible(filter)){
+				//配置不同，由merge以本地为准覆盖
+				merge();
+				return;
+			}
+			swapLock.writeLock().lock();
+			try {
+				remote.putAll(generationAdds);
+				filter=remote;
+				generationAdds=newFilter();
+				generation=current;
+				ready=true;
+			} finally {
+				swapLock.writeLock().unlock();
+			}
+		}
+		merge();
+	}
+
+	/**
+	 * 本地过滤器BITOP OR到共享位图并取回合并。Guava序列化的头部在配置相同时完全一致，OR之后不变
+	 * @author Gerryle 2026年10月17日 下午11:33:12
+	 */
+	private void merge(){
+		final BloomFilter<byte[]> local=filter;
+		final byte[] bytes=writeFilter(local);
+		final byte[] tempKey=SafeEncoder.encode(sharedKey+":merge:"+nodeId);
+		byte[] merged=dataSource.execute("BLOOM_SYNC", new RedisCall<byte[]>() {
+			@Override
+			public byte[] execute(Jedis jedis) {
+				byte[] key=SafeEncoder.encode(sharedKey);
+				Pipeline pipeline=jedis.pipelined();
+				pipeline.setex(tempKey, 60, bytes);
+				pipeline.bitop(BitOP.OR, key, key, tempKey);
+				pipeline.del(tempKey);
+				Response<byte[]> response=pipeline.get(key);
+				pipeline.sync();
+				return response.get();
+			}
+		});
+		if(merged==null){
+			return;
+		}
+		BloomFilter<byte[]> remote=readFilter(merged);
+		if(remote!=null&&local.isCompatible(remote)){
+			local.putAll(remote);
+		}else{
+			//共享位图的配置与本地不同，以本地为准覆盖
+			System.out.println("incompatible shared bloom filter "+sharedKey+", overwrite");
+			publish(local);
+		}
+	}
+
+	private byte[] getShared(){
+		return dataSource.execute("BLOOM_SYNC", new RedisCall<byte[]>() {
+			@Override
+			public byte[] execute(Jedis jedis) {
+				return jedis.get(SafeEncoder.encode(sharedKey));
+			}
+		});
+	}
+
+	/**
+	 * 覆盖共享位图并递增代数
+	 * @param bloomFilter
+	 * @return 新的代数，出错返回null
+	 * @author Gerryle 2026年10月17日 下午11:35:02
+	 */
+	private Long publish(BloomFilter<byte[]> bloomFilter){
+		final byte[] bytes=writeFilter(bloomFilter);
+		return dataSource.execute("BLOOM_SYNC", new RedisCall<Long>() {
+			@Override
+			public Long execute(Jedis jedis) {
+				Pipeline pipeline=jedis.pipelined();
+				pipeline.set(SafeEncoder.encode(sharedKey), bytes);
+				Response<Long> response=pipeline.incr(sharedKey+":generation");
+				pipeline.sync();
+				return response.get();
+			}
+		});
+	}
+
+	private BloomFilter<byte[]> newFilter(){
+		return BloomFilter.create(Funnels.byteArrayFunnel(), expectedInsertions, fpp);
+	}
+
+	private static byte[] writeFilter(BloomFilter<byte[]> bloomFilter){
+		ByteArrayOutputStream out=new ByteArrayOutputStream();
+		try {
+			bloomFilter.writeTo(out);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return out.toByteArray();
+	}
+
+	private static BloomFilter<byte[]> readFilter(byte[] bytes){
+		if(bytes==null||bytes.length==0){
+			return null;
+		}
+		try {
+			return BloomFilter.readFrom(new ByteArrayInputStream(bytes), Funnels.byteArrayFunnel());
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	private static byte[] element(byte[] rawKey,byte[] member){
+		byte[] element=new byte[rawKey.length+1+member.length];
+		System.arraycopy(rawKey, 0, element, 0, rawKey.length);
+		element[rawKey.length]=SEPARATOR;
+		System.arraycopy(member, 0, element, rawKey.length+1, member.length);
+		return element;
+	}
+
+	/**
+	 * SCAN前缀下的所有key，hash和set再分别HSCAN、SSCAN字段和成员
+	 */
+	private class ScanCall implements RedisCall<Boolean>{
+
+		private final BloomFilter<byte[]> target;
+
+		ScanCall(BloomFilter<byte[]> target){
+			this.target=target;
+		}
+
+		@Override
+		public Boolean execute(Jedis jedis) {
+			for(String prefix:prefixes){
+				ScanParams params=new ScanParams();
+				params.match(escape(prefix)+"*");
+				params.count(SCAN_COUNT);
+				String cursor=ScanParams.SCAN_POINTER_START;
+				do {
+					ScanResult<String> page=jedis.scan(cursor, params);
+					cursor=page.getStringCursor();
+					List<String> keys=page.getResult();
+					Pipeline pipeline=jedis.pipelined();
+					List<Response<String>> types=new ArrayList<Response<String>>(keys.size());
+					for(String key:keys){
+						types.add(pipeline.type(key));
+					}
+					pipeline.sync();
+					for(int i=0;i<keys.size();i++){
+						byte[] rawKey=RedisDataSource.rawKey(keys.get(i));
+						target.put(rawKey);
+						String type=types.get(i).get();
+						if("hash".equals(type)){
+							scanHash(jedis, rawKey);
+						}else if("set".equals(type)){
+							scanSet(jedis, rawKey);
+						}
+					}
+				} while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+			}
+			return Boolean.TRUE;
+		}
+
+		private void scanHash(Jedis jedis,byte[] rawKey){
+			ScanParams params=new ScanParams();
+			params.count(SCAN_COUNT);
+			String cursor=ScanParams.SCAN_POINTER_START;
+			do {
+				ScanResult<Map.Entry<String, byte[]>> page=RedisBinaryScans.hscan(jedis, rawKey, cursor, params);
+				cursor=page.getStringCursor();
+				for(Map.Entry<String, byte[]> entry:page.getResult()){
+					target.put(element(rawKey, RedisDataSource.rawKey(entry.getKey())));
+				}
+			} while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+		}
+
+		private void scanSet(Jedis jedis,byte[] rawKey){
+			ScanParams params=new ScanParams();
+			params.count(SCAN_COUNT);
+			String cursor=ScanParams.SCAN_POINTER_START;
+			do {
+				ScanResult<byte[]> page=RedisBinaryScans.sscan(jedis, rawKey, cursor, params);
+				cursor=page.getStringCursor();
+				for(byte[] member:page.getResult()){
+					target.put(element(rawKey, member));
+				}
+			} while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+		}
+
+		/**
+		 * 转义前缀中的glob特殊字符
+		 * @param prefix
+		 * @return
+		 * @author Gerryle 2026年10月17日 下午11:38:20
+		 */
+		private String escape(String prefix){
+			StringBuilder sb=new StringBuilder(prefix.length()+4);
+			for(char c:prefix.toCharArray()){
+				if(c=='*'||c=='?'||c=='['||c==']'||c=='\\'){
+					sb.append('\\');
+				}
+				sb.append(c);
+			}
+			return sb.toString();
+		}
+	}
+}
@@ -0,0 +1,339 @@
+package com.gerryle.framework.cache.redis;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * 分桶保存的小值
+ *   大量很小的值（id到短状态等）各自作为顶层key保存时，每个key的元数据和过期结构占用的内存是值的数倍；
+ *   分桶后逻辑key按hash(key)%buckets映射到前缀:桶号的hash中，逻辑key作为字段，
+ *   每个桶的字段数和字段、值的长度不超过hash-max-ziplist-entries/hash-max-ziplist-value（redis7为listpack）时
+ *   redis使用紧凑编码保存整个桶，内存通常可以减少到原来的几分之一。
+ *   读写语义与RedisDataSource的getValue/setValue一致：字符串按原样保存，对象经过值编解码器；
+ *   hash字段不能单独设置过期时间，分桶的值不会过期，只适合需要长期保存或者显式删除的数据；
+ *   桶数确定后不能修改，修改后逻辑key会映射到其它桶，需要重新写入。
+ *   通过RedisDataSource.getBucketedMap获取，线程安全
+ * @author Gerryle 2026年10月18日 上午1:22:10
+ */
+public class RedisBucketedMap {
+
+	/**服务端配置无法读取时使用的紧凑编码字段数上限（redis7的默认值，比2.8的512更保守）*/
+	static final int DEFAULT_MAX_ENTRIES=128;
+
+	/**服务端配置无法读取时使用的紧凑编码字段、值字节数上限*/
+	static final int DEFAULT_MAX_VALUE_BYTES=64;
+
+	/**计算桶数时每个桶的目标填充率，给分布不均留出余量*/
+	private static final double LOAD_FACTOR=0.75;
+
+	private static final HashFunction HASH=Hashing.murmur3_32();
+
+	private final RedisDataSource dataSource;
+
+	private final String prefix;
+
+	private final int buckets;
+
+	private final int maxValueBytes;
+
+	/**字段或者值超过紧凑编码长度的写入次数，这些写入会让所在的桶转换为普通hash*/
+	private final AtomicLong oversizedWrites=new AtomicLong();
+
+	/**
+	 * @param dataSource
+	 * @param prefix 桶key的前缀
+	 * @param buckets 桶数
+	 * @param maxValueBytes 紧凑编码的字段、值字节数上限
+	 */
+	RedisBucketedMap(RedisDataSource dataSource,String prefix,int buckets,int maxValueBytes){
+		this.dataSource=dataSource;
+		this.prefix=prefix;
+		this.buckets=Math.max(buckets, 1);
+		this.maxValueBytes=maxValueBytes;
+	}
+
+	/**
+	 * 按预期的key数量计算桶数，每个桶的字段数为紧凑编码上限的LOAD_FACTOR
+	 * @param expectedKeys 预期的逻辑key数量
+	 * @param maxEntries 服务端的hash-max-ziplist-entries
+	 * @return
+	 * @author Gerryle 2026年10月18日 上午1:24:02
+	 */
+	public static int bucketsFor(long expectedKeys,int maxEntries){
+		long perBucket=Math.max((long)(Math.max(maxEntries, 1)*LOAD_FACTOR), 1);
+		long count=(Math.max(expectedKeys, 1)+perBucket-1)/perBucket;
+		return (int)Math.min(count, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * 逻辑key所在的桶
+	 * @param key
+	 * @return
+	 * @author Gerryle 2026年10月18日 上午1:24:40
+	 */
+	public String getBucketKey(String key){
+		return getBucketKey(Math.floorMod(HASH.hashString(key, StandardCharsets.UTF_8).asInt(), buckets));
+	}
+
+	/**
+	 * 保存字符串
+	 * @param key
+	 * @param value
+	 * @author Gerryle 2026年10月18日 上午1:25:10
+	 */
+	public void setValue(String key,String value){
+		if(value!=null){
+			dataSource.getMetrics().recordWrite(value.length());
+			setBytes(key, SafeEncoder.encode(value));
+		}
+	}
+
+	/**
+	 * 保存对象（如果已经存在则覆盖）
+	 * @param key
+	 * @param value
+	 * @author Gerryle 2026年10月18日 上午1:25:40
+	 */
+	public <T> void setValue(String key,T value){
+		if(value!=null){
+			setBytes(key, dataSource.encode(value));
+		}
+	}
+
+	/**
+	 * 批量保存，所有桶的写入通过pipeline一次发送
+	 * @param values 逻辑key -> 值，字符串按原样保存
+	 * @author Gerryle 2026年10月18日 上午1:26:20
+	 */
+	public <T> void setValues(Map<String, T> values){
+		if(values==null||values.isEmpty()){
+			return;
+		}
+		RedisBatch batch=dataSource.batch();
+		for(Map.Entry<String, T> entry:values.entrySet()){
+			if(entry.getValue()==null){
+				continue;
+			}
+			byte[] data;
+			if(entry.getValue() instanceof String){
+				String value=(String)entry.getValue();
+				dataSource.getMetrics().recordWrite(value.length());
+				data=SafeEncoder.encode(value);
+			}else{
+				data=dataSource.encode(entry.getValue());
+			}
+			checkSize(entry.getKey(), data);
+			batch.hsetBytes(getBucketKey(entry.getKey()), entry.getKey(), data);
+		}
+		batch.flush();
+	}
+
+	/**
+	 * 获取字符串
+	 * @param key
+	 * @return 不存在返回空字符串
+	 * @author Gerryle 2026年10月18日 上午1:27:02
+	 */
+	public String getValue(String key){
+		byte[] data=getBytes(key);
+		if(data==null){
+			return "";
+		}
+		dataSource.getMetrics().recordRead(data.length);
+		return SafeEncoder.encode(data);
+	}
+
+	/**
+	 * 获取对象
+	 * @param key
+	 * @param c
+	 * @return 不存在返回null
+	 * @author Gerryle 2026年10月18日 上午1:27:30
+	 */
+	public <T> T getValue(String key,Class<T> c){
+		return getValue(key, (Type)c);
+	}
+
+	/**
+	 * 获取泛型对象
+	 * @param key
+	 * @param typeOfT
+	 * @return 不存在返回null
+	 * @author Gerryle 2026年10月18日 上午1:27:58
+	 */
+	public <T> T getValue(String key,Type typeOfT){
+		return dataSource.decode(getBytes(key), typeOfT);
+	}
+
+	/**
+	 * 批量获取对象，按桶分组，每个桶一个HMGET，通过pipeline一次往返
+	 * @param keys
+	 * @param typeOfT
+	 * @return 结果与keys的顺序一致，不存在的位置为null，出错返回空列表
+	 * @author Gerryle 2026年10月18日 上午1:28:40
+	 */
+	public <T> List<T> getValues(final List<String> keys,Type typeOfT){
+		List<T> list=new ArrayList<T>(keys.size());
+		if(keys.isEmpty()){
+			return list;
+		}
+		final Map<String, List<Integer>> positions=new LinkedHashMap<String, List<Integer>>();
+		for(int i=0;i<keys.size();i++){
+			String bucketKey=getBucketKey(keys.get(i));
+			List<Integer> indexes=positions.get(bucketKey);
+			if(indexes==null){
+				indexes=new ArrayList<Integer>();
+				positions.put(bucketKey, indexes);
+			}
+			indexes.add(i);
+		}
+		byte[][] values=dataSource.readExecute("HMGET", new RedisCall<byte[][]>() {
+			@Override
+			public byte[][] execute(Jedis jedis) {
+				Pipeline pipeline=jedis.pipelined();
+				List<Response<List<byte[]>>> responses=new ArrayList<Response<List<byte[]>>>(positions.size());
+				for(Map.Entry<String, List<Integer>> entry:positions.entrySet()){
+					byte[][] fields=new byte[entry.getValue().size()][];
+					for(int i=0;i<fields.length;i++){
+						fields[i]=RedisDataSource.rawKey(keys.get(entry.getValue().get(i)));
+					}
+					responses.add(pipeline.hmget(RedisDataSource.rawKey(entry.getKey()), fields));
+				}
+				pipeline.sync();
+				byte[][] values=new byte[keys.size()][];
+				int bucket=0;
+				for(List<Integer> indexes:positions.values()){
+					List<byte[]> result=responses.get(bucket++).get();
+					for(int i=0;i<indexes.size();i++){
+						values[indexes.get(i)]=result.get(i);
+					}
+				}
+				return values;
+			}
+		});
+		if(values==null){
+			return list;
+		}
+		for(byte[] data:values){
+			list.add(dataSource.<T>decode(data, typeOfT));
+		}
+		return list;
+	}
+
+	/**
+	 * 批量获取对象
+	 * @param keys
+	 * @param c
+	 * @return 结果与keys的顺序一致，不存在的位置为null，出错返回空列表
+	 * @author Gerryle 2026年10月18日 上午1:29:20
+	 */
+	public <T> List<T> getValues(List<String> keys,Class<T> c){
+		return getValues(keys, (Type)c);
+	}
+
+	/**
+	 * 逻辑key是否存在
+	 * @param key
+	 * @return
+	 * @author Gerryle 2026年10月18日 上午1:29:50
+	 */
+	public boolean existskey(String key){
+		return dataSource.hasKeyHashMap(getBucketKey(key), key);
+	}
+
+	/**
+	 * 删除逻辑key
+	 * @param key
+	 * @return 删除成功返回true
+	 * @author Gerryle 2026年10月18日 上午1:30:12
+	 */
+	public boolean delKey(String key){
+		return dataSource.removeFromHashMap(getBucketKey(key), key)>0;
+	}
+
+	/**
+	 * 抽样检查桶的编码，桶的字段数或者某个字段、值超过紧凑编码的上限后会转换为普通hash
+	 * @param samples 抽样的桶数，不超过总桶数
+	 * @return 抽样中不是紧凑编码（ziplist/listpack）的桶数，出错返回-1
+	 * @author Gerryle 2026年10月18日 上午1:31:02
+	 */
+	public int countUncompactBuckets(int samples){
+		final int count=Math.min(Math.max(samples, 1), buckets);
+		Integer uncompact=dataSource.readExecute("OBJECT_ENCODING", new RedisCall<Integer>() {
+			@Override
+			public Integer execute(Jedis jedis) {
+				int uncompact=0;
+				//均匀抽样
+				for(int i=0;i<count;i++){
+					String encoding=jedis.objectEncoding(getBucketKey((int)((long)i*buckets/count)));
+					if(encoding!=null&&!"ziplist".equals(encoding)&&!"listpack".equals(encoding)){
+						uncompact++;
+					}
+				}
+				return uncompact;
+			}
+		});
+		return uncompact==null?-1:uncompact;
+	}
+
+	public String getPrefix() {
+		return prefix;
+	}
+
+	public int getBuckets() {
+		return buckets;
+	}
+
+	public long getOversizedWrites() {
+		return oversizedWrites.get();
+	}
+
+	private String getBucketKey(int bucket){
+		return prefix+":"+bucket;
+	}
+
+	private void setBytes(String key,byte[] data){
+		checkSize(key, data);
+		RedisBatch batch=dataSource.batch();
+		batch.hsetBytes(getBucketKey(key), key, data);
+		batch.flush();
+	}
+
+	private byte[] getBytes(final String key){
+		final String bucketKey=getBucketKey(key);
+		return dataSource.readExecute("HGET", new RedisCall<byte[]>() {
+			@Override
+			public byte[] execute(Jedis jedis) {
+				return jedis.hget(RedisDataSource.rawKey(bucketKey), RedisDataSource.rawKey(key));
+			}
+		});
+	}
+
+	/**
+	 * 字段或者值超过紧凑编码的长度上限时记录，第一次时打印提示
+	 * @param key
+	 * @param data
+	 * @author Gerryle 2026年10月18日 上午1:32:10
+	 */
+	private void checkSize(String key,byte[] data){
+		if(maxValueBytes<=0||(data.length<=maxValueBytes&&RedisDataSource.rawKey(key).length<=maxValueBytes)){
+			return;
+		}
+		if(oversizedWrites.getAndIncrement()==0){
+			System.out.println("分桶"+prefix+"的值超过hash-max-ziplist-value="+maxValueBytes+"字节，所在的桶将不再使用紧凑编码，key："+key);
+		}
+	}
+}
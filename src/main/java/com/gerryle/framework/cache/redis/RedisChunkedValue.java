@@ -0,0 +1,165 @@
+package com.gerryle.framework.cache.redis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 分块保存的大值
+ *   大值的SET、GET、过期和删除都在redis的事件循环中一次处理整个值，期间其它客户端的命令只能等待；
+ *   分块后值拆分为固定大小的分块key，通过pipeline写入、读取，每个命令只处理一个分块，其它客户端的命令可以穿插执行。
+ *   原key中保存清单：0x03 + 16位十六进制的写入id + ':' + 分块数 + ':' + 总字节数，全部为ASCII字符，字符串脚本也能原样返回；
+ *   分块key为 key:chunk:写入id:序号，每次写入使用新的写入id，所有分块写入后才替换清单，读取时不会读到新旧混合的分块。
+ *   清单可以被值的头部（信封）包装
+ * @author Gerryle 2026年10月18日 上午2:10:20
+ */
+final class RedisChunkedValue {
+
+	/**清单的头部字节，压缩值使用0x01，信封使用0x02*/
+	static final byte HEADER=0x03;
+
+	/**清单（包括信封头部）的最大字节数，判断旧值是否为清单时只读取这么多*/
+	static final int MAX_MANIFEST_BYTES=64;
+
+	private final String key;
+
+	private final String id;
+
+	private final int count;
+
+	private final int length;
+
+	private RedisChunkedValue(String key,String id,int count,int length){
+		this.key=key;
+		this.id=id;
+		this.count=count;
+		this.length=length;
+	}
+
+	/**
+	 * 新的一次分块写入
+	 * @param key
+	 * @param length 值的字节数
+	 * @param chunkBytes 每个分块的字节数
+	 * @return
+	 * @author Gerryle 2026年10月18日 上午2:11:40
+	 */
+	static RedisChunkedValue create(String key,int length,int chunkBytes){
+		String id=String.format("%016x", ThreadLocalRandom.current().nextLong());
+		return new RedisChunkedValue(key, id, (length+chunkBytes-1)/chunkBytes, length);
+	}
+
+	/**
+	 * 解析清单
+	 * @param key
+	 * @param data key中保存的值或者值的前MAX_MANIFEST_BYTES个字节，可以带有信封
+	 * @return 不是清单返回null
+	 * @author Gerryle 2026年10月18日 上午2:12:30
+	 */
+	static RedisChunkedValue parse(String key,byte[] data){
+		if(data==null||data.length==0||data.length>MAX_MANIFEST_BYTES){
+			return null;
+		}
+		byte[] value=RedisValueEnvelope.unwrap(data);
+		if(value.length<2||value[0]!=HEADER){
+			return null;
+		}
+		String[] parts=new String(value, 1, value.length-1, StandardCharsets.US_ASCII).split(":");
+		if(parts.length!=3||parts[0].length()!=16){
+			return null;
+		}
+		try {
+			int count=Integer.parseInt(parts[1]);
+			int length=Integer.parseInt(parts[2]);
+			return count>0&&length>=0?new RedisChunkedValue(key, parts[0], count, length):null;
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 找出分块保存的值的所有分块key
+	 * @param keys
+	 * @param heads VALUE_HEADS脚本的结果，与keys一一对应
+	 * @param chunkKeys 找到的分块key添加到这里
+	 * @author Gerryle 2026年10月18日 下午3:52:10
+	 */
+	static void collectChunkKeys(List<String> keys,List<?> heads,List<String> chunkKeys){
+		for(int i=0;i<keys.size();i++){
+			RedisChunkedValue chunked=parse(keys.get(i), (byte[])heads.get(i));
+			if(chunked!=null){
+				chunkKeys.addAll(chunked.chunkKeys());
+			}
+		}
+	}
+
+	/**
+	 * 清单的字节
+	 * @return
+	 * @author Gerryle 2026年10月18日 上午2:13:40
+	 */
+	byte[] manifest(){
+		byte[] text=(id+":"+count+":"+length).getBytes(StandardCharsets.US_ASCII);
+		byte[] data=new byte[text.length+1];
+		data[0]=HEADER;
+		System.arraycopy(text, 0, data, 1, text.length);
+		return data;
+	}
+
+	String chunkKey(int index){
+		return key+":chunk:"+id+":"+index;
+	}
+
+	List<String> chunkKeys(){
+		List<String> keys=new ArrayList<String>(count);
+		for(int i=0;i<count;i++){
+			keys.add(chunkKey(i));
+		}
+		return keys;
+	}
+
+	/**
+	 * 第index个分块的内容
+	 * @param value
+	 * @param index
+	 * @param chunkBytes
+	 * @return
+	 * @author Gerryle 2026年10月18日 上午2:14:20
+	 */
+	static byte[] chunk(byte[] value,int index,int chunkBytes){
+		int from=index*chunkBytes;
+		return Arrays.copyOfRange(value, from, Math.min(from+chunkBytes, value.length));
+	}
+
+	/**
+	 * 拼接分块
+	 * @param chunks 按序号排列
+	 * @return 缺少分块（过期或者已经被新的写入替换）或者总长度不一致时返回null
+	 * @author Gerryle 2026年10月18日 上午2:15:02
+	 */
+	byte[] join(List<byte[]> chunks){
+		if(chunks.size()!=count){
+			return null;
+		}
+		byte[] value=new byte[length];
+		int offset=0;
+		for(byte[] chunk:chunks){
+			if(chunk==null||offset+chunk.length>length){
+				return null;
+			}
+			System.arraycopy(chunk, 0, value, offset, chunk.length);
+			offset+=chunk.length;
+		}
+		return offset==length?value:null;
+	}
+
+	int getCount() {
+		return count;
+	}
+
+	int getLength() {
+		return length;
+	}
+}
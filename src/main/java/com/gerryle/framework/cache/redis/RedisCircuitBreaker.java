@@ -0,0 +1,148 @@
+package com.gerryle.framework.cache.redis;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+/**
+ * redis熔断器
+ *   连续出现连接错误（连接失败、超时、连接池借用超时）达到阈值后熔断，熔断期间命令直接返回失败，
+ *   不再在连接池或者连接超时上阻塞调用线程，调用方按redis未命中处理（读近端缓存或者数据库）；
+ *   健康检查PING成功或者熔断时间到期后进入半开状态，只放行一个试探命令，成功后恢复，失败后重新熔断。
+ *   命令返回的数据错误（类型错误、脚本错误等）说明redis可用，不计入错误。
+ *   通过RedisDataSource.getCircuitBreaker获取，线程安全
+ * @author Gerryle 2026年10月18日 上午12:12:40
+ */
+public class RedisCircuitBreaker {
+
+	private final int failureThreshold;
+
+	private final long openNanos;
+
+	private final AtomicReference<RedisCircuitState> state=new AtomicReference<RedisCircuitState>(RedisCircuitState.CLOSED);
+
+	private final AtomicInteger consecutiveFailures=new AtomicInteger();
+
+	/**半开状态下是否已经放行了试探命令*/
+	private final AtomicBoolean probing=new AtomicBoolean();
+
+	private volatile long openedAt;
+
+	private final AtomicLong openCount=new AtomicLong();
+
+	private final AtomicLong rejectedCount=new AtomicLong();
+
+	/**
+	 * @param failureThreshold 熔断的连续错误次数
+	 * @param openMillis 熔断后进入半开状态的最长毫秒数
+	 */
+	RedisCircuitBreaker(int failureThreshold,int openMillis){
+		this.failureThreshold=Math.max(failureThreshold, 1);
+		this.openNanos=TimeUnit.MILLISECONDS.toNanos(Math.max(openMillis, 0));
+	}
+
+	/**
+	 * 命令执行前检查是否放行
+	 * @return 放行返回true，熔断中返回false
+	 * @author Gerryle 2026年10月18日 上午12:14:10
+	 */
+	boolean allowRequest(){
+		RedisCircuitState current=state.get();
+		if(current==RedisCircuitState.CLOSED){
+			return true;
+		}
+		if(current==RedisCircuitState.OPEN){
+			if(System.nanoTime()-openedAt<openNanos){
+				rejectedCount.incrementAndGet();
+				return false;
+			}
+			halfOpen();
+		}
+		if(probing.compareAndSet(false, true)){
+			return true;
+		}
+		rejectedCount.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * redis正常响应
+	 * @author Gerryle 2026年10月18日 上午12:15:02
+	 */
+	void onSuccess(){
+		consecutiveFailures.set(0);
+		if(state.get()!=RedisCircuitState.CLOSED){
+			//熔断前发出的命令晚到的成功响应同样说明redis已经恢复
+			state.set(RedisCircuitState.CLOSED);
+			probing.set(false);
+		}
+	}
+
+	/**
+	 * 出现错误，只有连接错误计入熔断
+	 * @param error
+	 * @author Gerryle 2026年10月18日 上午12:15:40
+	 */
+	void onError(Throwable error){
+		if(!isConnectionError(error)){
+			onSuccess();
+			return;
+		}
+		if(state.get()==RedisCircuitState.HALF_OPEN||consecutiveFailures.incrementAndGet()>=failureThreshold){
+			trip();
+		}
+	}
+
+	/**
+	 * 健康检查成功，熔断中时进入半开状态，由下一个命令试探
+	 * @author Gerryle 2026年10月18日 上午12:16:20
+	 */
+	void halfOpen(){
+		if(state.compareAndSet(RedisCircuitState.OPEN, RedisCircuitState.HALF_OPEN)){
+			probing.set(false);
+		}
+	}
+
+	public RedisCircuitState getState() {
+		return state.get();
+	}
+
+	/**
+	 * 熔断的次数
+	 * @return
+	 */
+	public long getOpenCount() {
+		return openCount.get();
+	}
+
+	/**
+	 * 熔断期间直接失败的命令数
+	 * @return
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	private void trip(){
+		openedAt=System.nanoTime();
+		consecutiveFailures.set(0);
+		if(state.getAndSet(RedisCircuitState.OPEN)!=RedisCircuitState.OPEN){
+			openCount.incrementAndGet();
+			System.out.println("redis连接连续出错，熔断"+TimeUnit.NANOSECONDS.toMillis(openNanos)+"毫秒");
+		}
+		probing.set(false);
+	}
+
+	private static boolean isConnectionError(Throwable error){
+		for(Throwable cause=error;cause!=null;cause=cause.getCause()){
+			if(cause instanceof JedisConnectionException){
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,17 @@
+package com.gerryle.framework.cache.redis;
+
+/**
+ * 熔断器的状态
+ * @author Gerryle 2026年10月18日 上午12:10:20
+ */
+public enum RedisCircuitState {
+
+	/**正常放行所有命令*/
+	CLOSED,
+
+	/**熔断中，命令直接失败，不借用连接*/
+	OPEN,
+
+	/**探测恢复，只放行一个试探命令，成功后关闭，失败后重新熔断*/
+	HALF_OPEN
+}
@@ -0,0 +1,105 @@
+package com.gerryle.framework.cache.redis;
+
+/**
+ * 单个命令的统计快照，延迟单位为微秒
+ * @author Gerryle 2026年10月17日 下午8:10:05
+ */
+public class RedisCommandStats {
+
+	private String command;
+
+	private long count;
+
+	private long errors;
+
+	private long timeouts;
+
+	private double meanMicros;
+
+	private long p50Micros;
+
+	private long p99Micros;
+
+	private long p999Micros;
+
+	private long maxMicros;
+
+	public String getCommand() {
+		return command;
+	}
+
+	public void setCommand(String command) {
+		this.command = command;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public void setCount(long count) {
+		this.count = count;
+	}
+
+	public long getErrors() {
+		return errors;
+	}
+
+	public void setErrors(long errors) {
+		this.errors = errors;
+	}
+
+	public long getTimeouts() {
+		return timeouts;
+	}
+
+	public void setTimeouts(long timeouts) {
+		this.timeouts = timeouts;
+	}
+
+	public double getMeanMicros() {
+		return meanMicros;
+	}
+
+	public void setMeanMicros(double meanMicros) {
+		this.meanMicros = meanMicros;
+	}
+
+	public long getP50Micros() {
+		return p50Micros;
+	}
+
+	public void setP50Micros(long p50Micros) {
+		this.p50Micros = p50Micros;
+	}
+
+	public long getP99Micros() {
+		return p99Micros;
+	}
+
+	public void setP99Micros(long p99Micros) {
+		this.p99Micros = p99Micros;
+	}
+
+	public long getP999Micros() {
+		return p999Micros;
+	}
+
+	public void setP999Micros(long p999Micros) {
+		this.p999Micros = p999Micros;
+	}
+
+	public long getMaxMicros() {
+		return maxMicros;
+	}
+
+	public void setMaxMicros(long maxMicros) {
+		this.maxMicros = maxMicros;
+	}
+
+	@Override
+	public String toString() {
+		return "RedisCommandStats [command="+command+", count="+count+", errors="+errors+", timeouts="+timeouts
+				+", meanMicros="+meanMicros+", p50Micros="+p50Micros+", p99Micros="+p99Micros
+				+", p999Micros="+p999Micros+", maxMicros="+maxMicros+"]";
+	}
+}
@@ -1,18 +1,31 @@
 package com.gerryle.framework.cache.redis;
 
 import java.lang.reflect.Type;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.swing.JEditorPane;
 
 import com.alibaba.dubbo.common.utils.CollectionUtils;
+import com.gerryle.framework.cache.codec.CompressingValueCodec;
+import com.gerryle.framework.cache.codec.GsonValueCodec;
+import com.gerryle.framework.cache.codec.ValueCodec;
 import com.gerryle.framework.util.lang.DateUtil;
 import com.gerryle.framework.util.lang.StringUtil;
 import com.google.gson.Gson;
@@ -20,18 +33,95 @@ import com.google.gson.Gson;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.SafeEncoder;
 
 public class RedisDataSource {
 
-	private JedisPool pool;
+	private RedisPool pool;
+	
+	/**运行指标*/
+	private RedisMetrics metrics;
 	private Gson gson=new Gson();
 	
+	/**对象值的编解码器，默认为JSON*/
+	private ValueCodec codec;
+	
+	/**集合成员和列表元素的编解码器，固定为JSON并且不压缩，与配置的valueCodec无关，同一个对象总是编码为相同的字节*/
+	private ValueCodec memberCodec;
+	
+	/**进程内近端缓存，未开启时为null*/
+	private RedisNearCache nearCache;
+	
+	/**单key读取合并器，未开启时为null*/
+	private RedisGetCoalescer coalescer;
+	
+	/**读命令的从节点路由，未配置从节点时为null*/
+	private RedisReplicaRouter replicaRouter;
+	
+	/**多路复用连接，未开启时为null*/
+	private RedisMultiplexer multiplexer;
+	
 	/**是否已经初始化*/
 	private boolean isInit;
 	
+	/**批量hash读写时每个命令的最多字段数*/
+	private int hashBatchSize;
+	
+	/**不存在判断的布隆过滤器，未开启时为null*/
+	private RedisBloomFilter bloomFilter;
+	
+	/**延迟写入，未开启时为null*/
+	private RedisWriteBehind writeBehind;
+	
+	/**标志是否保存在值的头部，而不是单独的标志key*/
+	private boolean valueEnvelope;
+	
+	/**热点key检测，未开启时为null*/
+	private RedisHotKeyDetector hotKeyDetector;
+	
+	/**熔断器，未开启时为null*/
+	private RedisCircuitBreaker circuitBreaker;
+	
+	/**健康检查，未开启时为null*/
+	private RedisHealthMonitor healthMonitor;
+	
+	/**大值的警告字节数、字节数上限以及分块字节数，0为不检查、不限制、不分块*/
+	private int bigValueWarnBytes;
+	private int bigValueMaxBytes;
+	private int bigValueChunkBytes;
+	
+	/**号段id分配器，每个计数key一个*/
+	private final ConcurrentMap<String, RedisIdAllocator> idAllocators=new ConcurrentHashMap<String, RedisIdAllocator>();
+	
+	/**服务端是否不支持UNLINK（redis4.0以下）*/
+	private volatile boolean unlinkUnsupported;
+	
 	/**默认数据过期时间 3天*/
 	private static final int DEFAULT_EXPIRE_SECONDS=3 * 24 * 60 * 60;
 	
+	/**连接池连接的读写超时毫秒数*/
+	private static final int SOCKET_TIMEOUT_MILLIS=5000;
+	
+	/**单次UNLINK的最大key数，受lua unpack参数个数的限制*/
+	static final int MAX_KEYS_PER_UNLINK=1000;
+	
+	/**分块写入完成前分块key的过期时间，写入中途失败时遗留的分块自动删除*/
+	private static final int CHUNK_PENDING_SECONDS=60 * 60;
+	
+	/**大值警告每多少次打印一次*/
+	private static final int BIG_VALUE_LOG_INTERVAL=1000;
+	
+	/**号段id分配器的最小、最大号段大小以及期望每段使用的毫秒数*/
+	private static final int ID_SEGMENT_MIN_STEP=1000;
+	private static final int ID_SEGMENT_MAX_STEP=1000000;
+	private static final long ID_SEGMENT_TARGET_MILLIS=10000;
+	
 	private RedisDataSource(){}
 	
 	public static RedisDataSource create(RedisInitParam initParam){
@@ -55,8 +145,440 @@ public class RedisDataSource {
 		//最大连接数
 		config.setMaxTotal(initParam.getMaxTotalCount());
 		//创建连接池
-		pool=new JedisPool(config,initParam.getServer(),initParam.getPort(),5000,StringUtil.isNullOrEmpty(initParam.getPassword())?null:initParam.getPassword(),
-				initParam.getDatabase());
+		String password=StringUtil.isNullOrEmpty(initParam.getPassword())?null:initParam.getPassword();
+		pool=new RedisPool(config,initParam.getServer(),initParam.getPort(),SOCKET_TIMEOUT_MILLIS,password,initParam.getDatabase());
+		metrics=new RedisMetrics(pool);
+		if(initParam.isCircuitBreakerEnabled()){
+			circuitBreaker=new RedisCircuitBreaker(initParam.getCircuitFailureThreshold(), initParam.getCircuitOpenMillis());
+		}
+		if(initParam.getHealthCheckMillis()>0){
+			healthMonitor=new RedisHealthMonitor(initParam, circuitBreaker, initParam.getHealthCheckTimeoutMillis());
+			healthMonitor.start(initParam.getHealthCheckMillis());
+		}
+		if(initParam.isJmxEnabled()){
+			metrics.register(initParam.getServer()+":"+initParam.getPort()+"/"+initParam.getDatabase());
+		}
+		if(initParam.getReplicas()!=null&&!initParam.getReplicas().isEmpty()){
+			List<JedisPool> replicaPools=new ArrayList<JedisPool>(initParam.getReplicas().size());
+			for(String replica:initParam.getReplicas()){
+				int index=replica.lastIndexOf(':');
+				replicaPools.add(new JedisPool(config,replica.substring(0, index),Integer.parseInt(replica.substring(index+1)),SOCKET_TIMEOUT_MILLIS,
+						password,initParam.getDatabase()));
+			}
+			replicaRouter=new RedisReplicaRouter(pool, replicaPools, metrics, initParam.getReadPolicy(), initParam.isHedgeEnabled(),
+					initParam.getHedgeMinDelayMillis(), initParam.getMaxTotalCount()*(replicaPools.size()+1));
+		}
+		if(initParam.isMultiplexEnabled()){
+			multiplexer=new RedisMultiplexer(initParam, initParam.getMultiplexConnections(), initParam.getMultiplexTimeoutMillis());
+		}
+		hashBatchSize=Math.max(initParam.getHashBatchSize(), 1);
+		valueEnvelope=initParam.isValueEnvelopeEnabled();
+		bigValueWarnBytes=initParam.getBigValueWarnBytes();
+		bigValueMaxBytes=initParam.getBigValueMaxBytes();
+		bigValueChunkBytes=initParam.getBigValueChunkBytes();
+		ValueCodec valueCodec=initParam.getValueCodec()!=null?initParam.getValueCodec():new GsonValueCodec(gson);
+		//总是包装一层压缩编解码器，关闭压缩时也能读取其它节点写入的压缩值
+		codec=new CompressingValueCodec(valueCodec, initParam.getCompressThresholdBytes());
+		//阈值为0只解压不压缩，仍然可以读取之前压缩保存的成员
+		memberCodec=new CompressingValueCodec(new GsonValueCodec(gson), 0);
+		if(initParam.isNearCacheEnabled()){
+			nearCache=new RedisNearCache(initParam.getNearCacheMaxSize(),initParam.getNearCacheExpireSeconds(),
+					initParam.getNearCacheChannel());
+			nearCache.start(initParam);
+		}
+		if(initParam.getBloomFilterPrefixes()!=null&&!initParam.getBloomFilterPrefixes().isEmpty()
+				&&initParam.getBloomFilterSharedKey()==null&&!initParam.isBloomFilterSingleWriter()){
+			//本地过滤器不知道其它节点的写入，会把它们写入的key误判为不存在
+			System.out.println("redis布隆过滤器没有配置bloomFilterSharedKey，也没有声明bloomFilterSingleWriter，不开启过滤器");
+		}else if(initParam.getBloomFilterPrefixes()!=null&&!initParam.getBloomFilterPrefixes().isEmpty()){
+			//一次写入从加入过滤器到写入redis最长为等待连接、命令超时以及延迟写入的间隔
+			long graceMillis=initParam.getMaxWaitMillis()+SOCKET_TIMEOUT_MILLIS;
+			if(initParam.isWriteBehindEnabled()){
+				graceMillis+=initParam.getWriteBehindFlushMillis()+initParam.getWriteBehindBlockMillis();
+			}
+			bloomFilter=new RedisBloomFilter(this, initParam.getBloomFilterPrefixes(), initParam.getBloomFilterExpectedInsertions(),
+					initParam.getBloomFilterFpp(), initParam.getBloomFilterSharedKey(), graceMillis);
+			bloomFilter.start(initParam.getBloomFilterRebuildSeconds(), initParam.getBloomFilterSyncSeconds());
+		}
+		if(initParam.isWriteBehindEnabled()){
+			writeBehind=new RedisWriteBehind(this, initParam.getWriteBehindMaxEntries(), initParam.getWriteBehindFlushMillis(),
+					initParam.getWriteBehindBatchSize(), initParam.getWriteBehindBlockMillis());
+			writeBehind.start();
+		}
+		if(initParam.isHotKeyEnabled()){
+			hotKeyDetector=new RedisHotKeyDetector(initParam.getHotKeySampleRate(), initParam.getHotKeyTopK(),
+					initParam.getHotKeyWindowMillis(), initParam.getHotKeyThresholdQps(), initParam.isHotKeyPromoteEnabled(),
+					initParam.getHotKeyLocalTtlMillis());
+			hotKeyDetector.start();
+			metrics.setHotKeyDetector(hotKeyDetector);
+		}
+		if(initParam.isCoalesceEnabled()){
+			//等待时间包含合并线程获取连接的时间
+			coalescer=new RedisGetCoalescer(this,initParam.getCoalesceWindowMicros(),initParam.getCoalesceMaxBatch(),
+					initParam.getMaxWaitMillis()+5000);
+		}
+	}
+	
+	/**
+	 * 关闭数据源，停止近端缓存的订阅并销毁连接池
+	 * @author Gerryle 2026年10月17日 上午10:40:12
+	 */
+	public void destroy(){
+		//最先写入延迟写入缓冲中剩余的值
+		if(writeBehind!=null){
+			writeBehind.stop();
+		}
+		if(nearCache!=null){
+			nearCache.stop();
+		}
+		if(coalescer!=null){
+			coalescer.stop();
+		}
+		if(replicaRouter!=null){
+			replicaRouter.stop();
+		}
+		if(bloomFilter!=null){
+			bloomFilter.stop();
+		}
+		if(healthMonitor!=null){
+			healthMonitor.stop();
+		}
+		if(hotKeyDetector!=null){
+			hotKeyDetector.stop();
+		}
+		if(multiplexer!=null){
+			multiplexer.stop();
+		}
+		metrics.unregister();
+		pool.destroy();
+	}
+	
+	/**
+	 * 近端缓存，未开启时返回null
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午10:41:05
+	 */
+	public RedisNearCache getNearCache(){
+		return nearCache;
+	}
+	
+	/**
+	 * 创建批量操作，排队的命令在flush时通过一个连接pipeline发送
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午11:25:10
+	 */
+	public RedisBatch batch(){
+		return new RedisBatch(this);
+	}
+	
+	/**
+	 * 延迟写入，同一个key的高频覆盖写入在本地合并后批量写入
+	 * @return 未开启时返回null
+	 * @author Gerryle 2026年10月17日 下午11:59:10
+	 */
+	public RedisWriteBehind getWriteBehind(){
+		return writeBehind;
+	}
+	
+	/**
+	 * 多路复用连接，可以通过call/send发送其它不阻塞连接的命令
+	 * @return 未开启时返回null
+	 * @author Gerryle 2026年10月18日 上午2:39:10
+	 */
+	public RedisMultiplexer getMultiplexer(){
+		return multiplexer;
+	}
+	
+	/**
+	 * 热点key检测
+	 * @return 未开启时返回null
+	 * @author Gerryle 2026年10月18日 上午2:05:10
+	 */
+	public RedisHotKeyDetector getHotKeyDetector(){
+		return hotKeyDetector;
+	}
+	
+	/**
+	 * 熔断器
+	 * @return 未开启时返回null
+	 * @author Gerryle 2026年10月18日 上午12:30:10
+	 */
+	public RedisCircuitBreaker getCircuitBreaker(){
+		return circuitBreaker;
+	}
+	
+	/**
+	 * 健康检查
+	 * @return 未开启时返回null
+	 * @author Gerryle 2026年10月18日 上午12:30:40
+	 */
+	public RedisHealthMonitor getHealthMonitor(){
+		return healthMonitor;
+	}
+	
+	/**
+	 * 分桶保存的小值，读取一次服务端的hash-max-ziplist-value用于检查值的长度，应保存返回的实例复用
+	 * @param prefix 桶key的前缀
+	 * @param buckets 桶数，确定后不能修改
+	 * @return
+	 * @author Gerryle 2026年10月18日 上午1:35:10
+	 */
+	public RedisBucketedMap getBucketedMap(String prefix,int buckets){
+		return new RedisBucketedMap(this, prefix, buckets,
+				getConfigInt("hash-max-ziplist-value", RedisBucketedMap.DEFAULT_MAX_VALUE_BYTES));
+	}
+	
+	/**
+	 * 按预期的key数量和服务端的hash-max-ziplist-entries计算桶数，创建分桶保存的小值
+	 * @param prefix 桶key的前缀
+	 * @param expectedKeys 预期的逻辑key数量，桶数确定后不能修改，应按数据的最终规模估计
+	 * @return
+	 * @author Gerryle 2026年10月18日 上午1:35:50
+	 */
+	public RedisBucketedMap getBucketedMapFor(String prefix,long expectedKeys){
+		int maxEntries=getConfigInt("hash-max-ziplist-entries", RedisBucketedMap.DEFAULT_MAX_ENTRIES);
+		return getBucketedMap(prefix, RedisBucketedMap.bucketsFor(expectedKeys, maxEntries));
+	}
+	
+	/**
+	 * 读取整数类型的服务端配置
+	 * @param name
+	 * @param defaultValue CONFIG命令被禁用或者出错时返回
+	 * @return
+	 * @author Gerryle 2026年10月18日 上午1:36:30
+	 */
+	private int getConfigInt(final String name,int defaultValue){
+		List<String> config=execute("CONFIG_GET", new RedisCall<List<String>>() {
+			@Override
+			public List<String> execute(Jedis jedis) {
+				return jedis.configGet(name);
+			}
+		});
+		if(config==null||config.size()<2){
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(config.get(1));
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+	
+	/**
+	 * 获取分布式锁，代替用setnx自己实现的锁
+	 * @param name 锁的key
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午10:14:02
+	 */
+	public RedisLock getLock(String name){
+		return new RedisLock(this, name);
+	}
+	
+	/**
+	 * 运行指标
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午8:30:15
+	 */
+	public RedisMetrics getMetrics(){
+		return metrics;
+	}
+	
+	/**
+	 * 值编解码器
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午5:20:10
+	 */
+	public ValueCodec getCodec(){
+		return codec;
+	}
+	
+	/**
+	 * 写入前把key加入布隆过滤器
+	 * @param key
+	 * @author Gerryle 2026年10月17日 下午11:42:10
+	 */
+	void bloomPut(String key){
+		if(bloomFilter!=null){
+			bloomFilter.put(key);
+		}
+	}
+	
+	/**
+	 * 写入前把key和hash字段或者编码后的set成员加入布隆过滤器
+	 * @param key
+	 * @param member
+	 * @author Gerryle 2026年10月17日 下午11:42:40
+	 */
+	void bloomPut(String key,byte[] member){
+		if(bloomFilter!=null){
+			bloomFilter.put(key, member);
+		}
+	}
+	
+	/**
+	 * 直接写入或者删除key之前丢弃延迟写入缓冲中的旧值
+	 * @param key
+	 * @author Gerryle 2026年10月17日 下午11:59:40
+	 */
+	void discardPending(String key){
+		if(writeBehind!=null){
+			writeBehind.discard(key);
+		}
+	}
+	
+	/**
+	 * 本进程延迟写入缓冲中还没有写入redis的值
+	 * @param key
+	 * @return 没有时返回null
+	 * @author Gerryle 2026年10月17日 下午11:59:58
+	 */
+	private byte[] pendingBytes(String key){
+		return writeBehind==null?null:writeBehind.get(key);
+	}
+	
+	private void bloomPutValueKeys(String key,boolean needSetFlag){
+		bloomPut(key);
+		if(needSetFlag&&!valueEnvelope){
+			bloomPut(getFlagKey(key));
+		}
+	}
+	
+	/**
+	 * 对象编码为缓存中保存的字节
+	 * @param value
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午11:26:02
+	 */
+	byte[] encode(Object value){
+		byte[] data=codec.encode(value);
+		metrics.recordWrite(data.length);
+		return data;
+	}
+	
+	/**
+	 * 集合成员、列表元素编码为缓存中保存的字节，固定使用JSON并且不压缩：
+	 *   SISMEMBER、SREM、LREM以及布隆过滤器按字节比较，同一个对象必须总是编码为相同的字节，
+	 *   压缩后的字节会随阈值变化，配置的valueCodec切换后也会变化，所以都不使用
+	 * @param value
+	 * @return
+	 * @author Gerryle 2026年10月18日 下午3:12:40
+	 */
+	byte[] encodeMember(Object value){
+		byte[] data=memberCodec.encode(value);
+		metrics.recordWrite(data.length);
+		return data;
+	}
+	
+	/**
+	 * 检查写入值的大小：超过上限时拒绝写入，超过警告字节数并且没有分块时计数，第一次以及之后每1000次打印一次
+	 * @param key
+	 * @param length 值的字节数
+	 * @param chunked 是否分块保存
+	 * @author Gerryle 2026年10月18日 上午2:18:10
+	 */
+	void checkValueSize(String key,int length,boolean chunked){
+		if(bigValueMaxBytes>0&&length>bigValueMaxBytes){
+			metrics.recordBigValueRejected();
+			throw new IllegalArgumentException("值的字节数"+length+"超过上限"+bigValueMaxBytes+"，拒绝写入，key："+key);
+		}
+		if(!chunked&&bigValueWarnBytes>0&&length>bigValueWarnBytes){
+			long count=metrics.recordBigValue();
+			if(count%BIG_VALUE_LOG_INTERVAL==1){
+				System.out.println("写入大值，字节数"+length+"超过"+bigValueWarnBytes+"，会阻塞redis的事件循环，累计"+count+"次，key："+key);
+			}
+		}
+	}
+	
+	/**
+	 * 集合成员、列表元素的字节解码为对象，不存在或者为空返回null
+	 * @param data
+	 * @param typeOfT
+	 * @return
+	 * @author Gerryle 2026年10月18日 下午4:30:12
+	 */
+	<T> T decodeMember(byte[] data,Type typeOfT){
+		if(data==null||data.length==0){
+			return null;
+		}
+		metrics.recordRead(data.length);
+		return memberCodec.<T>decode(data, typeOfT);
+	}
+	
+	/**
+	 * 缓存中的字节解码为对象，不存在或者为空返回null
+	 * @param data
+	 * @param typeOfT
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午11:26:40
+	 */
+	<T> T decode(byte[] data,Type typeOfT){
+		if(data==null||data.length==0){
+			return null;
+		}
+		metrics.recordRead(data.length);
+		byte[] value=RedisValueEnvelope.unwrap(data);
+		return value.length==0?null:codec.<T>decode(value, typeOfT);
+	}
+	
+	/**
+	 * key的二进制形式
+	 * @param key
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午5:21:30
+	 */
+	static byte[] rawKey(String key){
+		return SafeEncoder.encode(key);
+	}
+	
+	/**
+	 * 写操作之后删除热点key的本地副本
+	 * @param key
+	 * @author Gerryle 2026年10月18日 上午2:06:02
+	 */
+	void invalidateHotKey(String key){
+		if(hotKeyDetector!=null){
+			hotKeyDetector.invalidate(key);
+		}
+	}
+	
+	/**
+	 * 写操作之后失效本地副本，并在同一个连接上广播失效消息给其它节点
+	 * @param jedis
+	 * @param key
+	 * @param fields hash字段，为空时失效整个key
+	 * @author Gerryle 2026年10月17日 上午10:43:37
+	 */
+	private void invalidateNearCache(Jedis jedis,String key,String... fields){
+		invalidateHotKey(key);
+		if(nearCache==null){
+			return;
+		}
+		nearCache.invalidate(key, fields);
+		jedis.publish(nearCache.getChannel(), nearCache.invalidationMessage(key, fields));
+	}
+	
+	/**
+	 * 通过多路复用连接写入之后失效本地副本，广播失效消息不等待响应
+	 * @param multiplexer
+	 * @param key
+	 * @author Gerryle 2026年10月18日 上午2:40:02
+	 */
+	private void invalidateNearCache(RedisMultiplexer multiplexer,String key){
+		invalidateHotKey(key);
+		if(nearCache==null){
+			return;
+		}
+		nearCache.invalidate(key);
+		multiplexer.send(Protocol.Command.PUBLISH, rawKey(nearCache.getChannel()), rawKey(nearCache.invalidationMessage(key)));
+	}
+	
+	/**
+	 * 读命令是否通过多路复用连接发送，配置了从节点时读命令仍然由从节点路由处理
+	 * @return
+	 * @author Gerryle 2026年10月18日 上午2:40:40
+	 */
+	private boolean multiplexReads(){
+		return multiplexer!=null&&replicaRouter==null;
 	}
 	
 	
@@ -66,57 +588,256 @@ public class RedisDataSource {
 	 * @return
 	 * @author Gerryle 2018年2月9日 下午3:13:31
 	 */
-	public boolean existskey(String key){
-		Jedis jedis=pool.getResource();
-		try {
-			return jedis.exists(key);
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
+	public boolean existskey(final String key){
+		if(bloomFilter!=null&&!bloomFilter.mightContain(key)){
 			return false;
-		}finally{
-			closeResource(jedis);
 		}
+		return existsInRedis(key);
+	}
+
+	/**
+	 * 不经过布隆过滤器判断key是否存在，用于锁等不通过写入方法加入过滤器的key
+	 * @param key
+	 * @return
+	 * @author Gerryle 2026年10月18日 上午3:05:10
+	 */
+	boolean existsInRedis(final String key){
+		if(multiplexReads()){
+			Object exists=executeMultiplexed("EXISTS", new RedisMultiplexCall<Object>() {
+				@Override
+				public Object execute(RedisMultiplexer multiplexer) {
+					return multiplexer.call(Protocol.Command.EXISTS, rawKey(key));
+				}
+			});
+			return Long.valueOf(1).equals(exists);
+		}
+		Boolean exists=readExecute("EXISTS", new RedisCall<Boolean>() {
+			@Override
+			public Boolean execute(Jedis jedis) {
+				return jedis.exists(key);
+			}
+		});
+		return exists!=null&&exists;
 	}
 
 	/**
 	 * key表达式
+	 *   使用SCAN分页获取，不再使用会阻塞redis的KEYS，但所有结果仍然会放到一个Set中，
+	 *   大量key时请使用scanKeys逐个处理
 	 * @param keyExpression
 	 * @return
 	 * @author Gerryle 2018年2月9日 下午3:18:56
 	 */
 	public Set<String> getKeys(String keyExpression){
-		Jedis jedis=pool.getResource();
 		try {
-			return jedis.keys(keyExpression);
+			Set<String> keys=new HashSet<String>();
+			Iterator<String> it=scanKeys(keyExpression, RedisScanIterator.DEFAULT_PAGE_SIZE);
+			while(it.hasNext()){
+				keys.add(it.next());
+			}
+			return keys;
 		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
 			e.printStackTrace();
 			return null;
-		}finally{
-			closeResource(jedis);
 		}
 	}
 	
 	/**
-	 * 移除指定的key
+	 * 按表达式懒加载遍历key，每页通过SCAN MATCH COUNT获取，可能返回重复的key
+	 * @param keyExpression
+	 * @param pageSize 每页的COUNT
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午1:20:35
+	 */
+	public Iterator<String> scanKeys(String keyExpression,int pageSize){
+		return new RedisScanIterator<String, String>(this,keyExpression,pageSize) {
+			@Override
+			protected ScanResult<String> scan(Jedis jedis, String cursor, ScanParams params) {
+				return jedis.scan(cursor, params);
+			}
+
+			@Override
+			protected String convert(String raw) {
+				return raw;
+			}
+		};
+	}
+	
+	/**
+	 * 按表达式懒加载遍历key的流
+	 * @param keyExpression
+	 * @param pageSize 每页的COUNT
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午1:21:50
+	 */
+	public Stream<String> streamKeys(String keyExpression,int pageSize){
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(scanKeys(keyExpression, pageSize),
+				Spliterator.NONNULL), false);
+	}
+	
+	/**
+	 * 按表达式删除key，按页SCAN，每页的key通过一个UNLINK（不支持时为DEL）命令删除
+	 * @param keyExpression
+	 * @param pageSize 每页的COUNT以及每次删除的key数
+	 * @return 删除的key数
+	 * @author Gerryle 2026年10月17日 下午1:24:18
+	 */
+	public long delKeysByPattern(String keyExpression,int pageSize){
+		int size=pageSize>0?pageSize:RedisScanIterator.DEFAULT_PAGE_SIZE;
+		Iterator<String> it=scanKeys(keyExpression, size);
+		List<String> page=new ArrayList<String>(size);
+		long deleted=0;
+		while(it.hasNext()){
+			page.add(it.next());
+			if(page.size()>=size){
+				deleted+=delKeys(page.toArray(new String[page.size()]));
+				page.clear();
+			}
+		}
+		if(!page.isEmpty()){
+			deleted+=delKeys(page.toArray(new String[page.size()]));
+		}
+		return deleted;
+	}
+	
+	/**
+	 * 一个命令删除多个key，redis4.0以上使用UNLINK在后台线程释放内存
+	 * @param keys
+	 * @return 删除的key数，出错返回0
+	 * @author Gerryle 2026年10月17日 下午1:26:40
+	 */
+	public long delKeys(final String... keys){
+		if(keys==null||keys.length==0){
+			return 0;
+		}
+		for(String key:keys){
+			discardPending(key);
+			invalidateHotKey(key);
+		}
+		Long deleted=execute("UNLINK", new RedisCall<Long>() {
+			@Override
+			public Long execute(Jedis jedis) {
+				long count=unlink(jedis, keys);
+				if(nearCache!=null){
+					Pipeline pipeline=jedis.pipelined();
+					for(String key:keys){
+						nearCache.invalidate(key);
+						pipeline.publish(nearCache.getChannel(), nearCache.invalidationMessage(key));
+					}
+					pipeline.sync();
+				}
+				return count;
+			}
+		});
+		return deleted==null?0:deleted;
+	}
+	
+	/**
+	 * 删除key，优先使用UNLINK，服务端不支持时降级为DEL并记住结果；开启分块时同时删除分块保存的值的分块
+	 * @param jedis
+	 * @param keys
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午1:28:12
+	 */
+	long unlink(Jedis jedis,String... keys){
+		if(bigValueChunkBytes<=0){
+			return unlinkKeys(jedis, keys);
+		}
+		//开启分块时先读出清单，删除key之后再删除分块
+		List<String> chunkKeys=new ArrayList<String>();
+		for(int from=0;from<keys.length;from+=MAX_KEYS_PER_UNLINK){
+			List<String> page=Arrays.asList(keys).subList(from, Math.min(from+MAX_KEYS_PER_UNLINK, keys.length));
+			List<byte[]> rawKeys=new ArrayList<byte[]>(page.size());
+			for(String key:page){
+				rawKeys.add(rawKey(key));
+			}
+			List<?> heads=(List<?>)RedisScripts.VALUE_HEADS.evalBinary(jedis, rawKeys, Collections.<byte[]>emptyList());
+			RedisChunkedValue.collectChunkKeys(page, heads, chunkKeys);
+		}
+		long deleted=unlinkKeys(jedis, keys);
+		if(!chunkKeys.isEmpty()){
+			unlinkKeys(jedis, chunkKeys.toArray(new String[chunkKeys.size()]));
+		}
+		return deleted;
+	}
+	
+	/**
+	 * 是否开启了大值分块
+	 * @return
+	 * @author Gerryle 2026年10月18日 下午3:40:12
+	 */
+	boolean isChunkEnabled(){
+		return bigValueChunkBytes>0;
+	}
+	
+	/**
+	 * 该字节数的值是否分块保存
+	 * @param length
+	 * @return
+	 * @author Gerryle 2026年10月18日 下午3:40:40
+	 */
+	boolean isChunkedWrite(int length){
+		return bigValueChunkBytes>0&&length>bigValueChunkBytes;
+	}
+	
+	/**
+	 * 服务端是否支持UNLINK，还没有确认不支持时为true
+	 * @return
+	 * @author Gerryle 2026年10月18日 下午3:41:10
+	 */
+	boolean isUnlinkSupported(){
+		return !unlinkUnsupported;
+	}
+	
+	/**
+	 * 删除key，不处理分块
+	 * @param jedis
+	 * @param keys
+	 * @return
+	 * @author Gerryle 2026年10月18日 上午2:19:02
+	 */
+	long unlinkKeys(Jedis jedis,String... keys){
+		if(keys.length>MAX_KEYS_PER_UNLINK){
+			long deleted=0;
+			for(int from=0;from<keys.length;from+=MAX_KEYS_PER_UNLINK){
+				deleted+=unlinkKeys(jedis, Arrays.copyOfRange(keys, from, Math.min(from+MAX_KEYS_PER_UNLINK, keys.length)));
+			}
+			return deleted;
+		}
+		if(!unlinkUnsupported){
+			try {
+				Object result=RedisScripts.UNLINK.eval(jedis, Arrays.asList(keys), Collections.<String>emptyList());
+				return ((Long)result).longValue();
+			} catch (JedisDataException e) {
+				if(e.getMessage()==null||!e.getMessage().contains("Unknown Redis command")){
+					throw e;
+				}
+				unlinkUnsupported=true;
+			}
+		}
+		return jedis.del(keys);
+	}
+	
+	/**
+	 * 移除指定的key，redis4.0以上使用UNLINK在后台线程释放内存
 	 * @param key
 	 * @author Gerryle 2018年2月9日 下午3:21:10
 	 */
-	public void delKey(String key){
-		Jedis jedis=pool.getResource();
-		try {
-			jedis.del(key);
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-		}finally{
-			closeResource(jedis);
-		}
+	public void delKey(final String key){
+		discardPending(key);
+		execute("UNLINK", new RedisCall<Void>() {
+			@Override
+			public Void execute(Jedis jedis) {
+				unlink(jedis, key);
+				invalidateNearCache(jedis, key);
+				return null;
+			}
+		});
 	}
 	
 	/**
 	 * 获取标识flagkey
+	 *   开启valueEnvelopeEnabled后标志保存在值的头部，不再写入该key，判断标志应使用isFlagSet
 	 * @param key
 	 * @return
 	 * @author Gerryle 2018年2月9日 下午3:22:02
@@ -126,12 +847,36 @@ public class RedisDataSource {
 	}
 	
 	/**
-	 * 移除标志key
+	 * key是否带有标志，同时支持值头部的标志和旧格式的标志key，一次往返
+	 * @param key
+	 * @return
+	 * @author Gerryle 2026年10月18日 上午1:02:10
+	 */
+	public boolean isFlagSet(final String key){
+		Long exists=readExecute("FLAG_EXISTS", new RedisCall<Long>() {
+			@Override
+			public Long execute(Jedis jedis) {
+				return (Long)RedisScripts.FLAG_EXISTS.eval(jedis, setValueKeys(key), Collections.<String>emptyList());
+			}
+		});
+		return exists!=null&&exists>0;
+	}
+	
+	/**
+	 * 移除标志，同时清除值头部的标志位和旧格式的标志key，值和过期时间不变
 	 * @param key
 	 * @author Gerryle 2018年2月9日 下午3:30:08
 	 */
-	public void delFlagKey(String key){
-		delKey(getFlagKey(key));
+	public void delFlagKey(final String key){
+		discardPending(getFlagKey(key));
+		execute("FLAG_CLEAR", new RedisCall<Void>() {
+			@Override
+			public Void execute(Jedis jedis) {
+				RedisScripts.FLAG_CLEAR.eval(jedis, setValueKeys(key), Collections.<String>emptyList());
+				invalidateNearCache(jedis, getFlagKey(key));
+				return null;
+			}
+		});
 	}
 	
 	/**
@@ -139,37 +884,72 @@ public class RedisDataSource {
 	 * @param key
 	 * @author Gerryle 2018年2月9日 下午3:29:38
 	 */
-	public void delKeyAndFlagKey(String key){
-		Jedis jedis=pool.getResource();
-		try {
-			jedis.del(getFlagKey(key));
-			jedis.del(key);
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-		} finally {
-			closeResource(jedis);
-		}
+	public void delKeyAndFlagKey(final String key){
+		discardPending(key);
+		execute("UNLINK", new RedisCall<Void>() {
+			@Override
+			public Void execute(Jedis jedis) {
+				unlink(jedis, getFlagKey(key), key);
+				invalidateNearCache(jedis, key);
+				return null;
+			}
+		});
 	}
 	
 	/**
-	 * 设置指定可以的过期时间
+	 * 设置指定可以的过期时间，开启分块时分块保存的值的所有分块一起设置
 	 * @param key
 	 * @param expireSeconds
 	 * @author Gerryle 2018年2月9日 下午3:42:10
 	 */
-	public void setKeyExpireTime(String key,int expireSeconds){
+	public void setKeyExpireTime(final String key,final int expireSeconds){
 		if(expireSeconds<=0){
 			return;
 		}
-		Jedis jedis=pool.getResource();
-		try {
-			jedis.expire(key, expireSeconds);
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-		} finally {
-			closeResource(jedis);
+		if(bigValueChunkBytes>0){
+			execute("EXPIRE_CHUNKED", new RedisCall<Object>() {
+				@Override
+				public Object execute(Jedis jedis) {
+					return expireChunked(jedis, key, expireSeconds);
+				}
+			});
+			return;
+		}
+		execute("EXPIRE", new RedisCall<Long>() {
+			@Override
+			public Long execute(Jedis jedis) {
+				return jedis.expire(key, expireSeconds);
+			}
+		});
+	}
+	
+	/**
+	 * 设置过期时间，值为分块清单时清单和分块在同一个脚本中设置，读取清单之后值被替换时按新的清单重试
+	 * @param jedis
+	 * @param key
+	 * @param expireSeconds
+	 * @return 清单key的EXPIRE结果
+	 * @author Gerryle 2026年10月18日 上午3:10:20
+	 */
+	private Object expireChunked(Jedis jedis,String key,int expireSeconds){
+		byte[] rawKey=rawKey(key);
+		List<?> heads=(List<?>)RedisScripts.VALUE_HEADS.evalBinary(jedis, Collections.singletonList(rawKey), Collections.<byte[]>emptyList());
+		byte[] head=(byte[])heads.get(0);
+		byte[] seconds=Protocol.toByteArray(expireSeconds);
+		while(true){
+			List<byte[]> keys=new ArrayList<byte[]>();
+			keys.add(rawKey);
+			RedisChunkedValue chunked=RedisChunkedValue.parse(key, head);
+			if(chunked!=null){
+				for(String chunkKey:chunked.chunkKeys()){
+					keys.add(rawKey(chunkKey));
+				}
+			}
+			Object result=RedisScripts.EXPIRE_CHUNKED.evalBinary(jedis, keys, Arrays.asList(seconds, head));
+			if(!(result instanceof byte[])){
+				return result;
+			}
+			head=(byte[])result;
 		}
 	}
 	
@@ -195,58 +975,76 @@ public class RedisDataSource {
 	 * @return
 	 * @author Gerryle 2018年2月9日 下午3:59:20
 	 */
-	public long getKeyExpireTime(String key){
-		Jedis jedis=pool.getResource();
-		try {
-			return jedis.ttl(key);
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-		} finally {
-			closeResource(jedis);
-		}
-		return -3;
+	public long getKeyExpireTime(final String key){
+		Long ttl=execute("TTL", new RedisCall<Long>() {
+			@Override
+			public Long execute(Jedis jedis) {
+				return jedis.ttl(key);
+			}
+		});
+		return ttl==null?-3:ttl;
 	}
 	
 	// ===============================key-list======================
 	
 	/**
-	 * 获取自增id
+	 * 获取自增id，每个id一次INCR往返且截断为int，大量生成id请使用nextId
 	 * @param key
 	 * @return
 	 * @author Gerryle 2018年2月9日 下午4:04:43
 	 */
-   public int getAutoIncreaseId(String key){
-	   Jedis jedis=pool.getResource();
-	   try {
-		return jedis.incr(key).intValue();
-	} catch (Exception e) {
-		pool.returnBrokenResource(jedis);
-		e.printStackTrace();
-		return -1;
-	} finally {
-		closeResource(jedis);
-	}
+   public int getAutoIncreaseId(final String key){
+	   bloomPut(key);
+	   Long id=execute("INCR", new RedisCall<Long>() {
+		   @Override
+		   public Long execute(Jedis jedis) {
+			   return jedis.incr(key);
+		   }
+	   });
+	   return id==null?-1:id.intValue();
+   }
+   
+   /**
+    * 通过号段分配器获取long类型的自增id，大部分id在本地分配，不需要访问redis
+    * @param key
+    * @return 出错返回-1
+    * @author Gerryle 2026年10月17日 下午10:44:02
+    */
+   public long nextId(String key){
+	   return getIdAllocator(key).nextId();
+   }
+   
+   /**
+    * 获取号段id分配器，同一个key返回同一个分配器
+    * @param key 计数的key
+    * @return
+    * @author Gerryle 2026年10月17日 下午10:44:40
+    */
+   public RedisIdAllocator getIdAllocator(String key){
+	   RedisIdAllocator allocator=idAllocators.get(key);
+	   if(allocator==null){
+		   RedisIdAllocator created=new RedisIdAllocator(this, key, ID_SEGMENT_MIN_STEP, ID_SEGMENT_MAX_STEP, ID_SEGMENT_TARGET_MILLIS);
+		   allocator=idAllocators.putIfAbsent(key, created);
+		   if(allocator==null){
+			   allocator=created;
+		   }
+	   }
+	   return allocator;
    }
 	
  /**  
-  * 从缓存获取字符串
+  * 从缓存获取字符串，字符串的读写不经过值编解码器
   * @param key
   * @return
   * @author Gerryle 2018年2月9日 下午4:08:09
   */
   public String getValue(String key){
-	  Jedis jedis=pool.getResource();
-	  try {
-		String s=jedis.get(key);
-		return s==null?"":s;
-	} catch (Exception e) {
-		pool.returnBrokenResource(jedis);
-		e.printStackTrace();
-		return "";
-	} finally {
-		closeResource(jedis);
-	}
+	  byte[] data=getBytes(key, false);
+	  if(data==null){
+		  return "";
+	  }
+	  metrics.recordRead(data.length);
+	  return SafeEncoder.encode(RedisValueEnvelope.unwrap(data));
   }
   
   /**
@@ -257,13 +1055,157 @@ public class RedisDataSource {
    * @author Gerryle 2018年2月9日 下午4:13:37
    */
   public <T> T  getValue(String key,Class<T> c){
-	  String s=getValue(key);
-	  if(StringUtil.isNullOrEmpty(s)){
-		  return null;
+	  return getValue(key, (Type)c);
+  }
+  
+  /**
+   * 从缓存获取泛型对象
+   * @param key
+   * @param typeOfT
+   * @return
+   * @author Gerryle 2026年10月17日 下午9:02:40
+   */
+  public <T> T getValue(String key,Type typeOfT){
+	  byte[] pending=pendingBytes(key);
+	  if(pending!=null){
+		  return decode(pending,typeOfT);
+	  }
+	  if(nearCache==null){
+		  return decode(getBytes(key, false),typeOfT);
+	  }
+	  //版本号必须在读redis之前获取，避免并发写入时回填旧值
+	  long epoch=nearCache.currentEpoch(key);
+	  T cached=nearCache.get(key, typeOfT);
+	  if(cached!=null){
+		  return cached;
+	  }
+	  //回填的值必须读主节点：从节点可能还没有复制到刚才的写入，旧值回填后不会再有失效
+	  T value=decode(getBytes(key, true),typeOfT);
+	  nearCache.put(key, typeOfT, value, epoch);
+	  return value;
+  }
+  
+  /**
+   * 从缓存获取编码后的字节
+   * @param key
+   * @param primary 是否必须读主节点，读到的值要回填本地缓存时为true
+   * @return 不存在或者出错返回null
+   * @author Gerryle 2026年10月17日 下午5:25:40
+   */
+  private byte[] getBytes(final String key,boolean primary){
+	  byte[] pending=pendingBytes(key);
+	  if(pending!=null){
+		  return pending;
+	  }
+	  if(hotKeyDetector==null||!hotKeyDetector.record(key)){
+		  return loadBytes(key, primary);
+	  }
+	  //热点key优先读本地副本
+	  byte[] local=hotKeyDetector.getLocal(key);
+	  if(local!=null){
+		  return local;
+	  }
+	  long epoch=hotKeyDetector.currentEpoch(key);
+	  byte[] data=loadBytes(key, true);
+	  hotKeyDetector.putLocal(key, data, epoch);
+	  return data;
+  }
+  
+  /**
+   * 从redis读取编码后的字节，分块保存的值读取所有分块后拼接
+   * @param key
+   * @param primary 是否必须读主节点
+   * @return 不存在或者出错返回null
+   * @author Gerryle 2026年10月18日 上午2:07:10
+   */
+  private byte[] loadBytes(String key,boolean primary){
+	  return loadChunks(key, readBytes(key, primary), primary);
+  }
+  
+  /**
+   * 读取key中保存的字节
+   * @param key
+   * @param primary 是否必须读主节点，配置了从节点时不经过从节点路由和合并器
+   * @return
+   * @author Gerryle 2026年10月18日 上午2:20:10
+   */
+  private byte[] readBytes(final String key,boolean primary){
+	  if(primary&&replicaRouter!=null){
+		  return execute("GET", new RedisCall<byte[]>() {
+			  @Override
+			  public byte[] execute(Jedis jedis) {
+				  return jedis.get(rawKey(key));
+			  }
+		  });
+	  }
+	  if(multiplexReads()){
+		  //多路复用连接本身就把并发的读取pipeline发送，不再经过合并器
+		  return executeMultiplexed("GET", new RedisMultiplexCall<byte[]>() {
+			  @Override
+			  public byte[] execute(RedisMultiplexer multiplexer) {
+				  return (byte[])multiplexer.call(Protocol.Command.GET, rawKey(key));
+			  }
+		  });
 	  }
-	  return gson.fromJson(s,c);
+	  if(coalescer!=null){
+		  try {
+			  return coalescer.get(key);
+		  } catch (IllegalStateException e) {
+			  //合并读取失败时直接读取
+		  }
+	  }
+	  return readExecute("GET", new RedisCall<byte[]>() {
+		  @Override
+		  public byte[] execute(Jedis jedis) {
+			  return jedis.get(rawKey(key));
+		  }
+	  });
+  }
+  
+  
+  /**
+   * 值为分块清单时通过pipeline读取所有分块并拼接，读取期间值被覆盖（旧分块已经删除）时重新读取一次清单
+   * @param key
+   * @param data key中保存的字节
+   * @return 不是清单时原样返回，分块不完整或者出错返回null
+   * @author Gerryle 2026年10月18日 上午2:21:02
+   */
+  byte[] loadChunks(String key,byte[] data){
+	  return loadChunks(key, data, false);
   }
   
+  private byte[] loadChunks(String key,byte[] data,boolean primary){
+	  RedisChunkedValue chunked=RedisChunkedValue.parse(key, data);
+	  for(int attempt=0;chunked!=null&&attempt<2;attempt++){
+		  final List<String> chunkKeys=chunked.chunkKeys();
+		  List<byte[]> chunks=readExecute("GET_CHUNKS", primary, new RedisCall<List<byte[]>>() {
+			  @Override
+			  public List<byte[]> execute(Jedis jedis) {
+				  Pipeline pipeline=jedis.pipelined();
+				  List<Response<byte[]>> responses=new ArrayList<Response<byte[]>>(chunkKeys.size());
+				  for(String chunkKey:chunkKeys){
+					  responses.add(pipeline.get(rawKey(chunkKey)));
+				  }
+				  pipeline.sync();
+				  List<byte[]> chunks=new ArrayList<byte[]>(responses.size());
+				  for(Response<byte[]> response:responses){
+					  chunks.add(response.get());
+				  }
+				  return chunks;
+			  }
+		  });
+		  if(chunks==null){
+			  return null;
+		  }
+		  byte[] value=chunked.join(chunks);
+		  if(value!=null){
+			  return value;
+		  }
+		  data=readBytes(key, primary);
+		  chunked=RedisChunkedValue.parse(key, data);
+	  }
+	  return chunked==null?data:null;
+  }
   
   /**
    * 从缓存获取对象，数据对象与缓存id一致，如果该id不存在，则该位置的缓存对象为null
@@ -272,24 +1214,43 @@ public class RedisDataSource {
    * @return
    * @author Gerryle 2018年2月9日 下午4:24:41
    */
-  public <T> List<T> getValues(String[] keys,Class<T> c){
-	  Jedis jedis=pool.getResource();
+  public <T> List<T> getValues(final String[] keys,Class<T> c){
+	  return getValues(keys, (Type)c);
+  }
+  
+  /**
+   * 从缓存获取泛型对象，一次MGET，结果与keys的顺序一致，不存在的位置为null
+   * @param keys
+   * @param typeOfT
+   * @return 出错返回空列表
+   * @author Gerryle 2026年10月17日 下午9:40:12
+   */
+  public <T> List<T> getValues(final String[] keys,Type typeOfT){
 	  List<T> list=new ArrayList<T>();
-	  try {
-		List<String> results=jedis.mget(keys);
-		for(String s:results){
-			if(StringUtil.isNullOrEmpty(s)&&s.equals("nil")){
-				list.add(gson.fromJson(s, c));
-			}else{
-				list.add(null);
-			}
-		}
-	} catch (Exception e) {
-		pool.returnBrokenResource(jedis);
-		e.printStackTrace();
-	} finally {
-		closeResource(jedis);
-	}
+	  List<byte[]> results;
+	  if(multiplexReads()){
+		  results=executeMultiplexed("MGET", new RedisMultiplexCall<List<byte[]>>() {
+			  @SuppressWarnings("unchecked")
+			  @Override
+			  public List<byte[]> execute(RedisMultiplexer multiplexer) {
+				  return (List<byte[]>)multiplexer.call(Protocol.Command.MGET, SafeEncoder.encodeMany(keys));
+			  }
+		  });
+	  }else{
+		  results=readExecute("MGET", new RedisCall<List<byte[]>>() {
+			  @Override
+			  public List<byte[]> execute(Jedis jedis) {
+				  return jedis.mget(SafeEncoder.encodeMany(keys));
+			  }
+		  });
+	  }
+	  if(results==null){
+		  return list;
+	  }
+	  for(int i=0;i<results.size();i++){
+		  byte[] pending=pendingBytes(keys[i]);
+		  list.add(this.<T>decode(pending!=null?pending:loadChunks(keys[i], results.get(i)), typeOfT));
+	  }
 	  return list;
   }
   
@@ -320,20 +1281,31 @@ public class RedisDataSource {
 	 * @param needSetFlag
 	 * @author Gerryle 2018年2月9日 下午6:17:11
 	 */
-	public void setValue(String key,String value,int expireSeconds,boolean needSetFlag){
-		Jedis jedis=pool.getResource();
-		try {
-		  onSetValue(jedis,key,value,expireSeconds,needSetFlag);
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-		} finally {
-			closeResource(jedis);
+	public void setValue(final String key,final String value,final int expireSeconds,final boolean needSetFlag){
+		metrics.recordWrite(value==null?0:value.length());
+		//UTF-8每个字符最多3个字节，超过分块字节数的1/3时才可能需要分块
+		if(value!=null&&(multiplexer!=null||(needSetFlag&&valueEnvelope)
+				||(bigValueChunkBytes>0&&value.length()>bigValueChunkBytes/3))){
+			//多路复用、标志保存在值的头部或者可能需要分块，走二进制写入
+			setBytes(key, rawKey(value), expireSeconds, needSetFlag);
+			return;
 		}
+		checkValueSize(key, value==null?0:value.length(), false);
+		bloomPutValueKeys(key, needSetFlag);
+		discardPending(key);
+		execute("SET_VALUE", new RedisCall<Void>() {
+			@Override
+			public Void execute(Jedis jedis) {
+				onSetValue(jedis,key,value,expireSeconds,needSetFlag);
+				invalidateNearCache(jedis, key);
+				return null;
+			}
+		});
 	}
 
 	/**
-	 * 设置过期时间
+	 * 设置值以及过期时间，通过lua脚本一次往返原子完成
+	 *   不设置过期时间则保留原有的剩余过期时间，因为set后原有的key过期时间将被清空
 	 * @param jedis
 	 * @param key
 	 * @param value
@@ -342,27 +1314,81 @@ public class RedisDataSource {
 	 * @author Gerryle 2018年2月9日 下午6:17:35
 	 */
 	private void onSetValue(Jedis jedis, String key, String value, int expireSeconds, boolean needSetFlag) {
-		String flagKey=getFlagKey(key);
-		jedis.set(key, value);
-		if(needSetFlag){
-			jedis.set(flagKey, gson.toJson(true));
-		}
-		if(expireSeconds>0){
-			if(needSetFlag){
-				jedis.expire(flagKey,expireSeconds);
-			}
-			jedis.expire(key, expireSeconds);
-		}else{//不设置过期时间则需要设置原有的过期时间，获取key的过期时间，因为set后原有的key过期时间将被清空
-			long expireTime=jedis.pttl(key);//获取剩余过期时间的毫秒数
-			if(expireTime>0){
-				int time=(int)Math.ceil((float)expireTime)/1000;
-				if(needSetFlag){
-					jedis.expire(flagKey,time);
-				}
-				jedis.expire(key, time);
-			}
+		List<String> args=setValueArgs(value, expireSeconds, needSetFlag);
+		if(bigValueChunkBytes<=0){
+			RedisScripts.SET_VALUE.eval(jedis, setValueKeys(key), args);
+			return;
+		}
+		//返回旧值的头部，旧值分块保存时删除旧的分块
+		args=new ArrayList<String>(args);
+		args.add("");
+		args.add("1");
+		dropChunks(jedis, key, RedisScripts.SET_VALUE.eval(jedis, setValueKeys(key), args));
+	}
+	
+	/**
+	 * 旧值为分块清单时删除旧的分块
+	 * @param jedis
+	 * @param key
+	 * @param head SET_VALUE、SET_CHUNKED脚本返回的旧值头部
+	 * @author Gerryle 2026年10月18日 上午2:22:10
+	 */
+	void dropChunks(Jedis jedis,String key,Object head){
+		byte[] data=head instanceof byte[]?(byte[])head:head instanceof String?rawKey((String)head):null;
+		RedisChunkedValue chunked=RedisChunkedValue.parse(key, data);
+		if(chunked!=null){
+			List<String> chunkKeys=chunked.chunkKeys();
+			unlinkKeys(jedis, chunkKeys.toArray(new String[chunkKeys.size()]));
+		}
+	}
+	
+	/**
+	 * SET_VALUE脚本的KEYS参数
+	 * @param key
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午11:55:20
+	 */
+	List<String> setValueKeys(String key){
+		return Arrays.asList(key, getFlagKey(key));
+	}
+	
+	/**
+	 * SET_VALUE脚本的ARGV参数
+	 * @param value
+	 * @param expireSeconds
+	 * @param needSetFlag
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午11:56:02
+	 */
+	List<String> setValueArgs(String value,int expireSeconds,boolean needSetFlag){
+		return Arrays.asList(value, String.valueOf(expireSeconds), needSetFlag?gson.toJson(true):"");
+	}
+	
+	/**
+	 * 二进制SET_VALUE脚本的KEYS参数
+	 * @param key
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午5:31:02
+	 */
+	List<byte[]> setValueRawKeys(String key){
+		return Arrays.asList(rawKey(key), rawKey(getFlagKey(key)));
+	}
+	
+	/**
+	 * 二进制SET_VALUE脚本的ARGV参数，标志值使用编解码器编码
+	 * @param value
+	 * @param expireSeconds
+	 * @param needSetFlag
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午5:31:40
+	 */
+	List<byte[]> setValueRawArgs(byte[] value,int expireSeconds,boolean needSetFlag){
+		if(needSetFlag&&valueEnvelope){
+			//标志保存在值的头部，同时删除旧格式的标志key
+			return Arrays.asList(RedisValueEnvelope.wrap(value, RedisValueEnvelope.FLAG), rawKey(String.valueOf(expireSeconds)),
+					new byte[0], rawKey("1"));
 		}
-		
+		return Arrays.asList(value, rawKey(String.valueOf(expireSeconds)), needSetFlag?encode(Boolean.TRUE):new byte[0]);
 	}
 	
 	/**
@@ -397,7 +1423,7 @@ public class RedisDataSource {
 	 */
 	public <T> void setValue(String key, T value, int expireSeconds) {
         if(value!=null){
-        	setValue(key,gson.toJson(value),expireSeconds);
+        	setBytes(key,encode(value),expireSeconds,false);
         }    
 	}
 	
@@ -411,8 +1437,117 @@ public class RedisDataSource {
 	 */
 	public <T> void setValue(String key,T value,int expireSeconds,boolean needSetFlag){
 		if(value!=null){
-			setValue(key,gson.toJson(value),expireSeconds,needSetFlag);
+			setBytes(key,encode(value),expireSeconds,needSetFlag);
+		}
+	}
+	
+	/**
+	 * 保存编码后的对象，与字符串的setValue语义一致
+	 * @param key
+	 * @param value
+	 * @param expireSeconds
+	 * @param needSetFlag
+	 * @author Gerryle 2026年10月17日 下午5:30:12
+	 */
+	void setBytes(final String key,final byte[] value,final int expireSeconds,final boolean needSetFlag){
+		if(isChunkedWrite(value.length)){
+			setChunked(key, value, expireSeconds, needSetFlag);
+			return;
 		}
+		checkValueSize(key, value.length, false);
+		bloomPutValueKeys(key, needSetFlag);
+		discardPending(key);
+		if(multiplexer!=null&&bigValueChunkBytes<=0){
+			//开启分块时需要删除旧值的分块，仍然使用连接池
+			executeMultiplexed("SET_VALUE", new RedisMultiplexCall<Void>() {
+				@Override
+				public Void execute(RedisMultiplexer multiplexer) {
+					RedisScripts.SET_VALUE.evalBinary(multiplexer, setValueRawKeys(key), setValueRawArgs(value, expireSeconds, needSetFlag));
+					invalidateNearCache(multiplexer, key);
+					return null;
+				}
+			});
+			return;
+		}
+		execute("SET_VALUE", new RedisCall<Void>() {
+			@Override
+			public Void execute(Jedis jedis) {
+				List<byte[]> args=setValueRawArgs(value, expireSeconds, needSetFlag);
+				if(bigValueChunkBytes<=0){
+					RedisScripts.SET_VALUE.evalBinary(jedis, setValueRawKeys(key), args);
+				}else{
+					dropChunks(jedis, key, RedisScripts.SET_VALUE.evalBinary(jedis, setValueRawKeys(key), withOldHead(args)));
+				}
+				invalidateNearCache(jedis, key);
+				return null;
+			}
+		});
+	}
+	
+	/**
+	 * 分块保存大值：先通过pipeline写入所有分块（带有临时的过期时间），再用脚本替换清单并统一分块的过期时间，最后删除旧值的分块
+	 * @param key
+	 * @param value
+	 * @param expireSeconds
+	 * @param needSetFlag
+	 * @author Gerryle 2026年10月18日 上午2:23:30
+	 */
+	private void setChunked(final String key,final byte[] value,final int expireSeconds,final boolean needSetFlag){
+		checkValueSize(key, value.length, true);
+		bloomPutValueKeys(key, needSetFlag);
+		discardPending(key);
+		Boolean ok=execute("SET_CHUNKED", new RedisCall<Boolean>() {
+			@Override
+			public Boolean execute(Jedis jedis) {
+				RedisPipeline pipeline=RedisPipeline.pipelined(jedis);
+				Response<Object> head=queueChunked(pipeline, key, value, expireSeconds, needSetFlag);
+				pipeline.sync();
+				dropChunks(jedis, key, head.get());
+				invalidateNearCache(jedis, key);
+				return true;
+			}
+		});
+		if(ok!=null){
+			metrics.recordChunkedWrite();
+		}
+	}
+	
+	/**
+	 * 在pipeline中排队分块写入：先写入所有分块（带有临时的过期时间），再用脚本替换清单并统一分块的过期时间，
+	 *   同一个连接上按顺序执行，脚本执行时分块都已经写入；sync之后需要用返回的旧值头部调用dropChunks
+	 * @param pipeline
+	 * @param key
+	 * @param value
+	 * @param expireSeconds
+	 * @param needSetFlag
+	 * @return SET_CHUNKED脚本的结果（旧值的头部）
+	 * @author Gerryle 2026年10月18日 下午3:44:20
+	 */
+	Response<Object> queueChunked(RedisPipeline pipeline,String key,byte[] value,int expireSeconds,boolean needSetFlag){
+		RedisChunkedValue chunked=RedisChunkedValue.create(key, value.length, bigValueChunkBytes);
+		int pendingSeconds=expireSeconds>0?expireSeconds:CHUNK_PENDING_SECONDS;
+		List<byte[]> keys=new ArrayList<byte[]>(setValueRawKeys(key));
+		for(int i=0;i<chunked.getCount();i++){
+			byte[] chunkKey=rawKey(chunked.chunkKey(i));
+			pipeline.setex(chunkKey, pendingSeconds, RedisChunkedValue.chunk(value, i, bigValueChunkBytes));
+			keys.add(chunkKey);
+		}
+		return RedisScripts.SET_CHUNKED.evalBinary(pipeline, keys, setValueRawArgs(chunked.manifest(), expireSeconds, needSetFlag));
+	}
+	
+	/**
+	 * 在SET_VALUE脚本的参数后追加返回旧值头部的参数，用于之后删除旧值的分块
+	 * @param args setValueRawArgs的结果
+	 * @return
+	 * @author Gerryle 2026年10月18日 下午3:45:02
+	 */
+	List<byte[]> withOldHead(List<byte[]> args){
+		List<byte[]> result=new ArrayList<byte[]>(args);
+		if(result.size()<4){
+			result.add(new byte[0]);
+		}
+		result.add(rawKey("1"));
+		return result;
 	}
  	
 	/**
@@ -424,7 +1559,9 @@ public class RedisDataSource {
 	 */
 	public <T> void setValue(String key,T value,String expireTime){
 		if(value!=null){
-			setValue(key,gson.toJson(value),expireTime);
+			long toTime=DateUtil.getTime(expireTime, DateUtil.pattern1);
+			int expireSeconds=(int)(toTime-System.currentTimeMillis())/1000;
+			setBytes(key,encode(value),expireSeconds,false);
 		}
 	}
 	
@@ -435,8 +1572,22 @@ public class RedisDataSource {
 	 * @return
 	 * @author Gerryle 2018年2月11日 上午11:44:02
 	 */
-	public <T> boolean setnx(String key,T value){
-		return setnx(key,gson.toJson(value));
+	public <T> boolean setnx(final String key,T value){
+		final byte[] data=encode(value);
+		bloomPut(key);
+		Boolean setnxOK=execute("SETNX", new RedisCall<Boolean>() {
+			@Override
+			public Boolean execute(Jedis jedis) {
+				Object result=RedisScripts.SETNX.evalBinary(jedis, Collections.singletonList(rawKey(key)),
+						Arrays.asList(data, rawKey("0")));
+				boolean ok=Long.valueOf(1).equals(result);
+				if(ok){
+					invalidateNearCache(jedis, key);
+				}
+				return ok;
+			}
+		});
+		return setnxOK!=null&&setnxOK;
 	}
 	
 	/**
@@ -452,34 +1603,29 @@ public class RedisDataSource {
 	
 	/**
 	 * 保存字符串（key不存在返回true，key存在返回false）
+	 *   SETNX和EXPIRE在lua脚本中原子完成，不会留下没有过期时间的key
 	 * @param key
 	 * @param value
 	 * @param expireSeconds
 	 * @return
 	 * @author Gerryle 2018年2月11日 下午2:23:09
 	 */
-	public boolean setnx(String key,String value,int expireSeconds){
-		Jedis jedis=pool.getResource();
-		try {
-			boolean setnxOK=jedis.setnx(key, value)==1;
-			if(expireSeconds>0){
-				if(setnxOK){
-					jedis.expire(key, expireSeconds);
-				}else if(!setnxOK && jedis.pttl(key)<0){
-					jedis.expire(key,expireSeconds);
+	public boolean setnx(final String key,final String value,final int expireSeconds){
+		metrics.recordWrite(value==null?0:value.length());
+		bloomPut(key);
+		Boolean setnxOK=execute("SETNX", new RedisCall<Boolean>() {
+			@Override
+			public Boolean execute(Jedis jedis) {
+				Object result=RedisScripts.SETNX.eval(jedis, Collections.singletonList(key),
+						Arrays.asList(value, String.valueOf(expireSeconds)));
+				boolean ok=Long.valueOf(1).equals(result);
+				if(ok){
+					invalidateNearCache(jedis, key);
 				}
+				return ok;
 			}
-			if(setnxOK){
-				return true;
-			}
-			return false;
-		}  catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-		} finally {
-			closeResource(jedis);
-		}
-		return false;
+		});
+		return setnxOK!=null&&setnxOK;
 	}
 	
 	// ===============================key-list======================
@@ -490,23 +1636,21 @@ public class RedisDataSource {
 	 * @param list
 	 * @author Gerryle 2018年2月11日 下午2:53:07
 	 */
-	public <T> void addList(String key,List<T> list){
+	public <T> void addList(final String key,List<T> list){
 		if(list==null||list.size()==0){
 			return;
 		}
-		Jedis jedis=pool.getResource();
-		try {
-			String[] ss=new String[list.size()];
-			for(int i=0;i<list.size();i++){
-				ss[i]=gson.toJson(list.get(i));
-			}
-			jedis.rpush(key, ss);
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-		} finally {
-			closeResource(jedis);
+		final byte[][] ss=new byte[list.size()][];
+		for(int i=0;i<list.size();i++){
+			ss[i]=encodeMember(list.get(i));
 		}
+		bloomPut(key);
+		execute("RPUSH", new RedisCall<Long>() {
+			@Override
+			public Long execute(Jedis jedis) {
+				return jedis.rpush(rawKey(key), ss);
+			}
+		});
 	}
 	
 	/**
@@ -515,18 +1659,15 @@ public class RedisDataSource {
 	 * @param value
 	 * @author Gerryle 2018年2月11日 下午3:04:49
 	 */
-	public <T> void addList(String key,T value){
-		Jedis jedis=pool.getResource();
-		try {
-			String[] ss=new String[1];
-			ss[0]=gson.toJson(value);
-			jedis.rpush(key, ss);
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-		} finally {
-			closeResource(jedis);
-		}
+	public <T> void addList(final String key,T value){
+		final byte[] data=encodeMember(value);
+		bloomPut(key);
+		execute("RPUSH", new RedisCall<Long>() {
+			@Override
+			public Long execute(Jedis jedis) {
+				return jedis.rpush(rawKey(key), data);
+			}
+		});
 	}
 	
 	/**
@@ -535,24 +1676,22 @@ public class RedisDataSource {
 	 * @param list
 	 * @author Gerryle 2018年2月11日 下午3:11:59
 	 */
-	public <T> void addListToHead(String key,List<T> list){
+	public <T> void addListToHead(final String key,List<T> list){
 		if(list==null||list.isEmpty()){
 			System.out.println("list is null");
 			return;
 		}
-		Jedis jedis=pool.getResource();
-		try {
-			String[] ss=new String[list.size()];
-			for(int i=0;i<list.size();i++){
-				ss[i]=gson.toJson(list.get(i));
-			}
-			jedis.lpush(key, ss);
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-		} finally {
-			closeResource(jedis);
+		final byte[][] ss=new byte[list.size()][];
+		for(int i=0;i<list.size();i++){
+			ss[i]=encodeMember(list.get(i));
 		}
+		bloomPut(key);
+		execute("LPUSH", new RedisCall<Long>() {
+			@Override
+			public Long execute(Jedis jedis) {
+				return jedis.lpush(rawKey(key), ss);
+			}
+		});
 	}
 	
 	/**
@@ -561,18 +1700,15 @@ public class RedisDataSource {
 	 * @param value
 	 * @author Gerryle 2018年2月11日 下午3:14:34
 	 */
-	public <T> void addListToHead(String key,T value){
-		Jedis jedis=pool.getResource();
-		try {
-			String[] ss=new String[1];
-			ss[0]=gson.toJson(value);
-			jedis.lpush(key, gson.toJson(value));
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-		} finally {
-			closeResource(jedis);
-		}
+	public <T> void addListToHead(final String key,T value){
+		final byte[] data=encodeMember(value);
+		bloomPut(key);
+		execute("LPUSH", new RedisCall<Long>() {
+			@Override
+			public Long execute(Jedis jedis) {
+				return jedis.lpush(rawKey(key), data);
+			}
+		});
 	}
 	
 	/**
@@ -582,16 +1718,14 @@ public class RedisDataSource {
 	 * @param value
 	 * @author Gerryle 2018年2月11日 下午3:16:31
 	 */
-	public <T> void setListElement(String key,int index,T value){
-		Jedis jedis=pool.getResource();
-		try {
-			jedis.lset(key, index, gson.toJson(value));
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-		} finally {
-			closeResource(jedis);
-		}
+	public <T> void setListElement(final String key,final int index,T value){
+		final byte[] data=encodeMember(value);
+		execute("LSET", new RedisCall<String>() {
+			@Override
+			public String execute(Jedis jedis) {
+				return jedis.lset(rawKey(key), index, data);
+			}
+		});
 	}
 	
 	/**
@@ -602,17 +1736,13 @@ public class RedisDataSource {
 	 * @return
 	 * @author Gerryle 2018年2月11日 下午3:18:32
 	 */
-	public List<String> getListRange(String key,int start,int end){
-		Jedis jedis=pool.getResource();
-		try {
-			return jedis.lrange(key, start, end);
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-			return null;
-		} finally {
-			closeResource(jedis);
-		}
+	public List<String> getListRange(final String key,final int start,final int end){
+		return readExecute("LRANGE", new RedisCall<List<String>>() {
+			@Override
+			public List<String> execute(Jedis jedis) {
+				return jedis.lrange(key, start, end);
+			}
+		});
 	}
 	
 	/**
@@ -624,11 +1754,19 @@ public class RedisDataSource {
 	 * @return
 	 * @author Gerryle 2018年2月11日 下午3:23:34
 	 */
-	public <T> List<T> getListRange(String key,int start,int end,Class<T> c){
-		List<String> slist=getListRange(key,start,end);
+	public <T> List<T> getListRange(final String key,final int start,final int end,Class<T> c){
+		List<byte[]> slist=readExecute("LRANGE", new RedisCall<List<byte[]>>() {
+			@Override
+			public List<byte[]> execute(Jedis jedis) {
+				return jedis.lrange(rawKey(key), start, end);
+			}
+		});
 		List<T> list=new ArrayList<T>();
-		for(String s:slist){
-			list.add(gson.fromJson(s, c));
+		if(slist==null){
+			return list;
+		}
+		for(byte[] s:slist){
+			list.add(this.<T>decodeMember(s, c));
 		}
 		return list;
 	}
@@ -659,6 +1797,18 @@ public class RedisDataSource {
 		return getListRange(key,0,-1,c);
 	}
 	
+	/**
+	 * 懒加载遍历list，按块LRANGE获取，元素在迭代时才解码
+	 * @param key
+	 * @param c
+	 * @param pageSize 每块的元素数
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午2:30:15
+	 */
+	public <T> Iterator<T> iterateList(String key,Class<T> c,int pageSize){
+		return new RedisListIterator<T>(this, key, c, pageSize);
+	}
+	
 	/**
 	 * 获取列表第一个元素
 	 * @param key
@@ -666,17 +1816,13 @@ public class RedisDataSource {
 	 * @return
 	 * @author Gerryle 2018年2月11日 下午3:33:17
 	 */
-	public <T> T getListFirstElement(String key,Class<T> c){
-		Jedis jedis=pool.getResource();
-		try {
-			return gson.fromJson(jedis.lindex(key,0),c);
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-			return null;
-		}finally{
-			closeResource(jedis);
-		}
+	public <T> T getListFirstElement(final String key,Class<T> c){
+		return decodeMember(readExecute("LINDEX", new RedisCall<byte[]>() {
+			@Override
+			public byte[] execute(Jedis jedis) {
+				return jedis.lindex(rawKey(key),0);
+			}
+		}),c);
 	}
 	
 	/**
@@ -684,19 +1830,15 @@ public class RedisDataSource {
 	 * @param key
 	 * @param c
 	 * @return
-	 * @author Gerryle 2018年2月11日 下午3:38:07
-	 */
-	public <T> T getListPop(String key,Class<T> c){
-		Jedis jedis=pool.getResource();
-		try {
-			return gson.fromJson(jedis.lpop(key), c);
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-			return null;
-		}finally{
-			closeResource(jedis);
-		}
+	 * @author Gerryle 2018年2月11日 下午3:38:07
+	 */
+	public <T> T getListPop(final String key,Class<T> c){
+		return decodeMember(execute("LPOP", new RedisCall<byte[]>() {
+			@Override
+			public byte[] execute(Jedis jedis) {
+				return jedis.lpop(rawKey(key));
+			}
+		}), c);
 	}
 	
 	/**
@@ -705,17 +1847,13 @@ public class RedisDataSource {
 	 * @return
 	 * @author Gerryle 2018年2月11日 下午3:40:38
 	 */
-	public <T> String getListPop(String key){
-		Jedis jedis=pool.getResource();
-		try {
-			return jedis.lpop(key);
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-			return null;
-		}finally{
-			closeResource(jedis);
-		}
+	public <T> String getListPop(final String key){
+		return execute("LPOP", new RedisCall<String>() {
+			@Override
+			public String execute(Jedis jedis) {
+				return jedis.lpop(key);
+			}
+		});
 	}
 	
 	/**
@@ -725,17 +1863,13 @@ public class RedisDataSource {
 	 * @return
 	 * @author Gerryle 2018年2月11日 下午3:45:01
 	 */
-	public <T> T getListLastElement(String key,Class<T> c){
-		Jedis jedis=pool.getResource();
-		try {
-			return gson.fromJson(jedis.lindex(key,-1), c);
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-			return null;
-		}finally{
-			closeResource(jedis);
-		}
+	public <T> T getListLastElement(final String key,Class<T> c){
+		return decodeMember(readExecute("LINDEX", new RedisCall<byte[]>() {
+			@Override
+			public byte[] execute(Jedis jedis) {
+				return jedis.lindex(rawKey(key),-1);
+			}
+		}),c);
 	}
 	
 	/**
@@ -744,40 +1878,46 @@ public class RedisDataSource {
 	 * @return
 	 * @author Gerryle 2018年2月11日 下午3:47:15
 	 */
-	public int getListSize(String key){
-		Jedis jedis=pool.getResource();
-		try {
-			return jedis.llen(key).intValue();
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-			return 0;
-		}finally{
-			closeResource(jedis);
-		}
+	public int getListSize(final String key){
+		Long size=readExecute("LLEN", new RedisCall<Long>() {
+			@Override
+			public Long execute(Jedis jedis) {
+				return jedis.llen(key);
+			}
+		});
+		return size==null?0:size.intValue();
 	}
 	
 	/**
-	 * 删除list的指定对象
+	 * 删除list的指定对象，多个对象的LREM通过pipeline一次发送
 	 * @param key
 	 * @param values
 	 * @return
 	 * @author Gerryle 2018年2月11日 下午4:04:01
 	 */
-	public <T> long removeValueFromList(String key,T... values){
-		long removed=0;
-		Jedis jedis=pool.getResource();
-		try {
-			for(T v:values){
-				removed+=jedis.lrem(key, 0, gson.toJson(v));
-			}
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-		} finally {
-			closeResource(jedis);
+	@SuppressWarnings("unchecked")
+	public <T> long removeValueFromList(final String key,final T... values){
+		if(values==null||values.length==0){
+			return 0;
 		}
-		return removed;
+		Long removed=execute("LREM", new RedisCall<Long>() {
+			@Override
+			public Long execute(Jedis jedis) {
+				Pipeline pipeline=jedis.pipelined();
+				List<Response<Long>> responses=new ArrayList<Response<Long>>(values.length);
+				byte[] rawKey=rawKey(key);
+				for(T v:values){
+					responses.add(pipeline.lrem(rawKey, 0, encodeMember(v)));
+				}
+				pipeline.sync();
+				long count=0;
+				for(Response<Long> response:responses){
+					count+=response.get();
+				}
+				return count;
+			}
+		});
+		return removed==null?0:removed;
 	}
 	
 	public void removeList(String key){
@@ -790,16 +1930,18 @@ public class RedisDataSource {
 		if(StringUtil.isNullOrBlank(key)||values==null||values.length<=0){
 			return -1;
 		}
-		return execute(new RedisCall<Integer>() {
+		final byte[][] val=new byte[values.length][];
+		for(int i=0;i<values.length;i++){
+			val[i]=encodeMember(values[i]);
+			bloomPut(key, val[i]);
+		}
+		Integer added=execute("SADD", new RedisCall<Integer>() {
 			@Override
 			public Integer execute(Jedis jedis) {
-				String[] val=new String[values.length];
-				for(int i=0;i<values.length;i++){
-					val[i]=gson.toJson(values[i]);
-				}
-				return jedis.sadd(key, val).intValue();
+				return jedis.sadd(rawKey(key), val).intValue();
 			}
 		});
+		return added==null?0:added;
 	}
 	
 	/**
@@ -809,7 +1951,7 @@ public class RedisDataSource {
 	 * @author Gerryle 2018年2月11日 下午4:31:32
 	 */
 	public Integer sSize(final String key){
-		return execute(new RedisCall<Integer>(){
+		return readExecute("SCARD", new RedisCall<Integer>(){
 			@Override
 			public Integer execute(Jedis jedis){
 				return jedis.scard(key).intValue();
@@ -826,21 +1968,68 @@ public class RedisDataSource {
 	 * @author Gerryle 2018年2月11日 下午5:12:23
 	 */
 	public <T> Set<T> sSet(final String key,Class<T> c){
-		Set<String> set=execute(new RedisCall<Set<String>>() {
+		Set<byte[]> set=readExecute("SMEMBERS", new RedisCall<Set<byte[]>>() {
 			@Override
-			public Set<String> execute(Jedis jedis) {
-				return jedis.smembers(key);
+			public Set<byte[]> execute(Jedis jedis) {
+				return jedis.smembers(rawKey(key));
 			}});
 		if(CollectionUtils.isEmpty(set)){
 			return Collections.emptySet();
 		}
 		Set<T> resultSet=new HashSet<T>();
-		for(String s:set){
-			resultSet.add(gson.fromJson(s, c));
+		for(byte[] s:set){
+			resultSet.add(this.<T>decodeMember(s, c));
 		}
 		return resultSet;
 	}
 	
+	/**
+	 * set元素的懒解码视图，一次SMEMBERS获取原始数据，迭代时才解码，contains不需要解码
+	 * @param key
+	 * @param c
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午2:32:40
+	 */
+	public <T> Set<T> sSetView(final String key,Class<T> c){
+		Set<byte[]> set=readExecute("SMEMBERS", new RedisCall<Set<byte[]>>() {
+			@Override
+			public Set<byte[]> execute(Jedis jedis) {
+				return jedis.smembers(rawKey(key));
+			}});
+		if(CollectionUtils.isEmpty(set)){
+			return Collections.emptySet();
+		}
+		return new RedisLazySet<T>(this, set, c);
+	}
+	
+	/**
+	 * 懒加载遍历set，每页通过SSCAN获取，元素在迭代时才解码，可能返回重复元素
+	 * @param key
+	 * @param c
+	 * @param pageSize 每页的COUNT
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午2:34:05
+	 */
+	public <T> Iterator<T> scanSet(final String key,final Class<T> c,int pageSize){
+		final byte[] rawKey=rawKey(key);
+		return new RedisScanIterator<byte[], T>(this,null,pageSize) {
+			@Override
+			protected ScanResult<byte[]> scan(Jedis jedis, String cursor, ScanParams params) {
+				return RedisBinaryScans.sscan(jedis, rawKey, cursor, params);
+			}
+
+			@Override
+			protected String command() {
+				return "SSCAN";
+			}
+
+			@Override
+			protected T convert(byte[] raw) {
+				return decodeMember(raw, c);
+			}
+		};
+	}
+	
 	/**
 	 * 删除set中的元素
 	 * @param key
@@ -853,17 +2042,18 @@ public class RedisDataSource {
 		if(StringUtil.isNullOrBlank(key)||members==null||members.length<=0){
 			return -1;
 		}
-		final String[] val=new String[members.length];
+		final byte[][] val=new byte[members.length][];
 		for(int i=0;i<members.length;i++){
-			val[i]=gson.toJson(members[i]);
+			val[i]=encodeMember(members[i]);
 		}
-		return execute(new RedisCall<Integer>() {
+		Integer removed=execute("SREM", new RedisCall<Integer>() {
 			@Override
 			public Integer execute(Jedis jedis) {
-				return jedis.srem(key, val).intValue();
+				return jedis.srem(rawKey(key), val).intValue();
 			}
 			
 		});
+		return removed==null?0:removed;
 	}
 	
 	/**
@@ -877,39 +2067,72 @@ public class RedisDataSource {
 		if(StringUtil.isNullOrBlank(key)){
 			return false;
 		}
-		return execute(new RedisCall<Boolean>() {
+		final byte[] data=encodeMember(member);
+		if(bloomFilter!=null&&!bloomFilter.mightContain(key, data)){
+			return false;
+		}
+		Boolean exists=readExecute("SISMEMBER", new RedisCall<Boolean>() {
 
 			@Override
 			public Boolean execute(Jedis jedis) {
-				return jedis.sismember(key, gson.toJson(member));
+				return jedis.sismember(rawKey(key), data);
 			}
 		});
+		return exists!=null&&exists;
 	}
 	
 	//=================================map start=====================================
 	/**
-	 * 保存map
+	 * 保存map，每个字段的HSET通过pipeline一次发送
 	 * @param hashKey
 	 * @param map
 	 * @author Gerryle 2018年2月11日 下午5:25:24
 	 */
 	public <T> void addToHashMap(String hashKey,Map<String, T> map){
+		addToHashMap(hashKey, map, 0);
+	}
+	
+	/**
+	 * 批量添加map，整个map先编码，再按hashBatchSize分成多个HMSET，和EXPIRE一起在一次pipeline往返中发送
+	 * @param hashKey
+	 * @param map
+	 * @param expireSeconds 大于0时设置hashKey的过期时间，否则保留原有的过期时间
+	 * @author Gerryle 2026年10月17日 下午10:58:20
+	 */
+	public <T> void addToHashMap(final String hashKey,final Map<String, T> map,final int expireSeconds){
 		if(map==null||map.isEmpty()){
 		    System.out.println("map is null");
 		    return;
 		}
-		Jedis jedis=pool.getResource();
-		try {
-			for(String key:map.keySet()){
-				String value=gson.toJson(map.get(key));
-				jedis.hset(hashKey, key, value);
+		final List<Map<byte[], byte[]>> chunks=new ArrayList<Map<byte[], byte[]>>(map.size()/hashBatchSize+1);
+		Map<byte[], byte[]> chunk=null;
+		for(Map.Entry<String, T> entry:map.entrySet()){
+			if(chunk==null||chunk.size()>=hashBatchSize){
+				chunk=new HashMap<byte[], byte[]>(Math.min(map.size(), hashBatchSize)*2);
+				chunks.add(chunk);
 			}
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-		} finally {
-			closeResource(jedis);
+			byte[] field=rawKey(entry.getKey());
+			byte[] data=encode(entry.getValue());
+			checkValueSize(hashKey, data.length, false);
+			chunk.put(field, data);
+			bloomPut(hashKey, field);
 		}
+		execute("HMSET", new RedisCall<Void>() {
+			@Override
+			public Void execute(Jedis jedis) {
+				Pipeline pipeline=jedis.pipelined();
+				byte[] rawHashKey=rawKey(hashKey);
+				for(Map<byte[], byte[]> chunk:chunks){
+					pipeline.hmset(rawHashKey, chunk);
+				}
+				if(expireSeconds>0){
+					pipeline.expire(rawHashKey, expireSeconds);
+				}
+				pipeline.sync();
+				invalidateNearCache(jedis, hashKey, map.keySet().toArray(new String[map.size()]));
+				return null;
+			}
+		});
 	}
 	
 	/**
@@ -919,16 +2142,18 @@ public class RedisDataSource {
 	 * @param value
 	 * @author Gerryle 2018年2月11日 下午5:29:42
 	 */
-	public <T> void addToHashMap(String hashKey,String key,T value){
-		Jedis jedis=pool.getResource();
-		try {
-			jedis.hset(hashKey, key, gson.toJson(value));
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-		} finally {
-			closeResource(jedis);
-		}
+	public <T> void addToHashMap(final String hashKey,final String key,T value){
+		final byte[] data=encode(value);
+		checkValueSize(hashKey, data.length, false);
+		bloomPut(hashKey, rawKey(key));
+		execute("HSET", new RedisCall<Void>() {
+			@Override
+			public Void execute(Jedis jedis) {
+				jedis.hset(rawKey(hashKey), rawKey(key), data);
+				invalidateNearCache(jedis, hashKey, key);
+				return null;
+			}
+		});
 	}
 	
 	/**
@@ -940,20 +2165,7 @@ public class RedisDataSource {
 	 * @author Gerryle 2018年2月11日 下午5:32:12
 	 */
 	public <T> T getValueFromHashMap(String hashKey,String key,Class<T> c){
-		Jedis jedis=pool.getResource();
-		try {
-			String s=jedis.hget(hashKey, key);
-			if(StringUtil.isNullOrEmpty(s)){
-				return null;
-			}
-			return gson.fromJson(s, c);
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-			return null;
-		} finally {
-			closeResource(jedis);
-		}
+		return getValueFromHashMap(hashKey, key, (Type)c);
 	}
 	
 	/**
@@ -965,21 +2177,94 @@ public class RedisDataSource {
 	 * @author Gerryle 2018年2月11日 下午5:35:16
 	 */
 	public <T> T getValueFromHashMap(String hashKey,String key,Type typeOfT){
-		Jedis jedis=pool.getResource();
-		try {
-			String s=jedis.hget(hashKey, key);
-			
-			if (StringUtil.isNullOrEmpty(s)) {
-				return null;
+		if(nearCache==null){
+			return loadValueFromHashMap(hashKey, key, typeOfT, false);
+		}
+		long epoch=nearCache.currentEpoch(hashKey);
+		T cached=nearCache.getField(hashKey, key, typeOfT);
+		if(cached!=null){
+			return cached;
+		}
+		//回填的值必须读主节点
+		T value=loadValueFromHashMap(hashKey, key, typeOfT, true);
+		nearCache.putField(hashKey, key, typeOfT, value, epoch);
+		return value;
+	}
+	
+	private <T> T loadValueFromHashMap(final String hashKey,final String key,Type typeOfT,boolean primary){
+		if(coalescer!=null&&!(primary&&replicaRouter!=null)){
+			try {
+				return decode(coalescer.hget(hashKey, key), typeOfT);
+			} catch (IllegalStateException e) {
+				//合并读取失败时直接读取
+			}
+		}
+		return decode(readExecute("HGET", primary, new RedisCall<byte[]>() {
+			@Override
+			public byte[] execute(Jedis jedis) {
+				return jedis.hget(rawKey(hashKey), rawKey(key));
+			}
+		}), typeOfT);
+	}
+	
+	/**
+	 * 返回map中多个字段的值，按hashBatchSize分成多个HMGET在一次pipeline往返中发送
+	 * @param hashKey
+	 * @param fields
+	 * @param c
+	 * @return 字段 -> 值，顺序与fields一致，不存在的字段不包含在结果中，出错返回空map
+	 * @author Gerryle 2026年10月17日 下午11:02:10
+	 */
+	public <T> Map<String, T> getValuesFromHashMap(String hashKey,Collection<String> fields,Class<T> c){
+		return getValuesFromHashMap(hashKey, fields, (Type)c);
+	}
+	
+	/**
+	 * 返回map中多个字段的值
+	 * @param hashKey
+	 * @param fields
+	 * @param typeOfT
+	 * @return 字段 -> 值，顺序与fields一致，不存在的字段不包含在结果中，出错返回空map
+	 * @author Gerryle 2026年10月17日 下午11:03:02
+	 */
+	public <T> Map<String, T> getValuesFromHashMap(final String hashKey,Collection<String> fields,Type typeOfT){
+		Map<String, T> map=new LinkedHashMap<String, T>();
+		if(fields==null||fields.isEmpty()){
+			return map;
+		}
+		final List<String> fieldList=new ArrayList<String>(fields);
+		List<byte[]> values=readExecute("HMGET", new RedisCall<List<byte[]>>() {
+			@Override
+			public List<byte[]> execute(Jedis jedis) {
+				Pipeline pipeline=jedis.pipelined();
+				byte[] rawHashKey=rawKey(hashKey);
+				List<Response<List<byte[]>>> responses=new ArrayList<Response<List<byte[]>>>();
+				for(int from=0;from<fieldList.size();from+=hashBatchSize){
+					List<String> chunk=fieldList.subList(from, Math.min(from+hashBatchSize, fieldList.size()));
+					byte[][] rawFields=new byte[chunk.size()][];
+					for(int i=0;i<rawFields.length;i++){
+						rawFields[i]=rawKey(chunk.get(i));
+					}
+					responses.add(pipeline.hmget(rawHashKey, rawFields));
+				}
+				pipeline.sync();
+				List<byte[]> values=new ArrayList<byte[]>(fieldList.size());
+				for(Response<List<byte[]>> response:responses){
+					values.addAll(response.get());
+				}
+				return values;
+			}
+		});
+		if(values==null){
+			return map;
+		}
+		for(int i=0;i<fieldList.size();i++){
+			T value=decode(values.get(i), typeOfT);
+			if(value!=null){
+				map.put(fieldList.get(i), value);
 			}
-			return gson.fromJson(s, typeOfT);
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-			return null;
-		} finally {
-			closeResource(jedis);
 		}
+		return map;
 	}
 	
 	/**
@@ -989,25 +2274,76 @@ public class RedisDataSource {
 	 * @return
 	 * @author Gerryle 2018年2月11日 下午5:40:35
 	 */
-	public <T> Map<String, T> getAllFromHashMap(String hashKey,Class<T> c){
-		Jedis jedis=pool.getResource();
-		try {
-			Map<String, String> map=jedis.hgetAll(hashKey);
-			Map<String, T> tMap=new HashMap<String,T>(map.size());
-			for(String key:map.keySet()){
-				T value=gson.fromJson(map.get(key), c);
-				tMap.put(key, value);
-			}
-			return tMap;
-		}catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
+	public <T> Map<String, T> getAllFromHashMap(final String hashKey,Class<T> c){
+		Map<byte[], byte[]> map=readExecute("HGETALL", new RedisCall<Map<byte[], byte[]>>() {
+			@Override
+			public Map<byte[], byte[]> execute(Jedis jedis) {
+				return jedis.hgetAll(rawKey(hashKey));
+			}
+		});
+		if(map==null){
+			return null;
+		}
+		Map<String, T> tMap=new HashMap<String,T>(map.size());
+		for(Map.Entry<byte[], byte[]> entry:map.entrySet()){
+			T value=decode(entry.getValue(), c);
+			tMap.put(SafeEncoder.encode(entry.getKey()), value);
+		}
+		return tMap;
+	}
+	
+	
+	/**
+	 * map集合的懒解码视图，一次HGETALL获取原始数据，字段在访问时才解码
+	 * @param hashKey
+	 * @param c
+	 * @return 出错返回null
+	 * @author Gerryle 2026年10月17日 下午2:36:22
+	 */
+	public <T> Map<String, T> getAllFromHashMapView(final String hashKey,Class<T> c){
+		Map<byte[], byte[]> map=readExecute("HGETALL", new RedisCall<Map<byte[], byte[]>>() {
+			@Override
+			public Map<byte[], byte[]> execute(Jedis jedis) {
+				return jedis.hgetAll(rawKey(hashKey));
+			}
+		});
+		if(map==null){
 			return null;
-		} finally {
-			closeResource(jedis);
 		}
+		Map<String, byte[]> raw=new HashMap<String, byte[]>(map.size());
+		for(Map.Entry<byte[], byte[]> entry:map.entrySet()){
+			raw.put(SafeEncoder.encode(entry.getKey()), entry.getValue());
+		}
+		return new RedisLazyMap<T>(this, raw, c);
 	}
 	
+	/**
+	 * 懒加载遍历map，每页通过HSCAN获取，值在迭代时才解码，可能返回重复字段
+	 * @param hashKey
+	 * @param c
+	 * @param pageSize 每页的COUNT
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午2:38:10
+	 */
+	public <T> Iterator<Map.Entry<String, T>> scanHashMap(final String hashKey,final Class<T> c,int pageSize){
+		final byte[] rawHashKey=rawKey(hashKey);
+		return new RedisScanIterator<Map.Entry<String, byte[]>, Map.Entry<String, T>>(this,null,pageSize) {
+			@Override
+			protected ScanResult<Map.Entry<String, byte[]>> scan(Jedis jedis, String cursor, ScanParams params) {
+				return RedisBinaryScans.hscan(jedis, rawHashKey, cursor, params);
+			}
+
+			@Override
+			protected String command() {
+				return "HSCAN";
+			}
+
+			@Override
+			protected Map.Entry<String, T> convert(Map.Entry<String, byte[]> raw) {
+				return new AbstractMap.SimpleImmutableEntry<String, T>(raw.getKey(), RedisDataSource.this.<T>decode(raw.getValue(), c));
+			}
+		};
+	}
 	
 	/**
 	 * 返回map的size
@@ -1015,30 +2351,23 @@ public class RedisDataSource {
 	 * @return
 	 * @author Gerryle 2018年2月11日 下午5:42:28
 	 */
-	public int getSizeFromHashMap(String hashKey){
-		Jedis jedis=pool.getResource();
-		try {
-			return jedis.hlen(hashKey).intValue();
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-			return 0;
-		} finally {
-			closeResource(jedis);
-		}
+	public int getSizeFromHashMap(final String hashKey){
+		Long size=readExecute("HLEN", new RedisCall<Long>() {
+			@Override
+			public Long execute(Jedis jedis) {
+				return jedis.hlen(hashKey);
+			}
+		});
+		return size==null?0:size.intValue();
 	}
 	
-	public String type(String key){
-		Jedis jedis=pool.getResource();
-		try {
-			return jedis.type(key);
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-		} finally {
-			closeResource(jedis);
-		}
-		return null;
+	public String type(final String key){
+		return execute("TYPE", new RedisCall<String>() {
+			@Override
+			public String execute(Jedis jedis) {
+				return jedis.type(key);
+			}
+		});
 	}
 	
 	/**
@@ -1048,18 +2377,16 @@ public class RedisDataSource {
 	 * @return
 	 * @author Gerryle 2018年2月11日 下午5:45:44
 	 */
-	public long removeFromHashMap(String hashKey,String... keys){
-		long removed=0;
-		Jedis jedis=pool.getResource();
-		try {
-			removed=jedis.hdel(hashKey, keys);
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-		} finally {
-			closeResource(jedis);
-		}
-		return removed;
+	public long removeFromHashMap(final String hashKey,final String... keys){
+		Long removed=execute("HDEL", new RedisCall<Long>() {
+			@Override
+			public Long execute(Jedis jedis) {
+				long count=jedis.hdel(hashKey, keys);
+				invalidateNearCache(jedis, hashKey, keys);
+				return count;
+			}
+		});
+		return removed==null?0:removed;
 	}
 	
 	/**
@@ -1068,17 +2395,13 @@ public class RedisDataSource {
 	 * @return
 	 * @author Gerryle 2018年2月11日 下午5:47:21
 	 */
-	public Set<String> getKeysFromHashMap(String hashKey){
-		Jedis jedis=pool.getResource();
-		try {
-		   return jedis.hkeys(hashKey);
-		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
-			e.printStackTrace();
-			return null;
-		} finally {
-			closeResource(jedis);
-		}
+	public Set<String> getKeysFromHashMap(final String hashKey){
+		return readExecute("HKEYS", new RedisCall<Set<String>>() {
+			@Override
+			public Set<String> execute(Jedis jedis) {
+				return jedis.hkeys(hashKey);
+			}
+		});
 	}
 	
 	/**
@@ -1097,52 +2420,160 @@ public class RedisDataSource {
 	 * @return
 	 * @author Gerryle 2018年2月11日 下午5:50:11
 	 */
-   public boolean hasKeyHashMap(String hashKey,String key){
-	   Jedis jedis=pool.getResource();
-	   try {
-		return jedis.hexists(hashKey, key);
-	} catch (Exception e) {
-		pool.returnBrokenResource(jedis);
-		e.printStackTrace();
-		return false;
-	} finally {
-		closeResource(jedis);
-	}
+   public boolean hasKeyHashMap(final String hashKey,final String key){
+	   if(bloomFilter!=null&&!bloomFilter.mightContain(hashKey, rawKey(key))){
+		   return false;
+	   }
+	   Boolean exists=readExecute("HEXISTS", new RedisCall<Boolean>() {
+		   @Override
+		   public Boolean execute(Jedis jedis) {
+			   return jedis.hexists(hashKey, key);
+		   }
+	   });
+	   return exists!=null&&exists;
    }
 	
    /**
     * redis是否可能已经死亡
+    *   开启健康检查时直接返回最近一次检查和熔断器的状态，不发送命令；未开启时发送一次PING
     * @return
     * @author Gerryle 2018年2月11日 下午5:53:34
     */
    public boolean mayBeDead(){
-	   String key="RedisMayBeDead_"+ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE);
-	   try {
-		setValue(key,key,10);
-		String val=getValue(key);
-		return !key.equals(val);
-	} catch (Exception e) {
-		e.printStackTrace();
-		return true;
-	}
+	   if(circuitBreaker!=null&&circuitBreaker.getState()==RedisCircuitState.OPEN){
+		   return true;
+	   }
+	   if(healthMonitor!=null){
+		   return !healthMonitor.isHealthy();
+	   }
+	   String pong=execute("PING", new RedisCall<String>() {
+		   @Override
+		   public String execute(Jedis jedis) {
+			   return jedis.ping();
+		   }
+	   });
+	   return !"PONG".equals(pong);
    }
 	
 	/**
-	 * Redis 执行的模板
+	 * Redis 执行的模板，记录命令的延迟和错误
+	 * @param command 指标中的命令名
 	 * @param call
-	 * @return
+	 * @return 出错返回null
 	 * @author Gerryle 2018年2月11日 下午4:26:31
 	 */
-	private <T> T execute(RedisCall<T> call){
-		Jedis jedis=pool.getResource();
+	<T> T execute(String command,RedisCall<T> call){
+		if(circuitBreaker!=null&&!circuitBreaker.allowRequest()){
+			//熔断中直接失败，不借用连接
+			return null;
+		}
+		long start=System.nanoTime();
+		Throwable error=null;
+		Jedis jedis=null;
 		try {
+			jedis=getResource();
 		    return call.execute(jedis);
 		} catch (Exception e) {
-			pool.returnBrokenResource(jedis);
+			error=e;
+			if(jedis!=null){
+				pool.returnBrokenResource(jedis);
+				jedis=null;
+			}
+			e.printStackTrace();
+		}finally{
+			if(jedis!=null){
+				closeResource(jedis);
+			}
+			metrics.recordCommand(command, start, error);
+			if(circuitBreaker!=null){
+				if(error==null){
+					circuitBreaker.onSuccess();
+				}else{
+					circuitBreaker.onError(error);
+				}
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * 多路复用连接执行的模板，与连接池的execute一样记录命令的延迟和错误并经过熔断器
+	 * @param command 指标中的命令名
+	 * @param call
+	 * @return 出错返回null
+	 * @author Gerryle 2026年10月18日 上午2:41:30
+	 */
+	<T> T executeMultiplexed(String command,RedisMultiplexCall<T> call){
+		if(circuitBreaker!=null&&!circuitBreaker.allowRequest()){
+			return null;
+		}
+		long start=System.nanoTime();
+		Throwable error=null;
+		try {
+			return call.execute(multiplexer);
+		} catch (Exception e) {
+			error=e;
 			e.printStackTrace();
 		}finally{
-			closeResource(jedis);
+			metrics.recordCommand(command, start, error);
+			if(circuitBreaker!=null){
+				if(error==null){
+					circuitBreaker.onSuccess();
+				}else{
+					circuitBreaker.onError(error);
+				}
+			}
 		}
 		return null;
 	}
+	
+	/**
+	 * 从连接池借用连接，记录等待时间
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午8:32:40
+	 */
+	private Jedis getResource(){
+		long start=System.nanoTime();
+		try {
+			Jedis jedis=pool.getResource();
+			metrics.recordBorrow(start, null);
+			return jedis;
+		} catch (RuntimeException e) {
+			metrics.recordBorrow(start, e);
+			throw e;
+		}
+	}
+	
+	/**
+	 * 读命令执行的模板，primary为true时总是读主节点
+	 * @param command 指标中的命令名
+	 * @param primary 是否必须读主节点，读到的值要回填本地缓存时为true
+	 * @param call
+	 * @return 出错返回null
+	 * @author Gerryle 2026年10月18日 上午3:50:20
+	 */
+	<T> T readExecute(String command,boolean primary,RedisCall<T> call){
+		return primary?execute(command, call):readExecute(command, call);
+	}
+	
+	/**
+	 * 读命令执行的模板，配置了从节点时按读策略发送到从节点，否则与execute相同
+	 * @param command 指标中的命令名
+	 * @param call
+	 * @return 出错返回null
+	 * @author Gerryle 2026年10月17日 下午7:20:36
+	 */
+	<T> T readExecute(String command,RedisCall<T> call){
+		//熔断或者探测恢复期间读命令也经过熔断器，由主节点的结果决定是否恢复
+		if(replicaRouter==null||(circuitBreaker!=null&&circuitBreaker.getState()!=RedisCircuitState.CLOSED)){
+			return execute(command, call);
+		}
+		long start=System.nanoTime();
+		try {
+			return replicaRouter.read(command, call);
+		} finally {
+			//从节点的错误已经在路由中记录
+			metrics.recordCommand(command, start, null);
+		}
+	}
 }
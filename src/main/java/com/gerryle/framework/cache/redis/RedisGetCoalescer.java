@@ -0,0 +1,225 @@
+package com.gerryle.framework.cache.redis;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * 单key读取合并器
+ *   并发的GET/HGET先进入队列，后台线程在一个很短的时间窗口内（或者达到最大个数时）
+ *   把它们合并成一个MGET以及按hashKey分组的HMGET，通过一个连接pipeline发送后再把结果分发给各个调用方；
+ *   同一个key在发送之前重复请求只会读取一次。已经发送的请求不会再被合并，保证调用方读到的结果不早于它发起读取的时刻
+ * @author Gerryle 2026年10月17日 下午3:40:26
+ */
+class RedisGetCoalescer {
+
+	/**hash字段在合并key中的分隔符*/
+	private static final char FIELD_SEPARATOR='\u0000';
+
+	private final RedisDataSource dataSource;
+
+	private final long windowNanos;
+
+	private final int maxBatch;
+
+	/**调用方等待结果的最大毫秒数，超时后调用方自己直接读取*/
+	private final long waitMillis;
+
+	/**尚未发送的请求，用于去重*/
+	private final ConcurrentMap<String, Pending> waiting=new ConcurrentHashMap<String, Pending>();
+
+	private final BlockingQueue<Pending> queue=new LinkedBlockingQueue<Pending>();
+
+	private volatile boolean running=true;
+
+	private final Thread flusher;
+
+	RedisGetCoalescer(RedisDataSource dataSource,int windowMicros,int maxBatch,long waitMillis){
+		this.dataSource=dataSource;
+		this.windowNanos=TimeUnit.MICROSECONDS.toNanos(windowMicros);
+		this.maxBatch=maxBatch;
+		this.waitMillis=waitMillis;
+		this.flusher=new Thread(new Runnable() {
+			@Override
+			public void run() {
+				flushLoop();
+			}
+		}, "redis-get-coalescer");
+		this.flusher.setDaemon(true);
+		this.flusher.start();
+	}
+
+	/**
+	 * 合并读取key的原始字节
+	 * @param key
+	 * @return 不存在返回null
+	 * @throws IllegalStateException 合并读取失败或者超时，调用方应该直接读取
+	 * @author Gerryle 2026年10月17日 下午3:45:10
+	 */
+	byte[] get(String key){
+		return await(enqueue(key, null, key));
+	}
+
+	/**
+	 * 合并读取hash字段的原始字节
+	 * @param hashKey
+	 * @param field
+	 * @return 不存在返回null
+	 * @throws IllegalStateException 合并读取失败或者超时，调用方应该直接读取
+	 * @author Gerryle 2026年10月17日 下午3:46:02
+	 */
+	byte[] hget(String hashKey,String field){
+		return await(enqueue(hashKey, field, hashKey+FIELD_SEPARATOR+field));
+	}
+
+	void stop(){
+		running=false;
+		flusher.interrupt();
+	}
+
+	private Pending enqueue(String key,String field,String id){
+		Pending pending=waiting.get(id);
+		if(pending!=null){
+			return pending;
+		}
+		Pending created=new Pending(id, key, field);
+		pending=waiting.putIfAbsent(id, created);
+		if(pending!=null){
+			return pending;
+		}
+		queue.add(created);
+		return created;
+	}
+
+	private byte[] await(Pending pending){
+		try {
+			return pending.future.get(waitMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("redis coalesced get interrupted", e);
+		} catch (Exception e) {
+			throw new IllegalStateException("redis coalesced get failed", e);
+		}
+	}
+
+	private void flushLoop(){
+		List<Pending> batch=new ArrayList<Pending>(maxBatch);
+		while(running){
+			try {
+				Pending first=queue.take();
+				batch.add(first);
+				long deadline=System.nanoTime()+windowNanos;
+				while(batch.size()<maxBatch){
+					long remaining=deadline-System.nanoTime();
+					Pending next=remaining>0?queue.poll(remaining, TimeUnit.NANOSECONDS):queue.poll();
+					if(next==null){
+						break;
+					}
+					batch.add(next);
+				}
+				flush(batch);
+			} catch (InterruptedException e) {
+				if(!running){
+					break;
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+			} finally {
+				batch.clear();
+			}
+		}
+		fail(new ArrayList<Pending>(queue), new IllegalStateException("redis get coalescer stopped"));
+	}
+
+	private void flush(final List<Pending> batch){
+		//发送之前移出去重表，之后的请求重新排队
+		for(Pending pending:batch){
+			waiting.remove(pending.id, pending);
+		}
+		final List<Pending> keys=new ArrayList<Pending>();
+		final Map<String, List<Pending>> fieldsByHash=new LinkedHashMap<String, List<Pending>>();
+		for(Pending pending:batch){
+			if(pending.field==null){
+				keys.add(pending);
+				continue;
+			}
+			List<Pending> fields=fieldsByHash.get(pending.key);
+			if(fields==null){
+				fields=new ArrayList<Pending>();
+				fieldsByHash.put(pending.key, fields);
+			}
+			fields.add(pending);
+		}
+		Boolean ok=dataSource.readExecute("COALESCED_GET", new RedisCall<Boolean>() {
+			@Override
+			public Boolean execute(Jedis jedis) {
+				Pipeline pipeline=jedis.pipelined();
+				Response<List<byte[]>> keysResponse=null;
+				if(!keys.isEmpty()){
+					byte[][] names=new byte[keys.size()][];
+					for(int i=0;i<names.length;i++){
+						names[i]=SafeEncoder.encode(keys.get(i).key);
+					}
+					keysResponse=pipeline.mget(names);
+				}
+				Map<String, Response<List<byte[]>>> hashResponses=new LinkedHashMap<String, Response<List<byte[]>>>();
+				for(Map.Entry<String, List<Pending>> entry:fieldsByHash.entrySet()){
+					List<Pending> fields=entry.getValue();
+					byte[][] names=new byte[fields.size()][];
+					for(int i=0;i<names.length;i++){
+						names[i]=SafeEncoder.encode(fields.get(i).field);
+					}
+					hashResponses.put(entry.getKey(), pipeline.hmget(SafeEncoder.encode(entry.getKey()), names));
+				}
+				pipeline.sync();
+				if(keysResponse!=null){
+					complete(keys, keysResponse.get());
+				}
+				for(Map.Entry<String, Response<List<byte[]>>> entry:hashResponses.entrySet()){
+					complete(fieldsByHash.get(entry.getKey()), entry.getValue().get());
+				}
+				return true;
+			}
+		});
+		if(ok==null){
+			fail(batch, new IllegalStateException("redis coalesced get failed"));
+		}
+	}
+
+	private static void complete(List<Pending> pendings,List<byte[]> values){
+		for(int i=0;i<pendings.size();i++){
+			pendings.get(i).future.complete(values.get(i));
+		}
+	}
+
+	private static void fail(List<Pending> pendings,Exception error){
+		for(Pending pending:pendings){
+			pending.future.completeExceptionally(error);
+		}
+	}
+
+	private static class Pending{
+		final String id;
+		final String key;
+		final String field;
+		final CompletableFuture<byte[]> future=new CompletableFuture<byte[]>();
+
+		Pending(String id,String key,String field){
+			this.id=id;
+			this.key=key;
+			this.field=field;
+		}
+	}
+}
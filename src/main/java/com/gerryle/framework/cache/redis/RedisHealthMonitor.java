@@ -0,0 +1,180 @@
+package com.gerryle.framework.cache.redis;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.gerryle.framework.util.lang.StringUtil;
+
+import redis.clients.jedis.Jedis;
+
+/**
+ * redis健康检查
+ *   后台线程定时在独立的连接上发送PING并记录延迟，不占用连接池，连接池耗尽时也能检查；
+ *   PING失败计入熔断器的连续错误，熔断中PING成功时熔断器进入半开状态。
+ *   通过RedisDataSource.getHealthMonitor获取
+ * @author Gerryle 2026年10月18日 上午12:20:10
+ */
+public class RedisHealthMonitor {
+
+	private final RedisInitParam initParam;
+
+	private final RedisCircuitBreaker circuitBreaker;
+
+	private final int timeoutMillis;
+
+	private final RedisHistogram pingLatency=new RedisHistogram();
+
+	private ScheduledExecutorService scheduler;
+
+	/**健康检查使用的连接，只在检查线程中使用*/
+	private Jedis jedis;
+
+	private volatile boolean healthy=true;
+
+	private volatile long lastPingMicros;
+
+	private volatile long lastCheckMillis;
+
+	/**
+	 * @param initParam
+	 * @param circuitBreaker 未开启熔断时为null
+	 * @param timeoutMillis PING的超时毫秒数
+	 */
+	RedisHealthMonitor(RedisInitParam initParam,RedisCircuitBreaker circuitBreaker,int timeoutMillis){
+		this.initParam=initParam;
+		this.circuitBreaker=circuitBreaker;
+		this.timeoutMillis=Math.max(timeoutMillis, 1);
+	}
+
+	synchronized void start(int intervalMillis){
+		scheduler=Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread=new Thread(r, "redis-health");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					check();
+				} catch (RuntimeException e) {
+					//异常会取消后续的调度
+					e.printStackTrace();
+				}
+			}
+		}, 0, Math.max(intervalMillis, 1), TimeUnit.MILLISECONDS);
+	}
+
+	synchronized void stop(){
+		if(scheduler!=null){
+			scheduler.shutdownNow();
+			try {
+				scheduler.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			scheduler=null;
+		}
+		disconnect();
+	}
+
+	/**
+	 * 最近一次检查是否成功
+	 * @return
+	 * @author Gerryle 2026年10月18日 上午12:22:30
+	 */
+	public boolean isHealthy() {
+		return healthy;
+	}
+
+	/**
+	 * 最近一次成功的PING延迟微秒数
+	 * @return
+	 */
+	public long getLastPingMicros() {
+		return lastPingMicros;
+	}
+
+	/**
+	 * 最近一次检查的时间戳毫秒数
+	 * @return
+	 */
+	public long getLastCheckMillis() {
+		return lastCheckMillis;
+	}
+
+	/**
+	 * 成功的PING延迟分布，单位微秒
+	 * @return
+	 */
+	public RedisHistogram getPingLatency() {
+		return pingLatency;
+	}
+
+	/**
+	 * 执行一次检查
+	 * @author Gerryle 2026年10月18日 上午12:23:40
+	 */
+	private void check(){
+		long start=System.nanoTime();
+		try {
+			if(jedis==null){
+				jedis=connect();
+			}
+			jedis.ping();
+			long micros=TimeUnit.NANOSECONDS.toMicros(System.nanoTime()-start);
+			pingLatency.record(micros);
+			lastPingMicros=micros;
+			if(!healthy){
+				System.out.println("redis健康检查恢复");
+			}
+			healthy=true;
+			if(circuitBreaker!=null){
+				circuitBreaker.halfOpen();
+			}
+		} catch (RuntimeException e) {
+			if(healthy){
+				System.out.println("redis健康检查失败："+e);
+			}
+			healthy=false;
+			disconnect();
+			if(circuitBreaker!=null){
+				circuitBreaker.onError(e);
+			}
+		} finally {
+			lastCheckMillis=System.currentTimeMillis();
+		}
+	}
+
+	private Jedis connect(){
+		Jedis connection=new Jedis(initParam.getServer(), initParam.getPort(), timeoutMillis);
+		try {
+			if(!StringUtil.isNullOrEmpty(initParam.getPassword())){
+				connection.auth(initParam.getPassword());
+			}
+			if(initParam.getDatabase()!=0){
+				connection.select(initParam.getDatabase());
+			}
+			return connection;
+		} catch (RuntimeException e) {
+			connection.disconnect();
+			throw e;
+		}
+	}
+
+	private void disconnect(){
+		if(jedis!=null){
+			try {
+				jedis.disconnect();
+			} catch (RuntimeException e) {
+				//连接已经断开
+			}
+			jedis=null;
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package com.gerryle.framework.cache.redis;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的对数分桶直方图（HDR风格）
+ *   每个2的幂区间再均分为8个子桶，相对误差不超过12.5%；记录只做几次原子加，适合在每个命令上调用。
+ *   记录的是非负整数（微秒、字节等），负数按0记录
+ * @author Gerryle 2026年10月17日 下午8:02:18
+ */
+public class RedisHistogram {
+
+	private static final int SUB_BUCKET_BITS=3;
+
+	private static final int SUB_BUCKETS=1<<SUB_BUCKET_BITS;
+
+	private static final int BUCKETS=(64-SUB_BUCKET_BITS+1)*SUB_BUCKETS;
+
+	private final AtomicLongArray buckets=new AtomicLongArray(BUCKETS);
+
+	private final LongAdder count=new LongAdder();
+
+	private final LongAdder sum=new LongAdder();
+
+	private final AtomicLong max=new AtomicLong();
+
+	/**
+	 * 记录一个值
+	 * @param value
+	 * @author Gerryle 2026年10月17日 下午8:04:10
+	 */
+	public void record(long value){
+		long v=Math.max(value, 0);
+		buckets.incrementAndGet(bucketIndex(v));
+		count.increment();
+		sum.add(v);
+		long current=max.get();
+		while(v>current&&!max.compareAndSet(current, v)){
+			current=max.get();
+		}
+	}
+
+	public long getCount(){
+		return count.sum();
+	}
+
+	public long getSum(){
+		return sum.sum();
+	}
+
+	public long getMax(){
+		return max.get();
+	}
+
+	public double getMean(){
+		long n=count.sum();
+		return n==0?0:(double)sum.sum()/n;
+	}
+
+	/**
+	 * 百分位数，返回所在桶的上界
+	 * @param percentile 0-100
+	 * @return 没有记录时返回0
+	 * @author Gerryle 2026年10月17日 下午8:06:32
+	 */
+	public long getPercentile(double percentile){
+		long[] snapshot=new long[BUCKETS];
+		long total=0;
+		for(int i=0;i<BUCKETS;i++){
+			snapshot[i]=buckets.get(i);
+			total+=snapshot[i];
+		}
+		if(total==0){
+			return 0;
+		}
+		long rank=(long)Math.ceil(total*Math.min(Math.max(percentile, 0), 100)/100.0);
+		long seen=0;
+		for(int i=0;i<BUCKETS;i++){
+			seen+=snapshot[i];
+			if(seen>=Math.max(rank, 1)){
+				return Math.min(bucketUpperBound(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	static int bucketIndex(long value){
+		if(value<SUB_BUCKETS){
+			return (int)value;
+		}
+		int exponent=63-Long.numberOfLeadingZeros(value);
+		int sub=(int)(value>>>(exponent-SUB_BUCKET_BITS))&(SUB_BUCKETS-1);
+		return (exponent-SUB_BUCKET_BITS+1)*SUB_BUCKETS+sub;
+	}
+
+	static long bucketUpperBound(int index){
+		if(index<SUB_BUCKETS){
+			return index;
+		}
+		int exponent=index/SUB_BUCKETS+SUB_BUCKET_BITS-1;
+		int sub=index%SUB_BUCKETS;
+		long lower=((long)(SUB_BUCKETS+sub))<<(exponent-SUB_BUCKET_BITS);
+		return lower+(1L<<(exponent-SUB_BUCKET_BITS))-1;
+	}
+}
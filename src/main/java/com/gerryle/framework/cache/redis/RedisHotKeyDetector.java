@@ -0,0 +1,344 @@
+package com.gerryle.framework.cache.redis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * 热点key检测
+ *   读命令按采样率抽样，在无锁的count-min sketch中计数，每个时间窗口结束时从候选key中用最小堆选出访问最多的topK个，
+ *   估算的每秒访问次数达到阈值的key为热点，已经是热点的key降到阈值的一半以下才取消（避免在阈值附近反复切换）；
+ *   开启自动提升时热点key的值在本地缓存很短的时间，热点期间大部分读取不再访问redis，取消热点时删除本地副本。
+ *   本进程的写操作会删除本地副本，其它节点的写入最多在本地缓存的存活时间后可见。
+ *   通过RedisDataSource.getHotKeyDetector获取，线程安全
+ * @author Gerryle 2026年10月18日 上午1:50:20
+ */
+public class RedisHotKeyDetector {
+
+	/**count-min sketch的行数*/
+	private static final int DEPTH=4;
+
+	/**count-min sketch每行的计数器个数，2的幂*/
+	private static final int WIDTH=1<<12;
+
+	/**候选key数量的上限为topK的倍数，窗口结束时只保留topK个，空出的位置留给估算值不小于上个窗口最小值的新key*/
+	private static final int CANDIDATE_FACTOR=4;
+
+	private static final HashFunction HASH=Hashing.murmur3_128();
+
+	private final int sampleRate;
+
+	private final int topK;
+
+	private final long windowMillis;
+
+	private final long thresholdQps;
+
+	/**是否自动把热点key提升到本地缓存*/
+	private final boolean promote;
+
+	private final long localTtlNanos;
+
+	/**当前窗口的计数*/
+	private volatile Sketch current=new Sketch();
+
+	/**已经清空、下一个窗口使用的计数*/
+	private Sketch spare=new Sketch();
+
+	/**候选key，窗口结束时只保留topK个*/
+	private final ConcurrentMap<String, Boolean> candidates=new ConcurrentHashMap<String, Boolean>();
+
+	/**上一个窗口的topK中最小的计数，topK未满时为0*/
+	private volatile long admitCount;
+
+	/**热点key，窗口结束时整体替换*/
+	private volatile Set<String> hotKeys=Collections.emptySet();
+
+	/**上一个窗口topK的key和估算的每秒访问次数，从大到小*/
+	private volatile Map<String, Long> topKeys=Collections.emptyMap();
+
+	private final ConcurrentMap<String, LocalEntry> local=new ConcurrentHashMap<String, LocalEntry>();
+
+	/**按key分段的失效版本号，写操作递增所在分段，读redis期间同一分段发生写操作时不回填本地缓存*/
+	private final RedisKeyVersions epoch=new RedisKeyVersions();
+
+	private final AtomicLong localHits=new AtomicLong();
+
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * @param sampleRate 每多少次读取抽样一次
+	 * @param topK 跟踪的key数量
+	 * @param windowMillis 统计窗口毫秒数
+	 * @param thresholdQps 热点的每秒访问次数
+	 * @param promote 是否自动提升到本地缓存
+	 * @param localTtlMillis 本地缓存的存活毫秒数
+	 */
+	RedisHotKeyDetector(int sampleRate,int topK,int windowMillis,long thresholdQps,boolean promote,int localTtlMillis){
+		this.sampleRate=Math.max(sampleRate, 1);
+		this.topK=Math.max(topK, 1);
+		this.windowMillis=Math.max(windowMillis, 1);
+		this.thresholdQps=Math.max(thresholdQps, 1);
+		this.promote=promote;
+		this.localTtlNanos=TimeUnit.MILLISECONDS.toNanos(Math.max(localTtlMillis, 1));
+	}
+
+	synchronized void start(){
+		scheduler=Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread=new Thread(r, "redis-hot-key");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduler.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					rotate();
+				} catch (RuntimeException e) {
+					//异常会取消后续的调度
+					e.printStackTrace();
+				}
+			}
+		}, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+	}
+
+	synchronized void stop(){
+		if(scheduler!=null){
+			scheduler.shutdownNow();
+			scheduler=null;
+		}
+		local.clear();
+	}
+
+	/**
+	 * 记录一次读取
+	 * @param key
+	 * @return key当前是否为热点并且开启了自动提升
+	 * @author Gerryle 2026年10月18日 上午1:53:10
+	 */
+	boolean record(String key){
+		if(sampleRate==1||ThreadLocalRandom.current().nextInt(sampleRate)==0){
+			long count=current.increment(HASH.hashString(key, StandardCharsets.UTF_8));
+			//admitCount为0（第一个窗口或者topK未满）时所有key都满足条件，必须同时限制候选数量
+			if(count>=admitCount&&candidates.size()<topK*CANDIDATE_FACTOR&&!candidates.containsKey(key)){
+				candidates.put(key, Boolean.TRUE);
+			}
+		}
+		return promote&&hotKeys.contains(key);
+	}
+
+	/**
+	 * 本地缓存的值
+	 * @param key
+	 * @return 没有缓存或者已经过期返回null
+	 * @author Gerryle 2026年10月18日 上午1:54:02
+	 */
+	byte[] getLocal(String key){
+		LocalEntry entry=local.get(key);
+		if(entry==null){
+			return null;
+		}
+		if(System.nanoTime()-entry.loadNanos>localTtlNanos){
+			local.remove(key, entry);
+			return null;
+		}
+		localHits.incrementAndGet();
+		return entry.data;
+	}
+
+	long currentEpoch(String key){
+		return epoch.get(key);
+	}
+
+	/**
+	 * 回填本地缓存，读取期间发生过写操作或者key已经不是热点时不回填，
+	 * key不存在或者读取出错时不缓存，避免redis短暂不可用时缓存错误的结果
+	 * @param key
+	 * @param data
+	 * @param readEpoch 读redis之前的版本号
+	 * @author Gerryle 2026年10月18日 上午1:54:40
+	 */
+	void putLocal(String key,byte[] data,long readEpoch){
+		if(data==null||!hotKeys.contains(key)){
+			return;
+		}
+		LocalEntry entry=new LocalEntry(data);
+		local.put(key, entry);
+		//写操作可能在put之前完成失效，再检查一次
+		if(epoch.get(key)!=readEpoch){
+			local.remove(key, entry);
+		}
+	}
+
+	/**
+	 * 写操作之后删除本地副本
+	 * @param key
+	 * @author Gerryle 2026年10月18日 上午1:55:12
+	 */
+	void invalidate(String key){
+		epoch.increment(key);
+		if(!local.isEmpty()){
+			local.remove(key);
+		}
+	}
+
+	/**
+	 * 上一个窗口访问最多的key
+	 * @return key -> 估算的每秒访问次数，从大到小
+	 * @author Gerryle 2026年10月18日 上午1:55:50
+	 */
+	public Map<String, Long> getTopKeys(){
+		return topKeys;
+	}
+
+	/**
+	 * 当前的热点key
+	 * @return
+	 * @author Gerryle 2026年10月18日 上午1:56:10
+	 */
+	public Set<String> getHotKeys(){
+		return hotKeys;
+	}
+
+	/**
+	 * 本地缓存命中次数
+	 * @return
+	 */
+	public long getLocalHits() {
+		return localHits.get();
+	}
+
+	public long getThresholdQps() {
+		return thresholdQps;
+	}
+
+	/**
+	 * 窗口结束：用最小堆从候选中选出topK，更新热点，清空计数
+	 * @author Gerryle 2026年10月18日 上午1:57:02
+	 */
+	private void rotate(){
+		Sketch finished=current;
+		current=spare;
+		PriorityQueue<Map.Entry<String, Long>> heap=new PriorityQueue<Map.Entry<String, Long>>(topK+1,
+				new Comparator<Map.Entry<String, Long>>() {
+					@Override
+					public int compare(Map.Entry<String, Long> a, Map.Entry<String, Long> b) {
+						return Long.compare(a.getValue(), b.getValue());
+					}
+				});
+		for(String key:candidates.keySet()){
+			long count=finished.estimate(HASH.hashString(key, StandardCharsets.UTF_8));
+			if(count==0){
+				continue;
+			}
+			heap.add(new AbstractMap.SimpleImmutableEntry<String, Long>(key, count));
+			if(heap.size()>topK){
+				heap.poll();
+			}
+		}
+		admitCount=heap.size()<topK||heap.isEmpty()?0:heap.peek().getValue();
+		List<Map.Entry<String, Long>> top=new ArrayList<Map.Entry<String, Long>>(heap);
+		Collections.sort(top, Collections.reverseOrder(heap.comparator()));
+		Map<String, Long> topMap=new LinkedHashMap<String, Long>();
+		Set<String> previousHot=hotKeys;
+		Set<String> hot=new HashSet<String>();
+		for(Map.Entry<String, Long> entry:top){
+			long qps=entry.getValue()*sampleRate*1000/windowMillis;
+			topMap.put(entry.getKey(), qps);
+			//已经是热点的key降到阈值的一半以下才取消
+			if(qps>=thresholdQps||(qps>=thresholdQps/2&&previousHot.contains(entry.getKey()))){
+				hot.add(entry.getKey());
+			}
+		}
+		candidates.keySet().retainAll(topMap.keySet());
+		topKeys=Collections.unmodifiableMap(topMap);
+		hotKeys=Collections.unmodifiableSet(hot);
+		for(String key:local.keySet()){
+			if(!hot.contains(key)){
+				local.remove(key);
+			}
+		}
+		finished.clear();
+		spare=finished;
+	}
+
+	/**
+	 * count-min sketch，计数器使用AtomicLongArray，计数时不加锁
+	 */
+	private static class Sketch{
+
+		private final AtomicLongArray counters=new AtomicLongArray(DEPTH*WIDTH);
+
+		/**
+		 * 计数加一
+		 * @param hash
+		 * @return 加一后的估算值
+		 */
+		long increment(HashCode hash){
+			long h=hash.asLong();
+			int h1=(int)h;
+			int h2=(int)(h>>>32);
+			long min=Long.MAX_VALUE;
+			for(int i=0;i<DEPTH;i++){
+				min=Math.min(min, counters.incrementAndGet(i*WIDTH+index(h1, h2, i)));
+			}
+			return min;
+		}
+
+		long estimate(HashCode hash){
+			long h=hash.asLong();
+			int h1=(int)h;
+			int h2=(int)(h>>>32);
+			long min=Long.MAX_VALUE;
+			for(int i=0;i<DEPTH;i++){
+				min=Math.min(min, counters.get(i*WIDTH+index(h1, h2, i)));
+			}
+			return min;
+		}
+
+		void clear(){
+			for(int i=0;i<counters.length();i++){
+				counters.set(i, 0);
+			}
+		}
+
+		private static int index(int h1,int h2,int row){
+			return (h1+row*h2)&(WIDTH-1);
+		}
+	}
+
+	private static class LocalEntry{
+
+		final byte[] data;
+
+		final long loadNanos=System.nanoTime();
+
+		LocalEntry(byte[] data){
+			this.data=data;
+		}
+	}
+}
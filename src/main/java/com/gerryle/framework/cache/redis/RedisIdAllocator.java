@@ -0,0 +1,226 @@
+package com.gerryle.framework.cache.redis;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import redis.clients.jedis.Jedis;
+
+/**
+ * 号段模式的id分配器
+ *   每次用INCRBY从redis预留一段id，在本地通过原子计数分配，当前号段用掉80%时异步预取下一段（双缓冲），
+ *   号段大小根据消耗速度自适应：一段用得比目标时间快一倍以上时翻倍，慢一倍以上时减半。
+ *   与getAutoIncreaseId使用同一个计数key时生成的id也不会重复；进程重启时未用完的号段会被跳过，id不连续。
+ *   通过RedisDataSource.getIdAllocator获取，线程安全
+ * @author Gerryle 2026年10月17日 下午10:32:40
+ */
+public class RedisIdAllocator {
+
+	/**剩余id少于该比例时预取下一段*/
+	private static final double PREFETCH_RATIO=0.2;
+
+	private static final ThreadPoolExecutor PREFETCHER=new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread=new Thread(r, "redis-id-prefetch");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	private final RedisDataSource dataSource;
+
+	private final String key;
+
+	private final int minStep;
+
+	private final int maxStep;
+
+	/**期望每个号段使用的毫秒数*/
+	private final long targetMillis;
+
+	private volatile Segment current;
+
+	/**正在预取或者已经预取完成的下一段，由this保护*/
+	private FutureTask<Segment> prefetchTask;
+
+	/**号段大小的锁，预取线程调整号段大小时切换号段的线程可能持有this等待预取结果*/
+	private final Object stepLock=new Object();
+
+	/**下一次预留的大小，由stepLock保护*/
+	private int step;
+
+	private long lastFetchNanos;
+
+	/**
+	 * @param dataSource
+	 * @param key 计数的key
+	 * @param minStep 最小号段大小
+	 * @param maxStep 最大号段大小
+	 * @param targetMillis 期望每个号段使用的毫秒数
+	 */
+	RedisIdAllocator(RedisDataSource dataSource,String key,int minStep,int maxStep,long targetMillis){
+		this.dataSource=dataSource;
+		this.key=key;
+		this.minStep=Math.max(minStep, 1);
+		this.maxStep=Math.max(maxStep, this.minStep);
+		this.targetMillis=targetMillis;
+		this.step=this.minStep;
+	}
+
+	/**
+	 * 获取下一个id
+	 * @return 出错返回-1
+	 * @author Gerryle 2026年10月17日 下午10:35:12
+	 */
+	public long nextId(){
+		while(true){
+			Segment segment=current;
+			if(segment!=null){
+				long id=segment.cursor.getAndIncrement();
+				if(id<=segment.end){
+					//只有分配到预取位置的线程触发预取
+					if(id==segment.prefetchAt){
+						prefetch();
+					}
+					return id;
+				}
+			}
+			if(!switchSegment(segment)){
+				return -1;
+			}
+		}
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * 当前号段大小
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午10:36:02
+	 */
+	public int getStep() {
+		synchronized (stepLock) {
+			return step;
+		}
+	}
+
+	/**
+	 * 当前号段用完后切换到下一段，优先使用预取的号段，没有预取时同步预留
+	 * @param exhausted 用完的号段
+	 * @return 出错返回false
+	 * @author Gerryle 2026年10月17日 下午10:37:20
+	 */
+	private synchronized boolean switchSegment(Segment exhausted){
+		if(current!=exhausted){
+			//其它线程已经切换
+			return true;
+		}
+		Segment next=null;
+		if(prefetchTask!=null){
+			try {
+				next=prefetchTask.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			} catch (ExecutionException e) {
+				e.getCause().printStackTrace();
+			}
+			prefetchTask=null;
+		}
+		if(next==null){
+			next=fetch();
+		}
+		if(next==null){
+			return false;
+		}
+		current=next;
+		return true;
+	}
+
+	private void prefetch(){
+		FutureTask<Segment> task=new FutureTask<Segment>(new Callable<Segment>() {
+			@Override
+			public Segment call() throws Exception {
+				return fetch();
+			}
+		});
+		synchronized (this) {
+			if(prefetchTask!=null){
+				return;
+			}
+			prefetchTask=task;
+		}
+		try {
+			PREFETCHER.execute(task);
+		} catch (RejectedExecutionException e) {
+			task.run();
+		}
+	}
+
+	/**
+	 * 用INCRBY预留一段id
+	 * @return 出错返回null
+	 * @author Gerryle 2026年10月17日 下午10:39:02
+	 */
+	private Segment fetch(){
+		final int size=nextStep();
+		dataSource.bloomPut(key);
+		Long end=dataSource.execute("INCRBY", new RedisCall<Long>() {
+			@Override
+			public Long execute(Jedis jedis) {
+				return jedis.incrBy(key, size);
+			}
+		});
+		return end==null?null:new Segment(end-size+1, end);
+	}
+
+	/**
+	 * 根据上一段的使用时间调整号段大小
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午10:40:10
+	 */
+	private int nextStep(){
+		synchronized (stepLock) {
+			long now=System.nanoTime();
+			if(lastFetchNanos!=0){
+				long elapsed=TimeUnit.NANOSECONDS.toMillis(now-lastFetchNanos);
+				if(elapsed<targetMillis/2){
+					step=(int)Math.min((long)step*2, maxStep);
+				}else if(elapsed>targetMillis*2){
+					step=Math.max(step/2, minStep);
+				}
+			}
+			lastFetchNanos=now;
+			return step;
+		}
+	}
+
+	/**
+	 * 预留的一段id，[start, end]
+	 */
+	private static class Segment{
+
+		final AtomicLong cursor;
+
+		final long end;
+
+		/**分配到该id时预取下一段*/
+		final long prefetchAt;
+
+		Segment(long start,long end){
+			this.cursor=new AtomicLong(start);
+			this.end=end;
+			this.prefetchAt=end-(long)((end-start+1)*PREFETCH_RATIO);
+		}
+	}
+}
@@ -1,5 +1,9 @@
 package com.gerryle.framework.cache.redis;
 
+import java.util.List;
+
+import com.gerryle.framework.cache.codec.ValueCodec;
+
 /**
  * redis初始化参数
  * @author Gerryle 2018年2月9日 下午2:29:58
@@ -24,6 +28,151 @@ public class RedisInitParam {
 	/**获取连接时的最大等待毫秒数，如果超时就抛异常，小于0：阻塞不确定的时间，默认为-1*/
 	private int  maxWaitMillis=5000;
 	
+	/**是否开启进程内近端缓存，默认关闭*/
+	private boolean nearCacheEnabled;
+	
+	/**近端缓存最多缓存的对象数*/
+	private int nearCacheMaxSize=10000;
+	
+	/**近端缓存对象写入后的存活秒数，兜底redis中key自然过期的情况*/
+	private int nearCacheExpireSeconds=60;
+	
+	/**近端缓存失效消息的发布订阅频道，同一个redis上的节点使用相同的频道*/
+	private String nearCacheChannel="gerryle:near-cache:invalidate";
+	
+	/**是否合并并发的单key读取（GET/HGET合并为MGET/HMGET），默认关闭*/
+	private boolean coalesceEnabled;
+	
+	/**合并读取的时间窗口，单位微秒*/
+	private int coalesceWindowMicros=200;
+	
+	/**一次合并的最大请求数*/
+	private int coalesceMaxBatch=128;
+	
+	/**对象值和hash的值的编解码器，为空时使用JSON（与之前版本的数据兼容）；集合成员和列表元素按字节比较，固定使用JSON，切换编解码器不影响已有的set和list*/
+	private ValueCodec valueCodec;
+	
+	/**编码后超过该字节数的对象值和hash的值压缩保存，集合成员和列表元素不压缩，小于等于0不压缩（仍然可以读取已压缩的值），默认不压缩*/
+	private int compressThresholdBytes;
+	
+	/**从节点地址（host:port），密码、槽以及连接池参数与主节点相同；配置后读命令发送到从节点，要回填近端缓存和热点本地副本的读取仍然读主节点*/
+	private List<String> replicas;
+	
+	/**从节点的选择策略，默认轮询*/
+	private RedisReadPolicy readPolicy=RedisReadPolicy.ROUND_ROBIN;
+	
+	/**是否开启对冲读（需要配置从节点），默认关闭*/
+	private boolean hedgeEnabled;
+	
+	/**对冲读的最小等待毫秒数，实际等待时间为最近读延迟的p95与该值中较大的一个*/
+	private int hedgeMinDelayMillis=2;
+	
+	/**是否把运行指标注册到JMX，默认关闭，关闭时仍然可以通过RedisDataSource.getMetrics()获取*/
+	private boolean jmxEnabled;
+	
+	/**批量hash读写时每个HMSET/HMGET命令的最多字段数，过大的命令会长时间阻塞redis*/
+	private int hashBatchSize=500;
+	
+	/**布隆过滤器覆盖的key前缀，为空时不开启；这些前缀下的key必须只通过RedisDataSource写入*/
+	private List<String> bloomFilterPrefixes;
+	
+	/**布隆过滤器的预期元素数（key、hash字段、set成员的总数）*/
+	private long bloomFilterExpectedInsertions=1000000;
+	
+	/**布隆过滤器的目标误判率*/
+	private double bloomFilterFpp=0.01;
+	
+	/**布隆过滤器通过SCAN重建的间隔秒数*/
+	private int bloomFilterRebuildSeconds=3600;
+	
+	/**
+	 * 多个节点共享布隆过滤器时位图在redis中的key，为null时每个节点只使用本地过滤器；
+	 *   本地过滤器只知道本节点的写入，其它节点的写入要到下一次重建（bloomFilterRebuildSeconds）才可见，
+	 *   期间会把其它节点写入的key误判为不存在，所以为null时只有bloomFilterSingleWriter为true才开启过滤器
+	 */
+	private String bloomFilterSharedKey;
+	
+	/**过滤的前缀是否只有本节点写入，只有这种情况下才能不共享位图（bloomFilterSharedKey为null）使用本地过滤器*/
+	private boolean bloomFilterSingleWriter;
+	
+	/**共享布隆过滤器的同步间隔秒数，其它节点的写入最多在该时间后可见，期间本节点会把它们误判为不存在*/
+	private int bloomFilterSyncSeconds=5;
+	
+	/**是否开启延迟写入，开启后通过RedisDataSource.getWriteBehind写入的值先在本地合并，由后台线程批量写入*/
+	private boolean writeBehindEnabled;
+	
+	/**延迟写入缓冲的最大key数量，写满时写入线程等待*/
+	private int writeBehindMaxEntries=100000;
+	
+	/**延迟写入的最长间隔毫秒数*/
+	private int writeBehindFlushMillis=100;
+	
+	/**延迟写入每次pipeline的最大key数量，缓冲的key达到该数量时立即写入*/
+	private int writeBehindBatchSize=500;
+	
+	/**缓冲写满时写入线程最长等待毫秒数，超时后直接写入redis*/
+	private int writeBehindBlockMillis=100;
+	
+	/**
+	 * 是否把标志保存在值的头部而不是单独的key_flag，写入带标志的值时同时删除旧的标志key；
+	 * 两种格式总是都能读取，应在所有节点都升级后再开启
+	 */
+	private boolean valueEnvelopeEnabled;
+	
+	/**是否开启热点key检测，对单key读取抽样统计*/
+	private boolean hotKeyEnabled;
+	
+	/**热点key检测的抽样率，每多少次读取抽样一次*/
+	private int hotKeySampleRate=16;
+	
+	/**跟踪访问最多的key数量*/
+	private int hotKeyTopK=32;
+	
+	/**热点key的统计窗口毫秒数*/
+	private int hotKeyWindowMillis=1000;
+	
+	/**估算的每秒访问次数达到该值时为热点key*/
+	private int hotKeyThresholdQps=1000;
+	
+	/**是否把热点key自动提升到本地缓存，其它节点的写入最多在hotKeyLocalTtlMillis后可见*/
+	private boolean hotKeyPromoteEnabled;
+	
+	/**热点key本地缓存的存活毫秒数*/
+	private int hotKeyLocalTtlMillis=1000;
+	
+	/**健康检查PING的间隔毫秒数，小于等于0时不开启*/
+	private int healthCheckMillis=1000;
+	
+	/**健康检查PING的超时毫秒数*/
+	private int healthCheckTimeoutMillis=500;
+	
+	/**是否开启熔断，redis不可用时命令直接失败，不在连接池和连接超时上阻塞*/
+	private boolean circuitBreakerEnabled=true;
+	
+	/**熔断的连续连接错误次数*/
+	private int circuitFailureThreshold=5;
+	
+	/**熔断后进入半开状态的最长毫秒数，健康检查成功时提前进入*/
+	private int circuitOpenMillis=5000;
+	
+	/**值的字节数超过该值时打印警告（已经分块保存的值除外），0为不检查*/
+	private int bigValueWarnBytes=512*1024;
+	
+	/**值的字节数上限，超过时拒绝写入并抛出IllegalArgumentException，0为不限制*/
+	private int bigValueMaxBytes=0;
+	
+	/**大于该字节数的setValue值拆分为多个该大小的分块key加一个清单保存，0为不分块；共享数据的所有节点应使用相同的配置*/
+	private int bigValueChunkBytes=0;
+	
+	/**是否开启多路复用连接，开启后单key读写等高频命令通过少量共享连接pipeline发送，不再占用连接池*/
+	private boolean multiplexEnabled;
+	
+	/**多路复用的连接数*/
+	private int multiplexConnections=2;
+	
+	/**多路复用连接建立连接以及等待响应的超时毫秒数*/
+	private int multiplexTimeoutMillis=5000;
+	
 	/**
 	 * 一个简单测试使用的初始化参数（ip喝端口）
 	 * @param server
@@ -94,12 +243,402 @@ public class RedisInitParam {
 		this.maxWaitMillis = maxWaitMillis;
 	}
 	
+	public boolean isNearCacheEnabled() {
+		return nearCacheEnabled;
+	}
+
+	public void setNearCacheEnabled(boolean nearCacheEnabled) {
+		this.nearCacheEnabled = nearCacheEnabled;
+	}
+
+	public int getNearCacheMaxSize() {
+		return nearCacheMaxSize;
+	}
+
+	public void setNearCacheMaxSize(int nearCacheMaxSize) {
+		this.nearCacheMaxSize = nearCacheMaxSize;
+	}
+
+	public int getNearCacheExpireSeconds() {
+		return nearCacheExpireSeconds;
+	}
+
+	public void setNearCacheExpireSeconds(int nearCacheExpireSeconds) {
+		this.nearCacheExpireSeconds = nearCacheExpireSeconds;
+	}
+
+	public String getNearCacheChannel() {
+		return nearCacheChannel;
+	}
+
+	public void setNearCacheChannel(String nearCacheChannel) {
+		this.nearCacheChannel = nearCacheChannel;
+	}
+	
+	public boolean isCoalesceEnabled() {
+		return coalesceEnabled;
+	}
+
+	public void setCoalesceEnabled(boolean coalesceEnabled) {
+		this.coalesceEnabled = coalesceEnabled;
+	}
+
+	public int getCoalesceWindowMicros() {
+		return coalesceWindowMicros;
+	}
+
+	public void setCoalesceWindowMicros(int coalesceWindowMicros) {
+		this.coalesceWindowMicros = coalesceWindowMicros;
+	}
+
+	public int getCoalesceMaxBatch() {
+		return coalesceMaxBatch;
+	}
+
+	public void setCoalesceMaxBatch(int coalesceMaxBatch) {
+		this.coalesceMaxBatch = coalesceMaxBatch;
+	}
+
+	public ValueCodec getValueCodec() {
+		return valueCodec;
+	}
+
+	public void setValueCodec(ValueCodec valueCodec) {
+		this.valueCodec = valueCodec;
+	}
+
+	public int getCompressThresholdBytes() {
+		return compressThresholdBytes;
+	}
+
+	public void setCompressThresholdBytes(int compressThresholdBytes) {
+		this.compressThresholdBytes = compressThresholdBytes;
+	}
+
+	public List<String> getReplicas() {
+		return replicas;
+	}
+
+	public void setReplicas(List<String> replicas) {
+		this.replicas = replicas;
+	}
+
+	public RedisReadPolicy getReadPolicy() {
+		return readPolicy;
+	}
+
+	public void setReadPolicy(RedisReadPolicy readPolicy) {
+		this.readPolicy = readPolicy;
+	}
+
+	public boolean isHedgeEnabled() {
+		return hedgeEnabled;
+	}
+
+	public void setHedgeEnabled(boolean hedgeEnabled) {
+		this.hedgeEnabled = hedgeEnabled;
+	}
+
+	public int getHedgeMinDelayMillis() {
+		return hedgeMinDelayMillis;
+	}
+
+	public void setHedgeMinDelayMillis(int hedgeMinDelayMillis) {
+		this.hedgeMinDelayMillis = hedgeMinDelayMillis;
+	}
+
+	public boolean isJmxEnabled() {
+		return jmxEnabled;
+	}
+
+	public void setJmxEnabled(boolean jmxEnabled) {
+		this.jmxEnabled = jmxEnabled;
+	}
+
+	public int getHashBatchSize() {
+		return hashBatchSize;
+	}
+
+	public void setHashBatchSize(int hashBatchSize) {
+		this.hashBatchSize = hashBatchSize;
+	}
+
+	public List<String> getBloomFilterPrefixes() {
+		return bloomFilterPrefixes;
+	}
+
+	public void setBloomFilterPrefixes(List<String> bloomFilterPrefixes) {
+		this.bloomFilterPrefixes = bloomFilterPrefixes;
+	}
+
+	public long getBloomFilterExpectedInsertions() {
+		return bloomFilterExpectedInsertions;
+	}
+
+	public void setBloomFilterExpectedInsertions(long bloomFilterExpectedInsertions) {
+		this.bloomFilterExpectedInsertions = bloomFilterExpectedInsertions;
+	}
+
+	public double getBloomFilterFpp() {
+		return bloomFilterFpp;
+	}
+
+	public void setBloomFilterFpp(double bloomFilterFpp) {
+		this.bloomFilterFpp = bloomFilterFpp;
+	}
+
+	public int getBloomFilterRebuildSeconds() {
+		return bloomFilterRebuildSeconds;
+	}
+
+	public void setBloomFilterRebuildSeconds(int bloomFilterRebuildSeconds) {
+		this.bloomFilterRebuildSeconds = bloomFilterRebuildSeconds;
+	}
+
+	public String getBloomFilterSharedKey() {
+		return bloomFilterSharedKey;
+	}
+
+	public void setBloomFilterSharedKey(String bloomFilterSharedKey) {
+		this.bloomFilterSharedKey = bloomFilterSharedKey;
+	}
+
+	public boolean isBloomFilterSingleWriter() {
+		return bloomFilterSingleWriter;
+	}
+
+	public void setBloomFilterSingleWriter(boolean bloomFilterSingleWriter) {
+		this.bloomFilterSingleWriter = bloomFilterSingleWriter;
+	}
+
+	public int getBloomFilterSyncSeconds() {
+		return bloomFilterSyncSeconds;
+	}
+
+	public void setBloomFilterSyncSeconds(int bloomFilterSyncSeconds) {
+		this.bloomFilterSyncSeconds = bloomFilterSyncSeconds;
+	}
+	
+	public boolean isWriteBehindEnabled() {
+		return writeBehindEnabled;
+	}
+
+	public void setWriteBehindEnabled(boolean writeBehindEnabled) {
+		this.writeBehindEnabled = writeBehindEnabled;
+	}
+
+	public int getWriteBehindMaxEntries() {
+		return writeBehindMaxEntries;
+	}
+
+	public void setWriteBehindMaxEntries(int writeBehindMaxEntries) {
+		this.writeBehindMaxEntries = writeBehindMaxEntries;
+	}
+
+	public int getWriteBehindFlushMillis() {
+		return writeBehindFlushMillis;
+	}
+
+	public void setWriteBehindFlushMillis(int writeBehindFlushMillis) {
+		this.writeBehindFlushMillis = writeBehindFlushMillis;
+	}
+
+	public int getWriteBehindBatchSize() {
+		return writeBehindBatchSize;
+	}
+
+	public void setWriteBehindBatchSize(int writeBehindBatchSize) {
+		this.writeBehindBatchSize = writeBehindBatchSize;
+	}
+
+	public int getWriteBehindBlockMillis() {
+		return writeBehindBlockMillis;
+	}
+
+	public void setWriteBehindBlockMillis(int writeBehindBlockMillis) {
+		this.writeBehindBlockMillis = writeBehindBlockMillis;
+	}
+
+	public int getHealthCheckMillis() {
+		return healthCheckMillis;
+	}
+
+	public void setHealthCheckMillis(int healthCheckMillis) {
+		this.healthCheckMillis = healthCheckMillis;
+	}
+
+	public int getHealthCheckTimeoutMillis() {
+		return healthCheckTimeoutMillis;
+	}
+
+	public void setHealthCheckTimeoutMillis(int healthCheckTimeoutMillis) {
+		this.healthCheckTimeoutMillis = healthCheckTimeoutMillis;
+	}
+
+	public boolean isCircuitBreakerEnabled() {
+		return circuitBreakerEnabled;
+	}
+
+	public void setCircuitBreakerEnabled(boolean circuitBreakerEnabled) {
+		this.circuitBreakerEnabled = circuitBreakerEnabled;
+	}
+
+	public int getCircuitFailureThreshold() {
+		return circuitFailureThreshold;
+	}
+
+	public void setCircuitFailureThreshold(int circuitFailureThreshold) {
+		this.circuitFailureThreshold = circuitFailureThreshold;
+	}
+
+	public int getCircuitOpenMillis() {
+		return circuitOpenMillis;
+	}
+
+	public void setCircuitOpenMillis(int circuitOpenMillis) {
+		this.circuitOpenMillis = circuitOpenMillis;
+	}
+
+	public boolean isValueEnvelopeEnabled() {
+		return valueEnvelopeEnabled;
+	}
+
+	public void setValueEnvelopeEnabled(boolean valueEnvelopeEnabled) {
+		this.valueEnvelopeEnabled = valueEnvelopeEnabled;
+	}
+
+	public boolean isHotKeyEnabled() {
+		return hotKeyEnabled;
+	}
+
+	public void setHotKeyEnabled(boolean hotKeyEnabled) {
+		this.hotKeyEnabled = hotKeyEnabled;
+	}
+
+	public int getHotKeySampleRate() {
+		return hotKeySampleRate;
+	}
+
+	public void setHotKeySampleRate(int hotKeySampleRate) {
+		this.hotKeySampleRate = hotKeySampleRate;
+	}
+
+	public int getHotKeyTopK() {
+		return hotKeyTopK;
+	}
+
+	public void setHotKeyTopK(int hotKeyTopK) {
+		this.hotKeyTopK = hotKeyTopK;
+	}
+
+	public int getHotKeyWindowMillis() {
+		return hotKeyWindowMillis;
+	}
+
+	public void setHotKeyWindowMillis(int hotKeyWindowMillis) {
+		this.hotKeyWindowMillis = hotKeyWindowMillis;
+	}
+
+	public int getHotKeyThresholdQps() {
+		return hotKeyThresholdQps;
+	}
+
+	public void setHotKeyThresholdQps(int hotKeyThresholdQps) {
+		this.hotKeyThresholdQps = hotKeyThresholdQps;
+	}
+
+	public boolean isHotKeyPromoteEnabled() {
+		return hotKeyPromoteEnabled;
+	}
+
+	public void setHotKeyPromoteEnabled(boolean hotKeyPromoteEnabled) {
+		this.hotKeyPromoteEnabled = hotKeyPromoteEnabled;
+	}
+
+	public int getHotKeyLocalTtlMillis() {
+		return hotKeyLocalTtlMillis;
+	}
+
+	public void setHotKeyLocalTtlMillis(int hotKeyLocalTtlMillis) {
+		this.hotKeyLocalTtlMillis = hotKeyLocalTtlMillis;
+	}
+
+	public int getBigValueWarnBytes() {
+		return bigValueWarnBytes;
+	}
+
+	public void setBigValueWarnBytes(int bigValueWarnBytes) {
+		this.bigValueWarnBytes = bigValueWarnBytes;
+	}
+
+	public int getBigValueMaxBytes() {
+		return bigValueMaxBytes;
+	}
+
+	public void setBigValueMaxBytes(int bigValueMaxBytes) {
+		this.bigValueMaxBytes = bigValueMaxBytes;
+	}
+
+	public int getBigValueChunkBytes() {
+		return bigValueChunkBytes;
+	}
+
+	public void setBigValueChunkBytes(int bigValueChunkBytes) {
+		this.bigValueChunkBytes = bigValueChunkBytes;
+	}
+
+	public boolean isMultiplexEnabled() {
+		return multiplexEnabled;
+	}
+
+	public void setMultiplexEnabled(boolean multiplexEnabled) {
+		this.multiplexEnabled = multiplexEnabled;
+	}
+
+	public int getMultiplexConnections() {
+		return multiplexConnections;
+	}
+
+	public void setMultiplexConnections(int multiplexConnections) {
+		this.multiplexConnections = multiplexConnections;
+	}
+
+	public int getMultiplexTimeoutMillis() {
+		return multiplexTimeoutMillis;
+	}
+
+	public void setMultiplexTimeoutMillis(int multiplexTimeoutMillis) {
+		this.multiplexTimeoutMillis = multiplexTimeoutMillis;
+	}
+
 	@Override
 	public String toString() {
 		// TODO Auto-generated method stub
 		return "RedisInitParam [server="+server+", port="+port+", password="+password
 				+", database="+database+", maxIdleCount="+maxIdleCount+", maxTotalCount="
-				+maxTotalCount+", maxWaitMillis="+maxWaitMillis+"]";
+				+maxTotalCount+", maxWaitMillis="+maxWaitMillis+", nearCacheEnabled="+nearCacheEnabled
+				+", nearCacheMaxSize="+nearCacheMaxSize+", nearCacheExpireSeconds="+nearCacheExpireSeconds
+				+", nearCacheChannel="+nearCacheChannel+", coalesceEnabled="+coalesceEnabled
+				+", coalesceWindowMicros="+coalesceWindowMicros+", coalesceMaxBatch="+coalesceMaxBatch
+				+", valueCodec="+valueCodec+", compressThresholdBytes="+compressThresholdBytes
+				+", replicas="+replicas+", readPolicy="+readPolicy+", hedgeEnabled="+hedgeEnabled
+				+", hedgeMinDelayMillis="+hedgeMinDelayMillis+", jmxEnabled="+jmxEnabled
+				+", hashBatchSize="+hashBatchSize+", bloomFilterPrefixes="+bloomFilterPrefixes
+				+", bloomFilterExpectedInsertions="+bloomFilterExpectedInsertions+", bloomFilterFpp="+bloomFilterFpp
+				+", bloomFilterRebuildSeconds="+bloomFilterRebuildSeconds+", bloomFilterSharedKey="+bloomFilterSharedKey
+				+", bloomFilterSingleWriter="+bloomFilterSingleWriter
+				+", bloomFilterSyncSeconds="+bloomFilterSyncSeconds+", writeBehindEnabled="+writeBehindEnabled
+				+", writeBehindMaxEntries="+writeBehindMaxEntries+", writeBehindFlushMillis="+writeBehindFlushMillis
+				+", writeBehindBatchSize="+writeBehindBatchSize+", writeBehindBlockMillis="+writeBehindBlockMillis+", valueEnvelopeEnabled="+valueEnvelopeEnabled
+				+", hotKeyEnabled="+hotKeyEnabled+", hotKeySampleRate="+hotKeySampleRate+", hotKeyTopK="+hotKeyTopK
+				+", hotKeyWindowMillis="+hotKeyWindowMillis+", hotKeyThresholdQps="+hotKeyThresholdQps
+				+", hotKeyPromoteEnabled="+hotKeyPromoteEnabled+", hotKeyLocalTtlMillis="+hotKeyLocalTtlMillis
+				+", healthCheckMillis="+healthCheckMillis+", healthCheckTimeoutMillis="+healthCheckTimeoutMillis
+				+", circuitBreakerEnabled="+circuitBreakerEnabled+", circuitFailureThreshold="+circuitFailureThreshold
+				+", circuitOpenMillis="+circuitOpenMillis+", bigValueWarnBytes="+bigValueWarnBytes
+				+", bigValueMaxBytes="+bigValueMaxBytes+", bigValueChunkBytes="+bigValueChunkBytes
+				+", multiplexEnabled="+multiplexEnabled+", multiplexConnections="+multiplexConnections
+				+", multiplexTimeoutMillis="+multiplexTimeoutMillis+"]";
 	}
 	
 	
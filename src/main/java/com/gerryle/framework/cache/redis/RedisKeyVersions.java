@@ -0,0 +1,43 @@
+package com.gerryle.framework.cache.redis;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 按key分段的失效版本号，本地缓存回填前比较读redis前后的版本，版本变化说明期间key可能被修改，放弃回填。
+ *   只有同一分段的key失效才会影响回填，其它key的写入不会取消回填；全部失效时所有key的版本都变化
+ * @author Gerryle 2026年10月18日 上午3:30:12
+ */
+final class RedisKeyVersions {
+
+	/**分段数，必须为2的幂*/
+	private static final int STRIPES=4096;
+
+	private final AtomicLongArray versions=new AtomicLongArray(STRIPES);
+
+	/**全部失效的次数*/
+	private final AtomicLong all=new AtomicLong();
+
+	/**
+	 * key当前的版本号，两个计数都只增不减，任何一个递增都会使和变化
+	 * @param key
+	 * @return
+	 * @author Gerryle 2026年10月18日 上午3:31:02
+	 */
+	long get(String key){
+		return all.get()+versions.get(index(key));
+	}
+
+	void increment(String key){
+		versions.incrementAndGet(index(key));
+	}
+
+	void incrementAll(){
+		all.incrementAndGet();
+	}
+
+	private static int index(String key){
+		int hash=key.hashCode();
+		return (hash^(hash>>>16))&(STRIPES-1);
+	}
+}
@@ -0,0 +1,94 @@
+package com.gerryle.framework.cache.redis;
+
+import java.lang.reflect.Type;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 只读的懒解码map视图，持有redis返回的原始字节，字段在第一次访问时才解码并缓存解码结果。非线程安全
+ * @author Gerryle 2026年10月17日 下午2:12:40
+ */
+class RedisLazyMap<T> extends AbstractMap<String, T> {
+
+	private final RedisDataSource dataSource;
+
+	private final Map<String, byte[]> raw;
+
+	private final Type type;
+
+	private final Map<String, T> decoded=new HashMap<String, T>();
+
+	RedisLazyMap(RedisDataSource dataSource,Map<String, byte[]> raw,Type type){
+		this.dataSource=dataSource;
+		this.raw=raw;
+		this.type=type;
+	}
+
+	@Override
+	public int size() {
+		return raw.size();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return raw.containsKey(key);
+	}
+
+	@Override
+	public T get(Object key) {
+		if(!(key instanceof String)||!raw.containsKey(key)){
+			return null;
+		}
+		return decode((String)key);
+	}
+
+	@Override
+	public Set<String> keySet() {
+		return raw.keySet();
+	}
+
+	@Override
+	public Set<Map.Entry<String, T>> entrySet() {
+		return new AbstractSet<Map.Entry<String,T>>() {
+			@Override
+			public Iterator<Map.Entry<String, T>> iterator() {
+				final Iterator<String> keys=raw.keySet().iterator();
+				return new Iterator<Map.Entry<String,T>>() {
+					@Override
+					public boolean hasNext() {
+						return keys.hasNext();
+					}
+
+					@Override
+					public Map.Entry<String, T> next() {
+						String key=keys.next();
+						return new SimpleImmutableEntry<String, T>(key, decode(key));
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return raw.size();
+			}
+		};
+	}
+
+	private T decode(String key){
+		T value=decoded.get(key);
+		if(value==null){
+			value=dataSource.decode(raw.get(key), type);
+			decoded.put(key, value);
+		}
+		return value;
+	}
+}
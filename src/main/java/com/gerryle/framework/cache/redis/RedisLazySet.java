@@ -0,0 +1,68 @@
+package com.gerryle.framework.cache.redis;
+
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.AbstractSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * 只读的懒解码set视图，持有redis返回的原始字节，迭代时才解码；
+ * contains把参数编码后与原始字节比较，不需要解码整个集合
+ * @author Gerryle 2026年10月17日 下午2:20:08
+ */
+class RedisLazySet<T> extends AbstractSet<T> {
+
+	private final RedisDataSource dataSource;
+
+	private final Set<byte[]> raw;
+
+	/**按内容比较的原始字节，第一次contains时才创建*/
+	private Set<ByteBuffer> index;
+
+	private final Type type;
+
+	RedisLazySet(RedisDataSource dataSource,Set<byte[]> raw,Type type){
+		this.dataSource=dataSource;
+		this.raw=raw;
+		this.type=type;
+	}
+
+	@Override
+	public int size() {
+		return raw.size();
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if(index==null){
+			index=new HashSet<ByteBuffer>(raw.size()*4/3+1);
+			for(byte[] data:raw){
+				index.add(ByteBuffer.wrap(data));
+			}
+		}
+		return index.contains(ByteBuffer.wrap(dataSource.encodeMember(o)));
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		final Iterator<byte[]> it=raw.iterator();
+		return new Iterator<T>() {
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			@Override
+			public T next() {
+				return dataSource.decodeMember(it.next(), type);
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
@@ -0,0 +1,59 @@
+package com.gerryle.framework.cache.redis;
+
+/**
+ * 成功获取的锁租约
+ * @author Gerryle 2026年10月17日 下午10:10:25
+ */
+public class RedisLease {
+
+	private final RedisLock lock;
+
+	private final String token;
+
+	private final long fencingToken;
+
+	RedisLease(RedisLock lock,String token,long fencingToken){
+		this.lock=lock;
+		this.token=token;
+		this.fencingToken=fencingToken;
+	}
+
+	/**
+	 * 续期，长任务应在租约到期前定期调用
+	 * @param leaseMillis 从现在开始的租约毫秒数
+	 * @return 仍然持有锁并续期成功返回true，租约已经过期（锁可能属于其它持有者）返回false
+	 * @author Gerryle 2026年10月17日 下午10:11:40
+	 */
+	public boolean extend(int leaseMillis){
+		return lock.extend(token, leaseMillis);
+	}
+
+	/**
+	 * 释放锁，只删除自己持有的锁
+	 * @return 释放成功返回true，租约已经过期返回false
+	 * @author Gerryle 2026年10月17日 下午10:12:20
+	 */
+	public boolean release(){
+		return lock.release(token);
+	}
+
+	public String getName() {
+		return lock.getName();
+	}
+
+	/**
+	 * 持有者标识
+	 * @return
+	 */
+	public String getToken() {
+		return token;
+	}
+
+	/**
+	 * 栅栏令牌，同一个锁每次获取单调递增
+	 * @return
+	 */
+	public long getFencingToken() {
+		return fencingToken;
+	}
+}
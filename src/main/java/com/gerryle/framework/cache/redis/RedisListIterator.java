@@ -0,0 +1,80 @@
+package com.gerryle.framework.cache.redis;
+
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import redis.clients.jedis.Jedis;
+
+/**
+ * 按块LRANGE懒加载的list迭代器，每块单独从连接池借用连接，元素在next时才解码。
+ * 迭代期间list被修改时，按索引分块可能导致元素重复或遗漏
+ * @author Gerryle 2026年10月17日 下午2:05:12
+ */
+class RedisListIterator<T> implements Iterator<T> {
+
+	private final RedisDataSource dataSource;
+
+	private final byte[] key;
+
+	private final Type type;
+
+	private final int pageSize;
+
+	/**下一块的起始索引*/
+	private long start;
+
+	private boolean finished;
+
+	private Iterator<byte[]> page=Collections.<byte[]>emptyList().iterator();
+
+	RedisListIterator(RedisDataSource dataSource,String key,Type type,int pageSize){
+		this.dataSource=dataSource;
+		this.key=RedisDataSource.rawKey(key);
+		this.type=type;
+		this.pageSize=pageSize>0?pageSize:RedisScanIterator.DEFAULT_PAGE_SIZE;
+	}
+
+	@Override
+	public boolean hasNext() {
+		while(!page.hasNext()){
+			if(finished){
+				return false;
+			}
+			page=nextPage().iterator();
+		}
+		return true;
+	}
+
+	@Override
+	public T next() {
+		if(!hasNext()){
+			throw new NoSuchElementException();
+		}
+		return dataSource.decodeMember(page.next(), type);
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	private List<byte[]> nextPage(){
+		final long from=start;
+		final long to=start+pageSize-1;
+		List<byte[]> list=dataSource.readExecute("LRANGE", new RedisCall<List<byte[]>>() {
+			@Override
+			public List<byte[]> execute(Jedis jedis) {
+				return jedis.lrange(key, from, to);
+			}
+		});
+		if(list==null){
+			throw new IllegalStateException("redis lrange failed at index "+from);
+		}
+		start+=list.size();
+		finished=list.size()<pageSize;
+		return list;
+	}
+}
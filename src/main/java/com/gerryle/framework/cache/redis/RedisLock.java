@@ -0,0 +1,138 @@
+package com.gerryle.framework.cache.redis;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import redis.clients.jedis.Jedis;
+
+/**
+ * 基于redis的分布式锁（租约）
+ *   获取锁时在lua脚本中原子完成SET NX PX和栅栏令牌的递增，不会留下没有过期时间的锁；
+ *   释放和续期都先比较持有者标识，租约过期后不会误删或者续期其它持有者的锁；
+ *   栅栏令牌随每次成功获取单调递增，写入外部存储时带上令牌，存储拒绝比已见过的令牌更小的写入，
+ *   可以防止租约过期后旧持有者的延迟写入；
+ *   等待锁时使用带抖动的指数退避，每次等待不超过锁的剩余时间，不会空转。
+ *   通过RedisDataSource.getLock获取，线程安全
+ * @author Gerryle 2026年10月17日 下午10:02:18
+ */
+public class RedisLock {
+
+	/**
+	 * 栅栏令牌计数的key，所有锁共用一个不过期的计数，对每个锁同样单调递增，
+	 * 不会为每个锁留下一个不过期的key
+	 */
+	public static final String FENCE_KEY="gerryle:lock:fence";
+
+	/**第一次重试前的最短等待毫秒数*/
+	private static final long MIN_BACKOFF_MILLIS=5;
+
+	/**两次重试之间的最长等待毫秒数*/
+	private static final long MAX_BACKOFF_MILLIS=500;
+
+	private final RedisDataSource dataSource;
+
+	private final String name;
+
+	RedisLock(RedisDataSource dataSource,String name){
+		this.dataSource=dataSource;
+		this.name=name;
+	}
+
+	/**
+	 * 尝试获取锁，不等待
+	 * @param leaseMillis 租约毫秒数，持有者没有续期时到期自动释放
+	 * @return 获取成功返回租约，失败或者出错返回null
+	 * @author Gerryle 2026年10月17日 下午10:04:30
+	 */
+	public RedisLease tryAcquire(int leaseMillis){
+		String token=UUID.randomUUID().toString();
+		long result=acquireOnce(token, leaseMillis);
+		return result>0?new RedisLease(this, token, result):null;
+	}
+
+	/**
+	 * 获取锁，在等待时间内按带抖动的指数退避重试
+	 * @param leaseMillis 租约毫秒数
+	 * @param waitMillis 最长等待毫秒数
+	 * @return 获取成功返回租约，超时返回null
+	 * @throws InterruptedException
+	 * @author Gerryle 2026年10月17日 下午10:05:40
+	 */
+	public RedisLease acquire(int leaseMillis,long waitMillis) throws InterruptedException{
+		String token=UUID.randomUUID().toString();
+		long deadline=System.nanoTime()+TimeUnit.MILLISECONDS.toNanos(waitMillis);
+		long backoff=MIN_BACKOFF_MILLIS;
+		while(true){
+			long result=acquireOnce(token, leaseMillis);
+			if(result>0){
+				return new RedisLease(this, token, result);
+			}
+			long remaining=TimeUnit.NANOSECONDS.toMillis(deadline-System.nanoTime());
+			if(remaining<=0){
+				return null;
+			}
+			//decorrelated jitter：在[最短等待, 上次等待*3]之间随机，避免多个等待者同时重试
+			backoff=Math.min(MAX_BACKOFF_MILLIS, ThreadLocalRandom.current().nextLong(MIN_BACKOFF_MILLIS, backoff*3+1));
+			//锁很快到期时提前重试，出错时result为0按退避等待
+			long sleep=result<0?Math.min(backoff, -result):backoff;
+			Thread.sleep(Math.max(1, Math.min(sleep, remaining)));
+		}
+	}
+
+	/**
+	 * 锁当前是否被持有，不经过布隆过滤器
+	 * @return
+	 * @author Gerryle 2026年10月18日 上午3:06:20
+	 */
+	public boolean isLocked(){
+		return dataSource.existsInRedis(name);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * 执行一次获取
+	 * @param token
+	 * @param leaseMillis
+	 * @return 成功返回栅栏令牌（大于0），锁被占用返回剩余毫秒数的相反数，出错返回0
+	 * @author Gerryle 2026年10月17日 下午10:08:02
+	 */
+	private long acquireOnce(final String token,final int leaseMillis){
+		dataSource.bloomPut(name);
+		Long result=dataSource.execute("LOCK_ACQUIRE", new RedisCall<Long>() {
+			@Override
+			public Long execute(Jedis jedis) {
+				return (Long)RedisScripts.LOCK_ACQUIRE.eval(jedis, Arrays.asList(name, FENCE_KEY),
+						Arrays.asList(token, String.valueOf(leaseMillis)));
+			}
+		});
+		return result==null?0:result;
+	}
+
+	boolean release(final String token){
+		Long result=dataSource.execute("LOCK_RELEASE", new RedisCall<Long>() {
+			@Override
+			public Long execute(Jedis jedis) {
+				return (Long)RedisScripts.LOCK_RELEASE.eval(jedis, Collections.singletonList(name),
+						Collections.singletonList(token));
+			}
+		});
+		return result!=null&&result==1;
+	}
+
+	boolean extend(final String token,final int leaseMillis){
+		Long result=dataSource.execute("LOCK_EXTEND", new RedisCall<Long>() {
+			@Override
+			public Long execute(Jedis jedis) {
+				return (Long)RedisScripts.LOCK_EXTEND.eval(jedis, Collections.singletonList(name),
+						Arrays.asList(token, String.valueOf(leaseMillis)));
+			}
+		});
+		return result!=null&&result==1;
+	}
+}
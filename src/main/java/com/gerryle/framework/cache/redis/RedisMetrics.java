@@ -0,0 +1,383 @@
+package com.gerryle.framework.cache.redis;
+
+import java.lang.management.ManagementFactory;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * RedisDataSource的运行指标
+ *   每个命令的延迟直方图、错误数和超时数，借用连接的等待时间，读写值的大小分布以及连接池的连接数；
+ *   记录都是无锁的原子操作。通过getMetrics()拉取，或者开启jmxEnabled后通过JMX查看
+ * @author Gerryle 2026年10月17日 下午8:20:12
+ */
+public class RedisMetrics implements RedisMetricsMXBean {
+
+	private static final String JMX_DOMAIN="com.gerryle.framework.cache.redis";
+
+	private final RedisPool pool;
+
+	/**所有统计，reset时整体替换*/
+	private volatile State state=new State();
+
+	private ObjectName objectName;
+
+	/**热点key检测，未开启时为null*/
+	private volatile RedisHotKeyDetector hotKeyDetector;
+
+	RedisMetrics(RedisPool pool){
+		this.pool=pool;
+	}
+
+	/**
+	 * 记录一次命令的执行
+	 * @param command
+	 * @param startNanos
+	 * @param error 成功为null
+	 * @author Gerryle 2026年10月17日 下午8:22:30
+	 */
+	void recordCommand(String command,long startNanos,Throwable error){
+		CommandMetrics metrics=state.command(command);
+		metrics.latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime()-startNanos));
+		if(error!=null){
+			recordError(metrics, error);
+		}
+	}
+
+	/**
+	 * 记录一次不计入延迟的错误（从节点读失败后回退等）
+	 * @param command
+	 * @param error
+	 * @author Gerryle 2026年10月17日 下午8:23:12
+	 */
+	void recordError(String command,Throwable error){
+		recordError(state.command(command), error);
+	}
+
+	/**
+	 * 记录一次借用连接
+	 * @param startNanos
+	 * @param error 成功为null
+	 * @author Gerryle 2026年10月17日 下午8:24:02
+	 */
+	void recordBorrow(long startNanos,Throwable error){
+		State current=state;
+		current.borrowWait.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime()-startNanos));
+		if(error!=null){
+			current.borrowFailures.increment();
+		}
+	}
+
+	void recordRead(int bytes){
+		state.readBytes.record(bytes);
+	}
+
+	void recordWrite(int bytes){
+		state.writeBytes.record(bytes);
+	}
+
+	/**
+	 * 记录一次超过警告字节数、没有分块的写入
+	 * @return 累计次数
+	 * @author Gerryle 2026年10月18日 上午2:16:10
+	 */
+	long recordBigValue(){
+		State current=state;
+		current.bigValues.increment();
+		return current.bigValues.sum();
+	}
+
+	void recordBigValueRejected(){
+		state.bigValueRejected.increment();
+	}
+
+	void recordChunkedWrite(){
+		state.chunkedWrites.increment();
+	}
+
+	/**
+	 * 注册到平台MBeanServer，重复注册时忽略
+	 * @param name
+	 * @author Gerryle 2026年10月17日 下午8:25:10
+	 */
+	synchronized void register(String name){
+		try {
+			MBeanServer server=ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName=new ObjectName(JMX_DOMAIN+":type=RedisMetrics,name="+ObjectName.quote(name));
+			if(!server.isRegistered(objectName)){
+				server.registerMBean(this, objectName);
+				this.objectName=objectName;
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	synchronized void unregister(){
+		if(objectName==null){
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		objectName=null;
+	}
+
+	/**
+	 * 命令的延迟直方图（微秒）
+	 * @param command
+	 * @return 没有执行过该命令返回null
+	 * @author Gerryle 2026年10月17日 下午8:26:20
+	 */
+	public RedisHistogram getCommandLatency(String command){
+		CommandMetrics metrics=state.commands.get(command);
+		return metrics==null?null:metrics.latency;
+	}
+
+	/**
+	 * 命令的统计快照
+	 * @param command
+	 * @return 没有执行过该命令返回null
+	 * @author Gerryle 2026年10月17日 下午8:26:52
+	 */
+	public RedisCommandStats getCommandStats(String command){
+		CommandMetrics metrics=state.commands.get(command);
+		return metrics==null?null:metrics.snapshot(command);
+	}
+
+	/**
+	 * 借用连接的等待时间直方图（微秒）
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午8:27:30
+	 */
+	public RedisHistogram getBorrowWait(){
+		return state.borrowWait;
+	}
+
+	/**
+	 * 读取的值大小直方图（字节）
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午8:27:58
+	 */
+	public RedisHistogram getReadBytes(){
+		return state.readBytes;
+	}
+
+	/**
+	 * 写入的值大小直方图（字节）
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午8:28:20
+	 */
+	public RedisHistogram getWriteBytes(){
+		return state.writeBytes;
+	}
+
+	@Override
+	public int getPoolActive() {
+		return pool.getNumActive();
+	}
+
+	@Override
+	public int getPoolIdle() {
+		return pool.getNumIdle();
+	}
+
+	@Override
+	public int getPoolWaiters() {
+		return pool.getNumWaiters();
+	}
+
+	@Override
+	public long getBorrowCount() {
+		return state.borrowWait.getCount();
+	}
+
+	@Override
+	public long getBorrowFailures() {
+		return state.borrowFailures.sum();
+	}
+
+	@Override
+	public long getBorrowWaitP50Micros() {
+		return state.borrowWait.getPercentile(50);
+	}
+
+	@Override
+	public long getBorrowWaitP99Micros() {
+		return state.borrowWait.getPercentile(99);
+	}
+
+	@Override
+	public long getBorrowWaitMaxMicros() {
+		return state.borrowWait.getMax();
+	}
+
+	@Override
+	public long getErrors() {
+		long errors=0;
+		for(CommandMetrics metrics:state.commands.values()){
+			errors+=metrics.errors.sum();
+		}
+		return errors;
+	}
+
+	@Override
+	public long getTimeouts() {
+		long timeouts=0;
+		for(CommandMetrics metrics:state.commands.values()){
+			timeouts+=metrics.timeouts.sum();
+		}
+		return timeouts;
+	}
+
+	@Override
+	public long getReadBytesP50() {
+		return state.readBytes.getPercentile(50);
+	}
+
+	@Override
+	public long getReadBytesP99() {
+		return state.readBytes.getPercentile(99);
+	}
+
+	@Override
+	public long getReadBytesMax() {
+		return state.readBytes.getMax();
+	}
+
+	@Override
+	public long getWriteBytesP50() {
+		return state.writeBytes.getPercentile(50);
+	}
+
+	@Override
+	public long getWriteBytesP99() {
+		return state.writeBytes.getPercentile(99);
+	}
+
+	@Override
+	public long getWriteBytesMax() {
+		return state.writeBytes.getMax();
+	}
+
+	@Override
+	public long getBigValues() {
+		return state.bigValues.sum();
+	}
+
+	@Override
+	public long getBigValueRejected() {
+		return state.bigValueRejected.sum();
+	}
+
+	@Override
+	public long getChunkedWrites() {
+		return state.chunkedWrites.sum();
+	}
+
+	@Override
+	public List<RedisCommandStats> getCommands() {
+		List<RedisCommandStats> list=new ArrayList<RedisCommandStats>();
+		for(Map.Entry<String, CommandMetrics> entry:state.commands.entrySet()){
+			list.add(entry.getValue().snapshot(entry.getKey()));
+		}
+		return list;
+	}
+
+	@Override
+	public Map<String, Long> getTopKeys() {
+		RedisHotKeyDetector detector=hotKeyDetector;
+		return detector==null?Collections.<String, Long>emptyMap():detector.getTopKeys();
+	}
+
+	@Override
+	public Set<String> getHotKeys() {
+		RedisHotKeyDetector detector=hotKeyDetector;
+		return detector==null?Collections.<String>emptySet():detector.getHotKeys();
+	}
+
+	void setHotKeyDetector(RedisHotKeyDetector hotKeyDetector) {
+		this.hotKeyDetector=hotKeyDetector;
+	}
+
+	@Override
+	public void reset() {
+		state=new State();
+	}
+
+	private static void recordError(CommandMetrics metrics,Throwable error){
+		metrics.errors.increment();
+		for(Throwable cause=error;cause!=null;cause=cause.getCause()){
+			if(cause instanceof SocketTimeoutException){
+				metrics.timeouts.increment();
+				return;
+			}
+		}
+	}
+
+	private static class State{
+
+		final ConcurrentMap<String, CommandMetrics> commands=new ConcurrentHashMap<String, CommandMetrics>();
+
+		final RedisHistogram borrowWait=new RedisHistogram();
+
+		final LongAdder borrowFailures=new LongAdder();
+
+		final RedisHistogram readBytes=new RedisHistogram();
+
+		final RedisHistogram writeBytes=new RedisHistogram();
+
+		final LongAdder bigValues=new LongAdder();
+
+		final LongAdder bigValueRejected=new LongAdder();
+
+		final LongAdder chunkedWrites=new LongAdder();
+
+		CommandMetrics command(String command){
+			CommandMetrics metrics=commands.get(command);
+			if(metrics==null){
+				CommandMetrics created=new CommandMetrics();
+				metrics=commands.putIfAbsent(command, created);
+				if(metrics==null){
+					metrics=created;
+				}
+			}
+			return metrics;
+		}
+	}
+
+	private static class CommandMetrics{
+
+		final RedisHistogram latency=new RedisHistogram();
+
+		final LongAdder errors=new LongAdder();
+
+		final LongAdder timeouts=new LongAdder();
+
+		RedisCommandStats snapshot(String command){
+			RedisCommandStats stats=new RedisCommandStats();
+			stats.setCommand(command);
+			stats.setCount(latency.getCount());
+			stats.setErrors(errors.sum());
+			stats.setTimeouts(timeouts.sum());
+			stats.setMeanMicros(latency.getMean());
+			stats.setP50Micros(latency.getPercentile(50));
+			stats.setP99Micros(latency.getPercentile(99));
+			stats.setP999Micros(latency.getPercentile(99.9));
+			stats.setMaxMicros(latency.getMax());
+			return stats;
+		}
+	}
+}
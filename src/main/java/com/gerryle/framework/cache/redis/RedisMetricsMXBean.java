@@ -0,0 +1,71 @@
+package com.gerryle.framework.cache.redis;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * RedisDataSource的JMX指标，延迟单位为微秒，大小单位为字节
+ * @author Gerryle 2026年10月17日 下午8:12:30
+ */
+public interface RedisMetricsMXBean {
+
+	/**连接池中借出的连接数*/
+	int getPoolActive();
+
+	/**连接池中空闲的连接数*/
+	int getPoolIdle();
+
+	/**等待借用连接的线程数*/
+	int getPoolWaiters();
+
+	long getBorrowCount();
+
+	/**借用连接超时或失败的次数*/
+	long getBorrowFailures();
+
+	long getBorrowWaitP50Micros();
+
+	long getBorrowWaitP99Micros();
+
+	long getBorrowWaitMaxMicros();
+
+	long getErrors();
+
+	long getTimeouts();
+
+	long getReadBytesP50();
+
+	long getReadBytesP99();
+
+	long getReadBytesMax();
+
+	long getWriteBytesP50();
+
+	long getWriteBytesP99();
+
+	long getWriteBytesMax();
+
+	/**超过警告字节数、没有分块的写入次数*/
+	long getBigValues();
+
+	/**超过字节数上限被拒绝的写入次数*/
+	long getBigValueRejected();
+
+	/**分块保存的写入次数*/
+	long getChunkedWrites();
+
+	/**每个命令的统计*/
+	List<RedisCommandStats> getCommands();
+
+	/**上一个统计窗口访问最多的key和估算的每秒访问次数，未开启热点key检测时为空*/
+	Map<String, Long> getTopKeys();
+
+	/**当前的热点key*/
+	Set<String> getHotKeys();
+
+	/**
+	 * 清空所有统计
+	 */
+	void reset();
+}
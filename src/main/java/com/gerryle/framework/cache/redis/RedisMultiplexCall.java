@@ -0,0 +1,10 @@
+package com.gerryle.framework.cache.redis;
+
+/**
+ * 通过多路复用连接执行的命令，与RedisCall对应
+ * @author Gerryle 2026年10月18日 上午2:30:10
+ */
+public interface RedisMultiplexCall<T> {
+
+	T execute(RedisMultiplexer multiplexer);
+}
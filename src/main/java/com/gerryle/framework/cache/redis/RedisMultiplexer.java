@@ -0,0 +1,461 @@
+package com.gerryle.framework.cache.redis;
+
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.netty.bootstrap.ClientBootstrap;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ChannelPipelineFactory;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.ExceptionEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
+import org.jboss.netty.channel.socket.nio.NioWorkerPool;
+import org.jboss.netty.handler.codec.frame.FrameDecoder;
+import org.jboss.netty.util.HashedWheelTimer;
+
+import com.gerryle.framework.util.lang.StringUtil;
+
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * 多路复用的redis连接
+ *   少量长连接由所有线程共享，调用线程把命令按RESP编码后直接写入连接，不等待前面命令的响应，
+ *   netty的IO线程解析响应并按发送顺序（FIFO）交给对应的调用方，一个连接上同时有多个命令在途，
+ *   连接数不随调用线程数增长，单个连接的吞吐也高于一问一答的连接池。
+ *   阻塞命令（BLPOP等）、事务和订阅会占住连接或者改变连接的状态，不能通过多路复用连接发送。
+ *   连接断开或者有命令等待响应超时时关闭连接，在途的命令全部失败，下一个命令重新建立连接。
+ *   通过RedisDataSource.getMultiplexer获取，线程安全
+ * @author Gerryle 2026年10月18日 上午2:31:20
+ */
+public class RedisMultiplexer {
+
+	private final RedisInitParam initParam;
+
+	private final long timeoutMillis;
+
+	private final ExecutorService executor;
+
+	private final HashedWheelTimer timer;
+
+	private final ClientBootstrap bootstrap;
+
+	private final Connection[] connections;
+
+	private final AtomicInteger next=new AtomicInteger();
+
+	/**
+	 * @param initParam
+	 * @param connectionCount 连接数
+	 * @param timeoutMillis 建立连接以及等待响应的超时毫秒数
+	 */
+	RedisMultiplexer(RedisInitParam initParam,int connectionCount,int timeoutMillis){
+		this.initParam=initParam;
+		this.timeoutMillis=Math.max(timeoutMillis, 1);
+		this.connections=new Connection[Math.max(connectionCount, 1)];
+		for(int i=0;i<connections.length;i++){
+			connections[i]=new Connection();
+		}
+		ThreadFactory threadFactory=new ThreadFactory() {
+			private final AtomicInteger index=new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread=new Thread(r, "redis-multiplexer-"+index.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+		executor=Executors.newCachedThreadPool(threadFactory);
+		timer=new HashedWheelTimer(threadFactory);
+		bootstrap=new ClientBootstrap(new NioClientSocketChannelFactory(executor, 1,
+				new NioWorkerPool(executor, Math.min(connections.length, Runtime.getRuntime().availableProcessors())), timer));
+		bootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+			@Override
+			public ChannelPipeline getPipeline() {
+				return Channels.pipeline(new ReplyDecoder(), new ReplyHandler());
+			}
+		});
+		bootstrap.setOption("remoteAddress", new InetSocketAddress(initParam.getServer(), initParam.getPort()));
+		bootstrap.setOption("tcpNoDelay", true);
+		bootstrap.setOption("keepAlive", true);
+		bootstrap.setOption("connectTimeoutMillis", (int)this.timeoutMillis);
+	}
+
+	/**
+	 * 发送命令并等待响应
+	 * @param command
+	 * @param args
+	 * @return 整数为Long，字符串为byte[]，状态为String，数组为List，不存在为null
+	 * @throws JedisDataException redis返回错误
+	 * @throws JedisConnectionException 连接失败、断开或者超时（原因为SocketTimeoutException）
+	 * @author Gerryle 2026年10月18日 上午2:33:10
+	 */
+	public Object call(Protocol.Command command,byte[]... args){
+		return await(connection().send(encode(command, args)));
+	}
+
+	/**
+	 * 发送命令，不等待响应；调用方自行等待超时时不会关闭连接
+	 * @param command
+	 * @param args
+	 * @return 响应的future，失败时以JedisDataException或者JedisConnectionException结束
+	 * @author Gerryle 2026年10月18日 上午2:33:50
+	 */
+	public CompletableFuture<Object> send(Protocol.Command command,byte[]... args){
+		return connection().send(encode(command, args));
+	}
+
+	private Connection connection(){
+		return connections[Math.floorMod(next.getAndIncrement(), connections.length)];
+	}
+
+	/**
+	 * 关闭所有连接，在途的命令失败
+	 * @author Gerryle 2026年10月18日 上午2:34:20
+	 */
+	void stop(){
+		for(Connection connection:connections){
+			connection.close();
+		}
+		bootstrap.releaseExternalResources();
+		timer.stop();
+		executor.shutdownNow();
+	}
+
+	private Object await(Reply future){
+		try {
+			return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			//连接可能已经半开或者redis停止响应，关闭连接让在途的命令失败，下一个命令重新建立连接，
+			//否则后面的命令都要在这个连接上等满超时时间
+			Channel channel=future.channel;
+			if(channel!=null){
+				channel.close();
+			}
+			throw new JedisConnectionException(new SocketTimeoutException("redis响应超时"+timeoutMillis+"毫秒"));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new JedisConnectionException(e);
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException){
+				throw (RuntimeException)e.getCause();
+			}
+			throw new JedisConnectionException(e.getCause());
+		}
+	}
+
+	/**
+	 * 按RESP编码命令：*参数个数 + 每个参数的$长度和内容
+	 * @param command
+	 * @param args
+	 * @return
+	 * @author Gerryle 2026年10月18日 上午2:35:02
+	 */
+	static ChannelBuffer encode(Protocol.Command command,byte[]... args){
+		int size=16+command.raw.length;
+		for(byte[] arg:args){
+			size+=arg.length+16;
+		}
+		ChannelBuffer buffer=ChannelBuffers.dynamicBuffer(size);
+		writeLine(buffer, '*', args.length+1);
+		writeBulk(buffer, command.raw);
+		for(byte[] arg:args){
+			writeBulk(buffer, arg);
+		}
+		return buffer;
+	}
+
+	private static void writeBulk(ChannelBuffer buffer,byte[] arg){
+		writeLine(buffer, '$', arg.length);
+		buffer.writeBytes(arg);
+		buffer.writeByte('\r');
+		buffer.writeByte('\n');
+	}
+
+	private static void writeLine(ChannelBuffer buffer,char type,int value){
+		buffer.writeByte(type);
+		buffer.writeBytes(SafeEncoder.encode(String.valueOf(value)));
+		buffer.writeByte('\r');
+		buffer.writeByte('\n');
+	}
+
+	/**
+	 * 一个多路复用连接，登记等待的future和追加待写入的命令在同一个锁中完成，保证等待队列的顺序与发送顺序一致；
+	 *   同一时刻只有一个调用线程负责写入，它把其它线程在写入期间追加的命令合并为一次写入，减少系统调用
+	 */
+	private class Connection{
+
+		private Channel channel;
+
+		/**已经发送、等待响应的命令，由IO线程按顺序取出*/
+		private Queue<CompletableFuture<Object>> pending;
+
+		/**已经登记、还没有写入连接的命令*/
+		private final List<ChannelBuffer> outbound=new ArrayList<ChannelBuffer>();
+
+		/**是否有调用线程正在写入*/
+		private boolean writing;
+
+		Reply send(ChannelBuffer command){
+			Reply future=new Reply();
+			synchronized (this) {
+				try {
+					ensureConnected();
+				} catch (RuntimeException e) {
+					future.completeExceptionally(e);
+					return future;
+				}
+				future.channel=channel;
+				pending.add(future);
+				outbound.add(command);
+				if(writing){
+					return future;
+				}
+				writing=true;
+			}
+			for(;;){
+				Channel target;
+				ChannelBuffer[] batch;
+				synchronized (this) {
+					if(outbound.isEmpty()){
+						writing=false;
+						return future;
+					}
+					target=channel;
+					batch=outbound.toArray(new ChannelBuffer[outbound.size()]);
+					outbound.clear();
+				}
+				target.write(ChannelBuffers.wrappedBuffer(batch)).addListener(new ChannelFutureListener() {
+					@Override
+					public void operationComplete(ChannelFuture written) {
+						if(!written.isSuccess()){
+							ReplyHandler.failPending(written.getChannel(), written.getCause());
+							written.getChannel().close();
+						}
+					}
+				});
+			}
+		}
+
+		synchronized void close(){
+			outbound.clear();
+			if(channel!=null){
+				channel.close().awaitUninterruptibly(timeoutMillis);
+				channel=null;
+			}
+		}
+
+		/**
+		 * 连接不可用时重新建立连接，并在连接上依次完成AUTH和SELECT，旧连接上还没有写入的命令失败
+		 */
+		private void ensureConnected(){
+			if(channel!=null&&channel.isConnected()){
+				return;
+			}
+			if(channel!=null){
+				outbound.clear();
+				ReplyHandler.failPending(channel, null);
+				channel=null;
+			}
+			ChannelFuture connect=bootstrap.connect();
+			if(!connect.awaitUninterruptibly(timeoutMillis)||!connect.isSuccess()){
+				connect.cancel();
+				connect.getChannel().close();
+				throw new JedisConnectionException("redis多路复用连接失败", connect.getCause());
+			}
+			Channel opened=connect.getChannel();
+			Queue<CompletableFuture<Object>> queue=new ConcurrentLinkedQueue<CompletableFuture<Object>>();
+			opened.setAttachment(queue);
+			try {
+				if(!StringUtil.isNullOrEmpty(initParam.getPassword())){
+					await(sendNow(opened, queue, encode(Protocol.Command.AUTH, SafeEncoder.encode(initParam.getPassword()))));
+				}
+				if(initParam.getDatabase()!=0){
+					await(sendNow(opened, queue, encode(Protocol.Command.SELECT, Protocol.toByteArray(initParam.getDatabase()))));
+				}
+			} catch (RuntimeException e) {
+				opened.close();
+				throw e;
+			}
+			channel=opened;
+			pending=queue;
+		}
+
+		private Reply sendNow(Channel opened,Queue<CompletableFuture<Object>> queue,ChannelBuffer command){
+			Reply future=new Reply();
+			future.channel=opened;
+			queue.add(future);
+			opened.write(command);
+			return future;
+		}
+	}
+
+	/**
+	 * 等待响应的future，记录命令写入的连接，等待超时时关闭该连接
+	 */
+	private static class Reply extends CompletableFuture<Object>{
+
+		private volatile Channel channel;
+	}
+
+	/**
+	 * 响应解析：+状态、-错误、:整数、$字符串、*数组，数据不完整时等待更多数据后从头解析
+	 */
+	private static class ReplyDecoder extends FrameDecoder{
+
+		/**FrameDecoder返回null表示数据不完整，不存在的值用该对象代替*/
+		static final Object NIL=new Object();
+
+		private static final Object INCOMPLETE=new Object();
+
+		@Override
+		protected Object decode(ChannelHandlerContext ctx, Channel channel, ChannelBuffer buffer) {
+			buffer.markReaderIndex();
+			Object reply=parse(buffer);
+			if(reply==INCOMPLETE){
+				buffer.resetReaderIndex();
+				return null;
+			}
+			return reply;
+		}
+
+		private static Object parse(ChannelBuffer buffer){
+			if(!buffer.readable()){
+				return INCOMPLETE;
+			}
+			byte type=buffer.readByte();
+			String line=readLine(buffer);
+			if(line==null){
+				return INCOMPLETE;
+			}
+			switch (type) {
+			case '+':
+				return line;
+			case '-':
+				return new JedisDataException(line);
+			case ':':
+				return Long.parseLong(line);
+			case '$':
+				int length=Integer.parseInt(line);
+				if(length<0){
+					return NIL;
+				}
+				if(buffer.readableBytes()<length+2){
+					return INCOMPLETE;
+				}
+				byte[] data=new byte[length];
+				buffer.readBytes(data);
+				buffer.skipBytes(2);
+				return data;
+			case '*':
+				int count=Integer.parseInt(line);
+				if(count<0){
+					return NIL;
+				}
+				List<Object> items=new ArrayList<Object>(count);
+				for(int i=0;i<count;i++){
+					Object item=parse(buffer);
+					if(item==INCOMPLETE){
+						return INCOMPLETE;
+					}
+					items.add(item==NIL?null:item);
+				}
+				return items;
+			default:
+				throw new JedisConnectionException("无法识别的redis响应类型："+(char)type);
+			}
+		}
+
+		private static String readLine(ChannelBuffer buffer){
+			int end=buffer.indexOf(buffer.readerIndex(), buffer.writerIndex(), (byte)'\n');
+			if(end<0){
+				return null;
+			}
+			String line=buffer.toString(buffer.readerIndex(), end-1-buffer.readerIndex(), StandardCharsets.UTF_8);
+			buffer.readerIndex(end+1);
+			return line;
+		}
+	}
+
+	/**
+	 * 按顺序把响应交给等待的future，连接关闭时在途的命令全部失败
+	 */
+	private static class ReplyHandler extends SimpleChannelUpstreamHandler{
+
+		private volatile Throwable cause;
+
+		@Override
+		public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) {
+			Queue<CompletableFuture<Object>> queue=pending(ctx.getChannel());
+			CompletableFuture<Object> future=queue==null?null:queue.poll();
+			if(future==null){
+				//没有等待的命令说明顺序已经错乱，只能断开连接
+				ctx.getChannel().close();
+				return;
+			}
+			Object reply=e.getMessage();
+			if(reply instanceof JedisDataException){
+				future.completeExceptionally((JedisDataException)reply);
+			}else{
+				future.complete(reply==ReplyDecoder.NIL?null:reply);
+			}
+		}
+
+		@Override
+		public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) {
+			cause=e.getCause();
+			e.getChannel().close();
+		}
+
+		@Override
+		public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) {
+			failPending(ctx.getChannel(), cause);
+		}
+
+		/**
+		 * 连接上在途的命令全部失败
+		 * @param channel
+		 * @param cause
+		 */
+		static void failPending(Channel channel,Throwable cause){
+			Queue<CompletableFuture<Object>> queue=pending(channel);
+			if(queue==null){
+				return;
+			}
+			JedisConnectionException error=new JedisConnectionException("redis多路复用连接已断开", cause);
+			for(CompletableFuture<Object> future=queue.poll();future!=null;future=queue.poll()){
+				future.completeExceptionally(error);
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private static Queue<CompletableFuture<Object>> pending(Channel channel){
+			return (Queue<CompletableFuture<Object>>)channel.getAttachment();
+		}
+	}
+}
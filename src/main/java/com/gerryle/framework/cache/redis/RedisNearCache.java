@@ -0,0 +1,370 @@
+package com.gerryle.framework.cache.redis;
+
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.gerryle.framework.util.lang.StringUtil;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.gson.Gson;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+
+/**
+ * redis进程内近端缓存（一级缓存）
+ *   缓存的是解码后的对象，按容量和写入后的存活时间淘汰；
+ *   写操作通过redis的发布订阅广播失效消息，其它节点收到后删除本地副本。
+ *   返回的对象为多个调用方共享，调用方不应修改
+ * @author Gerryle 2026年10月17日 上午10:12:36
+ */
+public class RedisNearCache {
+
+	/**hash字段在本地缓存中的key分隔符*/
+	private static final char FIELD_SEPARATOR='\u0000';
+
+	/**订阅断开后的重连间隔毫秒数*/
+	private static final long RESUBSCRIBE_INTERVAL_MILLIS=1000;
+
+	private final Cache<String, Entry> cache;
+
+	/**hashKey -> 该hash下已缓存字段的本地key，用于整个hash失效*/
+	private final ConcurrentMap<String, Set<String>> fieldIndex=new ConcurrentHashMap<String, Set<String>>();
+
+	/**按key分段的失效版本号，每次失效都递增所在分段，读到的旧值在版本变化后不会回填；hash字段使用hashKey的版本*/
+	private final RedisKeyVersions epoch=new RedisKeyVersions();
+
+	/**当前节点标识，忽略自己发出的失效消息*/
+	private final String nodeId=UUID.randomUUID().toString();
+
+	private final String channel;
+
+	private final Gson gson=new Gson();
+
+	private volatile boolean running;
+
+	private volatile JedisPubSub pubSub;
+
+	private Thread subscribeThread;
+
+	public RedisNearCache(int maxSize,int expireSeconds,String channel){
+		this.channel=channel;
+		this.cache=CacheBuilder.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+				.removalListener(new RemovalListener<String, Entry>() {
+					@Override
+					public void onRemoval(RemovalNotification<String, Entry> notification) {
+						//覆盖写入时新值仍然在缓存中，不能移除索引
+						if(notification.getCause()!=RemovalCause.REPLACED){
+							unindex(notification.getKey());
+						}
+					}
+				})
+				.build();
+	}
+
+	/**
+	 * key当前的失效版本号，读redis之前获取，回填时传入；回填hash字段时传入hashKey
+	 * @param key
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午10:15:02
+	 */
+	public long currentEpoch(String key){
+		return epoch.get(key);
+	}
+
+	/**
+	 * 获取缓存的对象，不存在或者类型不一致返回null
+	 * @param key
+	 * @param type
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午10:16:40
+	 */
+	public <T> T get(String key,Type type){
+		return getEntryValue(key, type);
+	}
+
+	/**
+	 * 获取缓存的hash字段对象，不存在或者类型不一致返回null
+	 * @param hashKey
+	 * @param field
+	 * @param type
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午10:17:11
+	 */
+	public <T> T getField(String hashKey,String field,Type type){
+		return getEntryValue(fieldKey(hashKey, field), type);
+	}
+
+	/**
+	 * 回填对象，如果读取之后发生过失效则放弃回填
+	 * @param key
+	 * @param type
+	 * @param value
+	 * @param readEpoch 读redis之前获取的版本号
+	 * @author Gerryle 2026年10月17日 上午10:18:25
+	 */
+	public void put(String key,Type type,Object value,long readEpoch){
+		putEntry(key, key, type, value, readEpoch);
+	}
+
+	/**
+	 * 回填hash字段对象，如果读取之后发生过失效则放弃回填
+	 * @param hashKey
+	 * @param field
+	 * @param type
+	 * @param value
+	 * @param readEpoch
+	 * @author Gerryle 2026年10月17日 上午10:19:03
+	 */
+	public void putField(String hashKey,String field,Type type,Object value,long readEpoch){
+		String localKey=fieldKey(hashKey, field);
+		Set<String> fields=fieldIndex.get(hashKey);
+		if(fields==null){
+			Set<String> newFields=Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+			fields=fieldIndex.putIfAbsent(hashKey, newFields);
+			if(fields==null){
+				fields=newFields;
+			}
+		}
+		fields.add(localKey);
+		putEntry(hashKey, localKey, type, value, readEpoch);
+	}
+
+	/**
+	 * 本地失效，fields为空时失效整个key（包括该key下缓存的所有hash字段）
+	 * @param key
+	 * @param fields
+	 * @author Gerryle 2026年10月17日 上午10:20:47
+	 */
+	public void invalidate(String key,String... fields){
+		epoch.increment(key);
+		if(fields==null||fields.length==0){
+			cache.invalidate(key);
+			Set<String> localKeys=fieldIndex.remove(key);
+			if(localKeys!=null){
+				cache.invalidateAll(localKeys);
+			}
+			return;
+		}
+		for(String field:fields){
+			cache.invalidate(fieldKey(key, field));
+		}
+	}
+
+	/**
+	 * 清空本地缓存
+	 * @author Gerryle 2026年10月17日 上午10:21:30
+	 */
+	public void invalidateAll(){
+		epoch.incrementAll();
+		cache.invalidateAll();
+		fieldIndex.clear();
+	}
+
+	/**
+	 * 本地缓存的对象数
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午10:21:58
+	 */
+	public long size(){
+		return cache.size();
+	}
+
+	public String getChannel() {
+		return channel;
+	}
+
+	/**
+	 * 生成广播给其它节点的失效消息
+	 * @param key
+	 * @param fields
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午10:23:14
+	 */
+	public String invalidationMessage(String key,String... fields){
+		InvalidationMessage message=new InvalidationMessage();
+		message.node=nodeId;
+		message.key=key;
+		message.fields=fields==null||fields.length==0?null:fields;
+		return gson.toJson(message);
+	}
+
+	/**
+	 * 启动订阅线程，订阅连接断开期间可能丢失失效消息，所以每次(重新)订阅成功都清空本地缓存
+	 * @param initParam
+	 * @author Gerryle 2026年10月17日 上午10:25:40
+	 */
+	public synchronized void start(final RedisInitParam initParam){
+		if(running){
+			return;
+		}
+		running=true;
+		subscribeThread=new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while(running){
+					Jedis jedis=null;
+					try {
+						jedis=new Jedis(initParam.getServer(), initParam.getPort(), 0);
+						if(!StringUtil.isNullOrEmpty(initParam.getPassword())){
+							jedis.auth(initParam.getPassword());
+						}
+						pubSub=new InvalidationSubscriber();
+						jedis.subscribe(pubSub, channel);
+					} catch (Exception e) {
+						if(running){
+							e.printStackTrace();
+						}
+					} finally {
+						invalidateAll();
+						if(jedis!=null){
+							try {
+								jedis.disconnect();
+							} catch (Exception e) {
+								e.printStackTrace();
+							}
+						}
+					}
+					if(running){
+						try {
+							Thread.sleep(RESUBSCRIBE_INTERVAL_MILLIS);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							return;
+						}
+					}
+				}
+			}
+		}, "redis-near-cache-subscriber");
+		subscribeThread.setDaemon(true);
+		subscribeThread.start();
+	}
+
+	/**
+	 * 停止订阅并清空本地缓存
+	 * @author Gerryle 2026年10月17日 上午10:27:05
+	 */
+	public synchronized void stop(){
+		running=false;
+		JedisPubSub current=pubSub;
+		if(current!=null&&current.isSubscribed()){
+			try {
+				current.unsubscribe();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		if(subscribeThread!=null){
+			subscribeThread.interrupt();
+			subscribeThread=null;
+		}
+		invalidateAll();
+	}
+
+	/**
+	 * 处理其它节点发来的失效消息
+	 * @param json
+	 * @author Gerryle 2026年10月17日 上午10:28:19
+	 */
+	void onInvalidationMessage(String json){
+		InvalidationMessage message=gson.fromJson(json, InvalidationMessage.class);
+		if(message==null||message.key==null||nodeId.equals(message.node)){
+			return;
+		}
+		invalidate(message.key, message.fields);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T getEntryValue(String localKey,Type type){
+		Entry entry=cache.getIfPresent(localKey);
+		if(entry==null||!entry.type.equals(type)){
+			return null;
+		}
+		return (T)entry.value;
+	}
+
+	private void putEntry(String key,String localKey,Type type,Object value,long readEpoch){
+		if(value==null||epoch.get(key)!=readEpoch){
+			return;
+		}
+		cache.put(localKey, new Entry(type, value));
+		//写入期间发生了失效，撤销这次回填
+		if(epoch.get(key)!=readEpoch){
+			cache.invalidate(localKey);
+		}
+	}
+
+	private void unindex(String localKey){
+		int index=localKey.indexOf(FIELD_SEPARATOR);
+		if(index<0){
+			return;
+		}
+		Set<String> fields=fieldIndex.get(localKey.substring(0, index));
+		if(fields!=null){
+			fields.remove(localKey);
+		}
+	}
+
+	private static String fieldKey(String hashKey,String field){
+		return hashKey+FIELD_SEPARATOR+field;
+	}
+
+	private static class Entry{
+		final Type type;
+		final Object value;
+
+		Entry(Type type,Object value){
+			this.type=type;
+			this.value=value;
+		}
+	}
+
+	private static class InvalidationMessage{
+		String node;
+		String key;
+		String[] fields;
+	}
+
+	private class InvalidationSubscriber extends JedisPubSub{
+
+		@Override
+		public void onMessage(String channel, String message) {
+			try {
+				onInvalidationMessage(message);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+
+		@Override
+		public void onPMessage(String pattern, String channel, String message) {
+		}
+
+		@Override
+		public void onSubscribe(String channel, int subscribedChannels) {
+			invalidateAll();
+		}
+
+		@Override
+		public void onUnsubscribe(String channel, int subscribedChannels) {
+		}
+
+		@Override
+		public void onPUnsubscribe(String pattern, int subscribedChannels) {
+		}
+
+		@Override
+		public void onPSubscribe(String pattern, int subscribedChannels) {
+		}
+	}
+}
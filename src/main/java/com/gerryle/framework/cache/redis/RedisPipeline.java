@@ -0,0 +1,58 @@
+package com.gerryle.framework.cache.redis;
+
+import java.util.List;
+
+import redis.clients.jedis.Builder;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+/**
+ * 补充jedis2.4.2的Pipeline缺少的二进制EVAL
+ * @author Gerryle 2026年10月17日 下午5:02:44
+ */
+class RedisPipeline extends Pipeline {
+
+	/**原样返回redis的回复：整数为Long，字符串为byte[]，多条为List*/
+	private static final Builder<Object> RAW=new Builder<Object>() {
+		@Override
+		public Object build(Object data) {
+			return data;
+		}
+	};
+
+	private RedisPipeline(){}
+
+	/**
+	 * 在jedis的连接上创建pipeline，与jedis.pipelined()相同
+	 * @param jedis
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午5:04:10
+	 */
+	static RedisPipeline pipelined(Jedis jedis){
+		RedisPipeline pipeline=new RedisPipeline();
+		pipeline.setClient(jedis.getClient());
+		return pipeline;
+	}
+
+	/**
+	 * 二进制EVAL，发送完整的脚本内容，不依赖服务端的脚本缓存
+	 * @param script
+	 * @param keys
+	 * @param args
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午5:05:22
+	 */
+	Response<Object> eval(byte[] script,List<byte[]> keys,List<byte[]> args){
+		byte[][] params=new byte[keys.size()+args.size()][];
+		int i=0;
+		for(byte[] key:keys){
+			params[i++]=key;
+		}
+		for(byte[] arg:args){
+			params[i++]=arg;
+		}
+		client.eval(script, keys.size(), params);
+		return getResponse(RAW);
+	}
+}
@@ -0,0 +1,28 @@
+package com.gerryle.framework.cache.redis;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+
+import redis.clients.jedis.JedisPool;
+
+/**
+ * 可以读取连接池状态的JedisPool，用于指标中的连接数
+ * @author Gerryle 2026年10月17日 下午8:15:40
+ */
+class RedisPool extends JedisPool {
+
+	RedisPool(GenericObjectPoolConfig config,String host,int port,int timeout,String password,int database){
+		super(config, host, port, timeout, password, database);
+	}
+
+	int getNumActive(){
+		return internalPool.getNumActive();
+	}
+
+	int getNumIdle(){
+		return internalPool.getNumIdle();
+	}
+
+	int getNumWaiters(){
+		return internalPool.getNumWaiters();
+	}
+}
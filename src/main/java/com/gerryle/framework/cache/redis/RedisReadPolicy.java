@@ -0,0 +1,14 @@
+package com.gerryle.framework.cache.redis;
+
+/**
+ * 配置了从节点时，读命令选择从节点的策略
+ * @author Gerryle 2026年10月17日 下午7:02:10
+ */
+public enum RedisReadPolicy {
+
+	/**轮询*/
+	ROUND_ROBIN,
+
+	/**选择当前未完成请求数最少的从节点*/
+	LEAST_OUTSTANDING
+}
@@ -0,0 +1,307 @@
+package com.gerryle.framework.cache.redis;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+/**
+ * 读命令的从节点路由
+ *   按策略选择从节点执行读命令，从节点出错时回退到主节点；
+ *   开启对冲读时，第一个请求在最近读延迟的p95（不小于最小延迟）内没有返回，再向另一个节点（只有一个从节点时为主节点）
+ *   发送相同的请求，先返回的结果生效，另一个请求执行完后结果被丢弃。
+ *   从节点的数据是异步复制的，读到的可能是稍旧的值
+ * @author Gerryle 2026年10月17日 下午7:05:32
+ */
+class RedisReplicaRouter {
+
+	private final Endpoint primary;
+
+	private final RedisMetrics metrics;
+
+	private final Endpoint[] replicas;
+
+	private final RedisReadPolicy policy;
+
+	private final AtomicInteger next=new AtomicInteger();
+
+	/**对冲读使用的线程池，未开启对冲读时为null*/
+	private final ThreadPoolExecutor hedgeExecutor;
+
+	private final long hedgeMinDelayNanos;
+
+	private final LatencyWindow latency=new LatencyWindow();
+
+	RedisReplicaRouter(JedisPool primary,List<JedisPool> replicaPools,RedisMetrics metrics,RedisReadPolicy policy,
+			boolean hedgeEnabled,int hedgeMinDelayMillis,int hedgeMaxThreads){
+		this.metrics=metrics;
+		this.primary=new Endpoint(primary, metrics);
+		this.replicas=new Endpoint[replicaPools.size()];
+		for(int i=0;i<replicas.length;i++){
+			replicas[i]=new Endpoint(replicaPools.get(i), metrics);
+		}
+		this.policy=policy==null?RedisReadPolicy.ROUND_ROBIN:policy;
+		this.hedgeMinDelayNanos=TimeUnit.MILLISECONDS.toNanos(Math.max(hedgeMinDelayMillis, 0));
+		if(hedgeEnabled){
+			this.hedgeExecutor=new ThreadPoolExecutor(0, Math.max(hedgeMaxThreads, 1), 60, TimeUnit.SECONDS,
+					new SynchronousQueue<Runnable>(), new ThreadFactory() {
+						private final AtomicInteger index=new AtomicInteger();
+
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread thread=new Thread(r, "redis-hedge-"+index.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+		}else{
+			this.hedgeExecutor=null;
+		}
+	}
+
+	/**
+	 * 执行读命令
+	 * @param command 指标中的命令名
+	 * @param call
+	 * @return 出错返回null
+	 * @author Gerryle 2026年10月17日 下午7:10:12
+	 */
+	<T> T read(String command,RedisCall<T> call){
+		Endpoint first=select(null);
+		if(hedgeExecutor!=null){
+			return hedgedRead(command, first, call);
+		}
+		try {
+			return timed(first, call);
+		} catch (Exception e) {
+			metrics.recordError(command, e);
+			e.printStackTrace();
+			return readPrimary(command, call);
+		}
+	}
+
+	/**
+	 * 当前的对冲延迟毫秒数
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午7:11:02
+	 */
+	long getHedgeDelayMillis(){
+		return TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos());
+	}
+
+	void stop(){
+		if(hedgeExecutor!=null){
+			hedgeExecutor.shutdown();
+		}
+		for(Endpoint replica:replicas){
+			replica.pool.destroy();
+		}
+	}
+
+	private <T> T hedgedRead(String command,Endpoint first,final RedisCall<T> call){
+		CompletionService<T> completion=new ExecutorCompletionService<T>(hedgeExecutor);
+		try {
+			completion.submit(attempt(first, call));
+		} catch (RejectedExecutionException e) {
+			//对冲线程用完时不再对冲，直接在调用线程读取
+			try {
+				return timed(first, call);
+			} catch (Exception ex) {
+				metrics.recordError(command, ex);
+				ex.printStackTrace();
+				return readPrimary(command, call);
+			}
+		}
+		int pending=1;
+		Exception error=null;
+		try {
+			Future<T> done=completion.poll(hedgeDelayNanos(), TimeUnit.NANOSECONDS);
+			if(done==null){
+				try {
+					completion.submit(attempt(select(first), call));
+					pending++;
+				} catch (RejectedExecutionException e) {
+					//对冲线程用完时只等待第一个请求
+				}
+			}else{
+				pending--;
+				try {
+					return done.get();
+				} catch (ExecutionException e) {
+					metrics.recordError(command, e.getCause());
+					return readPrimary(command, call);
+				}
+			}
+			while(pending>0){
+				Future<T> future=completion.take();
+				pending--;
+				try {
+					return future.get();
+				} catch (ExecutionException e) {
+					metrics.recordError(command, e.getCause());
+					error=e;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		//所有请求都失败时与非对冲读一样回退到主节点，不能当作不存在
+		if(error!=null){
+			error.printStackTrace();
+		}
+		return readPrimary(command, call);
+	}
+
+	private <T> Callable<T> attempt(final Endpoint endpoint,final RedisCall<T> call){
+		return new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				return timed(endpoint, call);
+			}
+		};
+	}
+
+	private <T> T timed(Endpoint endpoint,RedisCall<T> call){
+		long start=System.nanoTime();
+		T result=endpoint.execute(call);
+		latency.record(System.nanoTime()-start);
+		return result;
+	}
+
+	private <T> T readPrimary(String command,RedisCall<T> call){
+		try {
+			return primary.execute(call);
+		} catch (Exception e) {
+			metrics.recordError(command, e);
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * 选择从节点
+	 * @param exclude 对冲时排除第一个请求的节点，只有一个从节点时返回主节点
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午7:14:40
+	 */
+	private Endpoint select(Endpoint exclude){
+		int n=replicas.length;
+		if(exclude!=null&&n==1){
+			return primary;
+		}
+		int start=(next.getAndIncrement()&Integer.MAX_VALUE)%n;
+		if(policy==RedisReadPolicy.ROUND_ROBIN){
+			Endpoint endpoint=replicas[start];
+			return endpoint!=exclude?endpoint:replicas[(start+1)%n];
+		}
+		//从轮询位置开始找，未完成请求数相同时分散到不同节点
+		Endpoint best=null;
+		for(int i=0;i<n;i++){
+			Endpoint endpoint=replicas[(start+i)%n];
+			if(endpoint==exclude){
+				continue;
+			}
+			if(best==null||endpoint.outstanding.get()<best.outstanding.get()){
+				best=endpoint;
+			}
+		}
+		return best;
+	}
+
+	private long hedgeDelayNanos(){
+		return Math.max(latency.p95(), hedgeMinDelayNanos);
+	}
+
+	private static class Endpoint{
+
+		final JedisPool pool;
+
+		final RedisMetrics metrics;
+
+		/**未完成的请求数*/
+		final AtomicInteger outstanding=new AtomicInteger();
+
+		Endpoint(JedisPool pool,RedisMetrics metrics){
+			this.pool=pool;
+			this.metrics=metrics;
+		}
+
+		<T> T execute(RedisCall<T> call){
+			outstanding.incrementAndGet();
+			try {
+				long start=System.nanoTime();
+				Jedis jedis;
+				try {
+					jedis=pool.getResource();
+				} catch (RuntimeException e) {
+					metrics.recordBorrow(start, e);
+					throw e;
+				}
+				metrics.recordBorrow(start, null);
+				T result;
+				try {
+					result=call.execute(jedis);
+				} catch (RuntimeException e) {
+					pool.returnBrokenResource(jedis);
+					throw e;
+				}
+				pool.returnResource(jedis);
+				return result;
+			} finally {
+				outstanding.decrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * 最近读延迟的滑动窗口，每记录一定数量后重新计算p95
+	 */
+	private static class LatencyWindow{
+
+		private static final int SIZE=1024;
+
+		private static final int RECOMPUTE_INTERVAL=128;
+
+		private final AtomicLongArray samples=new AtomicLongArray(SIZE);
+
+		private final AtomicLong count=new AtomicLong();
+
+		private volatile long p95;
+
+		void record(long nanos){
+			long index=count.getAndIncrement();
+			samples.set((int)(index&(SIZE-1)), nanos);
+			if(index%RECOMPUTE_INTERVAL==RECOMPUTE_INTERVAL-1){
+				recompute((int)Math.min(index+1, SIZE));
+			}
+		}
+
+		long p95(){
+			return p95;
+		}
+
+		private void recompute(int size){
+			long[] copy=new long[size];
+			for(int i=0;i<size;i++){
+				copy[i]=samples.get(i);
+			}
+			Arrays.sort(copy);
+			p95=copy[Math.min(size-1, (int)(size*0.95))];
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package com.gerryle.framework.cache.redis;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+
+/**
+ * 基于SCAN系列命令游标的迭代器，按页懒加载，每一页单独从连接池借用连接，
+ * 不会像KEYS/HGETALL/SMEMBERS那样长时间阻塞redis。
+ * SCAN的语义决定了迭代过程中可能返回重复元素，迭代期间新增或删除的元素不保证返回
+ * @param <R> 每页中redis返回的原始元素类型
+ * @param <E> 迭代的元素类型
+ * @author Gerryle 2026年10月17日 下午1:10:26
+ */
+public abstract class RedisScanIterator<R, E> implements Iterator<E> {
+
+	/**默认每页的COUNT*/
+	public static final int DEFAULT_PAGE_SIZE=500;
+
+	private final RedisDataSource dataSource;
+
+	private final ScanParams params;
+
+	private String cursor=ScanParams.SCAN_POINTER_START;
+
+	private boolean finished;
+
+	private Iterator<R> page;
+
+	protected RedisScanIterator(RedisDataSource dataSource,String pattern,int pageSize){
+		this.dataSource=dataSource;
+		this.params=new ScanParams();
+		if(pattern!=null){
+			params.match(pattern);
+		}
+		params.count(pageSize>0?pageSize:DEFAULT_PAGE_SIZE);
+	}
+
+	/**
+	 * 使用游标获取一页数据
+	 * @param jedis
+	 * @param cursor
+	 * @param params
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午1:12:40
+	 */
+	protected abstract ScanResult<R> scan(Jedis jedis,String cursor,ScanParams params);
+
+	/**
+	 * 原始元素转换为迭代元素，在next时才调用
+	 * @param raw
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午1:13:15
+	 */
+	protected abstract E convert(R raw);
+
+	/**
+	 * 指标中的命令名
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午8:36:10
+	 */
+	protected String command(){
+		return "SCAN";
+	}
+
+	@Override
+	public boolean hasNext() {
+		while(page==null||!page.hasNext()){
+			if(finished){
+				return false;
+			}
+			page=nextPage().iterator();
+		}
+		return true;
+	}
+
+	@Override
+	public E next() {
+		if(!hasNext()){
+			throw new NoSuchElementException();
+		}
+		return convert(page.next());
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * 获取下一页，redis出错时抛出IllegalStateException，避免把部分结果当成全部结果
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午1:15:02
+	 */
+	protected List<R> nextPage(){
+		final String current=cursor;
+		ScanResult<R> result=dataSource.execute(command(), new RedisCall<ScanResult<R>>() {
+			@Override
+			public ScanResult<R> execute(Jedis jedis) {
+				return scan(jedis, current, params);
+			}
+		});
+		if(result==null){
+			throw new IllegalStateException("redis scan failed at cursor "+current);
+		}
+		cursor=result.getStringCursor();
+		finished=ScanParams.SCAN_POINTER_START.equals(cursor);
+		return result.getResult();
+	}
+}
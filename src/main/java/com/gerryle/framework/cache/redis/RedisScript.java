@@ -0,0 +1,149 @@
+package com.gerryle.framework.cache.redis;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+/**
+ * redis lua脚本，优先使用EVALSHA执行，服务端没有缓存该脚本时(NOSCRIPT)先SCRIPT LOAD再重试
+ * @author Gerryle 2026年10月17日 上午11:40:18
+ */
+public class RedisScript {
+
+	private final String script;
+
+	private final String sha1;
+
+	private final byte[] rawScript;
+
+	private final byte[] rawSha1;
+
+	public RedisScript(String script){
+		this.script=script;
+		this.sha1=sha1Hex(script);
+		this.rawScript=script.getBytes(StandardCharsets.UTF_8);
+		this.rawSha1=sha1.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * 执行脚本
+	 * @param jedis
+	 * @param keys
+	 * @param args
+	 * @return 脚本的返回值，整数为Long，字符串为String
+	 * @author Gerryle 2026年10月17日 上午11:42:05
+	 */
+	public Object eval(Jedis jedis,List<String> keys,List<String> args){
+		try {
+			return jedis.evalsha(sha1, keys, args);
+		} catch (JedisDataException e) {
+			if(e.getMessage()==null||!e.getMessage().startsWith("NOSCRIPT")){
+				throw e;
+			}
+			jedis.scriptLoad(script);
+			return jedis.evalsha(sha1, keys, args);
+		}
+	}
+
+	/**
+	 * 执行二进制参数的脚本
+	 * @param jedis
+	 * @param keys
+	 * @param args
+	 * @return 脚本的返回值，整数为Long，字符串为byte[]
+	 * @author Gerryle 2026年10月17日 下午5:15:20
+	 */
+	public Object evalBinary(Jedis jedis,List<byte[]> keys,List<byte[]> args){
+		try {
+			return jedis.evalsha(rawSha1, keys, args);
+		} catch (JedisDataException e) {
+			if(e.getMessage()==null||!e.getMessage().startsWith("NOSCRIPT")){
+				throw e;
+			}
+			jedis.scriptLoad(rawScript);
+			return jedis.evalsha(rawSha1, keys, args);
+		}
+	}
+
+	/**
+	 * 通过多路复用连接执行二进制参数的脚本，NOSCRIPT时直接发送脚本内容（同时缓存到服务端）
+	 * @param multiplexer
+	 * @param keys
+	 * @param args
+	 * @return 脚本的返回值，整数为Long，字符串为byte[]
+	 * @author Gerryle 2026年10月18日 上午2:38:10
+	 */
+	Object evalBinary(RedisMultiplexer multiplexer,List<byte[]> keys,List<byte[]> args){
+		try {
+			return multiplexer.call(Protocol.Command.EVALSHA, evalArgs(rawSha1, keys, args));
+		} catch (JedisDataException e) {
+			if(e.getMessage()==null||!e.getMessage().startsWith("NOSCRIPT")){
+				throw e;
+			}
+			return multiplexer.call(Protocol.Command.EVAL, evalArgs(rawScript, keys, args));
+		}
+	}
+
+	private static byte[][] evalArgs(byte[] script,List<byte[]> keys,List<byte[]> args){
+		byte[][] params=new byte[keys.size()+args.size()+2][];
+		params[0]=script;
+		params[1]=Protocol.toByteArray(keys.size());
+		int index=2;
+		for(byte[] key:keys){
+			params[index++]=key;
+		}
+		for(byte[] arg:args){
+			params[index++]=arg;
+		}
+		return params;
+	}
+
+	/**
+	 * 在pipeline中执行二进制参数的脚本，直接发送脚本内容
+	 * @param pipeline
+	 * @param keys
+	 * @param args
+	 * @return 脚本的返回值，整数为Long，字符串为byte[]
+	 * @author Gerryle 2026年10月17日 下午5:16:02
+	 */
+	Response<Object> evalBinary(RedisPipeline pipeline,List<byte[]> keys,List<byte[]> args){
+		return pipeline.eval(rawScript, keys, args);
+	}
+
+	/**
+	 * 在pipeline中执行脚本，pipeline中无法处理NOSCRIPT，所以直接发送脚本内容。
+	 * jedis的pipeline按字符串解析返回值，所以脚本需要返回字符串
+	 * @param pipeline
+	 * @param keys
+	 * @param args
+	 * @return
+	 * @author Gerryle 2026年10月17日 上午11:43:30
+	 */
+	public Response<String> eval(Pipeline pipeline,List<String> keys,List<String> args){
+		return pipeline.eval(script, keys, args);
+	}
+
+	public String getSha1() {
+		return sha1;
+	}
+
+	private static String sha1Hex(String script){
+		try {
+			byte[] digest=MessageDigest.getInstance("SHA-1").digest(script.getBytes(StandardCharsets.UTF_8));
+			StringBuilder sb=new StringBuilder(digest.length*2);
+			for(byte b:digest){
+				sb.append(Character.forDigit((b>>4)&0xF, 16)).append(Character.forDigit(b&0xF, 16));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package com.gerryle.framework.cache.redis;
+
+/**
+ * RedisDataSource使用的lua脚本，每个脚本在服务端一次执行完成，避免多次往返以及中间状态被其它客户端看到
+ * @author Gerryle 2026年10月17日 上午11:48:52
+ */
+final class RedisScripts {
+
+	private RedisScripts(){}
+
+	/**
+	 * 保存字符串以及可选的标志key
+	 *   KEYS[1]：key，KEYS[2]：标志key
+	 *   ARGV[1]：value，ARGV[2]：过期秒数（小于等于0时保留key原有的剩余过期时间），ARGV[3]：标志值（空字符串表示不设置标志），
+	 *   ARGV[4]：可选，为1时删除标志key（标志已经保存在值的头部，清理旧格式），
+	 *   ARGV[5]：可选，为1时返回旧值的前64个字节（用于清理旧值的分块），否则返回OK
+	 */
+	static final RedisScript SET_VALUE=new RedisScript(
+			"local expire=tonumber(ARGV[2]) "
+			+"local hasFlag=ARGV[3]~='' "
+			+"local result='OK' "
+			+"if ARGV[5]=='1' and redis.call('TYPE',KEYS[1]).ok=='string' then "
+			+"  result=redis.call('GETRANGE',KEYS[1],0,"+(RedisChunkedValue.MAX_MANIFEST_BYTES-1)+") "
+			+"end "
+			+"if ARGV[4]=='1' then redis.call('DEL',KEYS[2]) end "
+			+"if expire>0 then "
+			+"  redis.call('SET',KEYS[1],ARGV[1],'EX',expire) "
+			+"  if hasFlag then redis.call('SET',KEYS[2],ARGV[3],'EX',expire) end "
+			+"  return result "
+			+"end "
+			+"local pttl=redis.call('PTTL',KEYS[1]) "
+			+"redis.call('SET',KEYS[1],ARGV[1]) "
+			+"if hasFlag then redis.call('SET',KEYS[2],ARGV[3]) end "
+			+"if pttl>0 then "
+			+"  redis.call('PEXPIRE',KEYS[1],pttl) "
+			+"  if hasFlag then redis.call('PEXPIRE',KEYS[2],pttl) end "
+			+"end "
+			+"return result");
+
+	/**
+	 * 分块写入的最后一步：保存清单以及可选的标志key，所有分块key设置与清单相同的过期时间，返回旧值的前64个字节
+	 *   KEYS[1]：key，KEYS[2]：标志key，KEYS[3...]：已经写入的分块key
+	 *   ARGV与SET_VALUE的前4个参数相同，ARGV[1]为清单
+	 */
+	static final RedisScript SET_CHUNKED=new RedisScript(
+			"local expire=tonumber(ARGV[2]) "
+			+"local hasFlag=ARGV[3]~='' "
+			+"local old='' "
+			+"if redis.call('TYPE',KEYS[1]).ok=='string' then "
+			+"  old=redis.call('GETRANGE',KEYS[1],0,"+(RedisChunkedValue.MAX_MANIFEST_BYTES-1)+") "
+			+"end "
+			+"if ARGV[4]=='1' then redis.call('DEL',KEYS[2]) end "
+			+"local pttl=expire*1000 "
+			+"if expire<=0 then pttl=redis.call('PTTL',KEYS[1]) end "
+			+"redis.call('SET',KEYS[1],ARGV[1]) "
+			+"if hasFlag then redis.call('SET',KEYS[2],ARGV[3]) end "
+			+"for i=1,#KEYS do "
+			+"  if i~=2 or hasFlag then "
+			+"    if pttl>0 then redis.call('PEXPIRE',KEYS[i],pttl) "
+			+"    elseif i>2 then redis.call('PERSIST',KEYS[i]) end "
+			+"  end "
+			+"end "
+			+"return old");
+
+	/**
+	 * 读取多个key的前64个字节，用于删除前找出分块保存的值，不是字符串或者不存在的key为空字符串
+	 *   KEYS：要删除的key
+	 */
+	static final RedisScript VALUE_HEADS=new RedisScript(
+			"local heads={} "
+			+"for i=1,#KEYS do "
+			+"  heads[i]='' "
+			+"  if redis.call('TYPE',KEYS[i]).ok=='string' then "
+			+"    heads[i]=redis.call('GETRANGE',KEYS[i],0,"+(RedisChunkedValue.MAX_MANIFEST_BYTES-1)+") "
+			+"  end "
+			+"end "
+			+"return heads");
+
+	/**
+	 * 设置分块保存的值的过期时间：值的头部仍然是读取到的清单时，清单和所有分块一起设置过期时间，返回清单key的EXPIRE结果；
+	 * 期间值已经被替换时不做修改，返回当前值的头部，由调用方重新解析后重试
+	 *   KEYS[1]：key，KEYS[2..]：分块key
+	 *   ARGV[1]：过期秒数，ARGV[2]：读取到的值的头部
+	 */
+	static final RedisScript EXPIRE_CHUNKED=new RedisScript(
+			"local head='' "
+			+"if redis.call('TYPE',KEYS[1]).ok=='string' then "
+			+"  head=redis.call('GETRANGE',KEYS[1],0,"+(RedisChunkedValue.MAX_MANIFEST_BYTES-1)+") "
+			+"end "
+			+"if head~=ARGV[2] then return head end "
+			+"local result=redis.call('EXPIRE',KEYS[1],ARGV[1]) "
+			+"for i=2,#KEYS do redis.call('EXPIRE',KEYS[i],ARGV[1]) end "
+			+"return result");
+
+	/**
+	 * 条目是否带有标志，先读值头部的标志位（只读前3个字节），没有头部时检查旧格式的标志key，返回1或者0
+	 *   KEYS[1]：key，KEYS[2]：标志key
+	 */
+	static final RedisScript FLAG_EXISTS=new RedisScript(
+			"local h=redis.call('GETRANGE',KEYS[1],0,2) "
+			+"if #h==3 and string.byte(h,1)==2 and string.byte(h,2)>=3 and string.byte(h,3)%2==1 then return 1 end "
+			+"return redis.call('EXISTS',KEYS[2])");
+
+	/**
+	 * 清除标志：值带有头部时用SETRANGE清除头部的标志位（保留过期时间），并删除旧格式的标志key
+	 *   KEYS[1]：key，KEYS[2]：标志key
+	 */
+	static final RedisScript FLAG_CLEAR=new RedisScript(
+			"local h=redis.call('GETRANGE',KEYS[1],0,2) "
+			+"if #h==3 and string.byte(h,1)==2 and string.byte(h,2)>=3 and string.byte(h,3)%2==1 then "
+			+"  redis.call('SETRANGE',KEYS[1],2,string.char(string.byte(h,3)-1)) "
+			+"end "
+			+"return redis.call('DEL',KEYS[2])");
+
+	/**
+	 * key不存在时保存，返回1；key已存在返回0，如果已存在的key没有过期时间则补上过期时间
+	 *   KEYS[1]：key
+	 *   ARGV[1]：value，ARGV[2]：过期秒数（小于等于0不设置）
+	 */
+	static final RedisScript SETNX=new RedisScript(
+			"local expire=tonumber(ARGV[2]) "
+			+"if redis.call('SETNX',KEYS[1],ARGV[1])==1 then "
+			+"  if expire>0 then redis.call('EXPIRE',KEYS[1],expire) end "
+			+"  return 1 "
+			+"end "
+			+"if expire>0 and redis.call('PTTL',KEYS[1])<0 then redis.call('EXPIRE',KEYS[1],expire) end "
+			+"return 0");
+
+	/**
+	 * 获取锁，成功时递增并返回栅栏令牌（大于0），失败时返回锁剩余毫秒数的相反数（小于0）
+	 *   KEYS[1]：锁key，KEYS[2]：栅栏令牌计数key（不过期，保证单调递增）
+	 *   ARGV[1]：持有者标识，ARGV[2]：租约毫秒数
+	 */
+	static final RedisScript LOCK_ACQUIRE=new RedisScript(
+			"if redis.call('SET',KEYS[1],ARGV[1],'NX','PX',ARGV[2]) then "
+			+"  return redis.call('INCR',KEYS[2]) "
+			+"end "
+			+"return -math.max(redis.call('PTTL',KEYS[1]),1)");
+
+	/**
+	 * 持有者标识一致时删除锁，返回1，否则返回0
+	 *   KEYS[1]：锁key
+	 *   ARGV[1]：持有者标识
+	 */
+	static final RedisScript LOCK_RELEASE=new RedisScript(
+			"if redis.call('GET',KEYS[1])==ARGV[1] then "
+			+"  return redis.call('DEL',KEYS[1]) "
+			+"end "
+			+"return 0");
+
+	/**
+	 * 持有者标识一致时重新设置租约毫秒数，返回1，否则返回0
+	 *   KEYS[1]：锁key
+	 *   ARGV[1]：持有者标识，ARGV[2]：租约毫秒数
+	 */
+	static final RedisScript LOCK_EXTEND=new RedisScript(
+			"if redis.call('GET',KEYS[1])==ARGV[1] then "
+			+"  return redis.call('PEXPIRE',KEYS[1],ARGV[2]) "
+			+"end "
+			+"return 0");
+
+	/**
+	 * 使用UNLINK删除所有KEYS，返回删除的key数，redis4.0以下会报Unknown Redis command
+	 */
+	static final RedisScript UNLINK=new RedisScript("return redis.call('UNLINK',unpack(KEYS))");
+}
@@ -0,0 +1,78 @@
+package com.gerryle.framework.cache.redis;
+
+/**
+ * 值的头部信息（信封），把原来单独保存在key_flag中的标志以及以后的元数据放在值的头部，一个条目只占一个key。
+ *   格式：0x02 + 1字节头部总长度n（包含前两个字节，不小于3） + 1字节标志位 + 元数据（按标志位顺序，共n-3字节） + 原始值；
+ *   读取时只根据头部长度跳过头部，新增元数据不影响旧版本读取；
+ *   原始值可以是字符串或者编解码器的结果（包括0x01开头的压缩值），没有头部的值按原样读取，两种格式可以共存
+ * @author Gerryle 2026年10月18日 上午12:50:20
+ */
+final class RedisValueEnvelope {
+
+	/**信封的头部字节，压缩值使用0x01*/
+	static final byte HEADER=0x02;
+
+	/**最短的头部长度：头部字节、长度、标志位*/
+	static final int MIN_HEADER_LENGTH=3;
+
+	/**标志位：条目带有标志，对应原来的key_flag*/
+	static final int FLAG=0x01;
+
+	private RedisValueEnvelope(){}
+
+	/**
+	 * 加上头部
+	 * @param value 原始值
+	 * @param flags 标志位
+	 * @return
+	 * @author Gerryle 2026年10月18日 上午12:52:10
+	 */
+	static byte[] wrap(byte[] value,int flags){
+		byte[] data=new byte[MIN_HEADER_LENGTH+value.length];
+		data[0]=HEADER;
+		data[1]=MIN_HEADER_LENGTH;
+		data[2]=(byte)flags;
+		System.arraycopy(value, 0, data, MIN_HEADER_LENGTH, value.length);
+		return data;
+	}
+
+	/**
+	 * 去掉头部
+	 * @param data
+	 * @return 没有头部时原样返回
+	 * @author Gerryle 2026年10月18日 上午12:53:02
+	 */
+	static byte[] unwrap(byte[] data){
+		int length=headerLength(data);
+		if(length==0){
+			return data;
+		}
+		byte[] value=new byte[data.length-length];
+		System.arraycopy(data, length, value, 0, value.length);
+		return value;
+	}
+
+	/**
+	 * 头部的标志位
+	 * @param data
+	 * @return 没有头部时返回0
+	 * @author Gerryle 2026年10月18日 上午12:53:40
+	 */
+	static int flags(byte[] data){
+		return headerLength(data)==0?0:data[2]&0xFF;
+	}
+
+	/**
+	 * 头部长度
+	 * @param data
+	 * @return 没有头部返回0
+	 * @author Gerryle 2026年10月18日 上午12:54:12
+	 */
+	private static int headerLength(byte[] data){
+		if(data==null||data.length<MIN_HEADER_LENGTH||data[0]!=HEADER){
+			return 0;
+		}
+		int length=data[1]&0xFF;
+		return length>=MIN_HEADER_LENGTH&&length<=data.length?length:0;
+	}
+}
@@ -0,0 +1,372 @@
+package com.gerryle.framework.cache.redis;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import redis.clients.util.SafeEncoder;
+
+/**
+ * 延迟写入（write-behind）
+ *   写入先放入按key分段的本地缓冲，同一个key只保留最后一次的值，后台线程按时间间隔或者缓冲数量
+ *   通过pipeline批量写入redis，适合心跳、位置等同一个key高频覆盖、只关心最新值的场景；
+ *   写入redis之前本进程通过RedisDataSource读取能读到缓冲中的值，其它进程在写入之后才能读到；
+ *   缓冲写满时写入线程等待后台写入，等待超时后直接写入redis；
+ *   通过RedisDataSource或者RedisBatch直接写入或者删除同一个key时丢弃缓冲中的旧值，不会被延迟写入覆盖；
+ *   关闭数据源时写入缓冲中剩余的值，进程异常退出时缓冲中的值会丢失。
+ *   通过RedisDataSource.getWriteBehind获取，线程安全
+ * @author Gerryle 2026年10月17日 下午11:50:12
+ */
+public class RedisWriteBehind {
+
+	/**缓冲的分段数*/
+	private static final int STRIPES=16;
+
+	private final RedisDataSource dataSource;
+
+	private final Stripe[] stripes;
+
+	/**每个分段的最大key数量*/
+	private final int stripeCapacity;
+
+	private final int batchSize;
+
+	/**分段中的key达到该数量时唤醒后台线程，所有分段合计约为batchSize*/
+	private final int stripeFlushSize;
+
+	private final long flushNanos;
+
+	private final long blockNanos;
+
+	/**保证同一时间只有一个线程在写入，由后台线程和flush调用共用*/
+	private final Object flushLock=new Object();
+
+	private final Thread flusher;
+
+	private volatile boolean running;
+
+	/**被后续写入覆盖、没有发送到redis的写入次数*/
+	private final AtomicLong coalescedCount=new AtomicLong();
+
+	/**写入redis的key数量*/
+	private final AtomicLong flushedCount=new AtomicLong();
+
+	/**缓冲写满等待超时后直接写入的次数*/
+	private final AtomicLong overflowCount=new AtomicLong();
+
+	/**
+	 * @param dataSource
+	 * @param maxEntries 缓冲的最大key数量
+	 * @param flushMillis 最长写入间隔毫秒数
+	 * @param batchSize 每次pipeline的最大key数量
+	 * @param blockMillis 缓冲写满时最长等待毫秒数
+	 */
+	RedisWriteBehind(RedisDataSource dataSource,int maxEntries,int flushMillis,int batchSize,int blockMillis){
+		this.dataSource=dataSource;
+		this.stripes=new Stripe[STRIPES];
+		for(int i=0;i<STRIPES;i++){
+			stripes[i]=new Stripe();
+		}
+		this.stripeCapacity=Math.max(maxEntries/STRIPES, 1);
+		this.batchSize=Math.max(batchSize, 1);
+		this.stripeFlushSize=Math.max(this.batchSize/STRIPES, 1);
+		this.flushNanos=TimeUnit.MILLISECONDS.toNanos(Math.max(flushMillis, 1));
+		this.blockNanos=TimeUnit.MILLISECONDS.toNanos(Math.max(blockMillis, 0));
+		this.flusher=new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while(running){
+					//到达写入间隔或者缓冲数量达到batchSize时被唤醒
+					LockSupport.parkNanos(RedisWriteBehind.this, flushNanos);
+					try {
+						flush();
+					} catch (Exception e) {
+						e.printStackTrace();
+					}
+				}
+			}
+		}, "redis-write-behind");
+		this.flusher.setDaemon(true);
+	}
+
+	void start(){
+		running=true;
+		flusher.start();
+	}
+
+	/**
+	 * 停止后台线程并写入缓冲中剩余的值，之后的写入直接写入redis
+	 * @author Gerryle 2026年10月17日 下午11:52:30
+	 */
+	void stop(){
+		running=false;
+		LockSupport.unpark(flusher);
+		try {
+			flusher.join(TimeUnit.NANOSECONDS.toMillis(flushNanos)+5000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if(!flush()){
+			System.out.println("redis延迟写入关闭时写入失败，丢弃"+getPendingCount()+"个key");
+		}
+	}
+
+	/**
+	 * 延迟保存字符串，与RedisDataSource.setValue语义一致：expireSeconds小于等于0时保留原有的剩余过期时间
+	 * @param key
+	 * @param value
+	 * @param expireSeconds
+	 * @author Gerryle 2026年10月17日 下午11:53:10
+	 */
+	public void setValue(String key,String value,int expireSeconds){
+		if(value!=null){
+			dataSource.getMetrics().recordWrite(value.length());
+			put(key, SafeEncoder.encode(value), expireSeconds);
+		}
+	}
+
+	/**
+	 * 延迟保存对象，值在调用时编码，之后修改对象不影响写入的值
+	 * @param key
+	 * @param value
+	 * @param expireSeconds
+	 * @author Gerryle 2026年10月17日 下午11:53:40
+	 */
+	public <T> void setValue(String key,T value,int expireSeconds){
+		if(value!=null){
+			put(key, dataSource.encode(value), expireSeconds);
+		}
+	}
+
+	/**
+	 * 立即写入缓冲中的所有值
+	 * @return 全部写入成功返回true，出错返回false（未写入的值保留在缓冲中等待下次写入）
+	 * @author Gerryle 2026年10月17日 下午11:54:20
+	 */
+	public boolean flush(){
+		synchronized (flushLock) {
+			List<Entry> entries=new ArrayList<Entry>();
+			for(Stripe stripe:stripes){
+				synchronized (stripe) {
+					for(Map.Entry<String, Pending> entry:stripe.entries.entrySet()){
+						entry.getValue().inflight=true;
+						entries.add(new Entry(stripe, entry.getKey(), entry.getValue()));
+					}
+				}
+			}
+			for(int from=0;from<entries.size();from+=batchSize){
+				int to=Math.min(from+batchSize, entries.size());
+				if(!send(entries.subList(from, to))){
+					//没有发送的值留在缓冲中等待下次写入
+					complete(entries.subList(to, entries.size()), false);
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * 缓冲中等待写入的key数量
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午11:55:02
+	 */
+	public int getPendingCount(){
+		int count=0;
+		for(Stripe stripe:stripes){
+			synchronized (stripe) {
+				count+=stripe.entries.size();
+			}
+		}
+		return count;
+	}
+
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	public long getFlushedCount() {
+		return flushedCount.get();
+	}
+
+	public long getOverflowCount() {
+		return overflowCount.get();
+	}
+
+	/**
+	 * 缓冲中key的值，用于本进程读取自己的写入
+	 * @param key
+	 * @return 没有等待写入的值返回null
+	 * @author Gerryle 2026年10月17日 下午11:55:40
+	 */
+	byte[] get(String key){
+		Stripe stripe=stripe(key);
+		synchronized (stripe) {
+			Pending pending=stripe.entries.get(key);
+			return pending==null?null:pending.data;
+		}
+	}
+
+	/**
+	 * 直接写入或者删除key之前丢弃缓冲中的值，值正在写入时等待写入完成，避免旧值覆盖之后的写入
+	 * @param key
+	 * @author Gerryle 2026年10月17日 下午11:56:20
+	 */
+	void discard(String key){
+		Stripe stripe=stripe(key);
+		synchronized (stripe) {
+			Pending pending=stripe.entries.remove(key);
+			if(pending==null){
+				return;
+			}
+			stripe.notifyAll();
+			long deadline=System.nanoTime()+blockNanos;
+			while(pending.inflight){
+				long remaining=deadline-System.nanoTime();
+				if(remaining<=0){
+					return;
+				}
+				try {
+					TimeUnit.NANOSECONDS.timedWait(stripe, remaining);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	private void put(String key,byte[] data,int expireSeconds){
+		//超过上限的值在调用时拒绝，不进入缓冲；大值警告在实际写入时统计
+		dataSource.checkValueSize(key, data.length, true);
+		Stripe stripe=stripe(key);
+		Pending pending=new Pending(data, expireSeconds);
+		boolean buffered=false;
+		int size=0;
+		synchronized (stripe) {
+			if(running){
+				long deadline=System.nanoTime()+blockNanos;
+				while(stripe.entries.size()>=stripeCapacity&&!stripe.entries.containsKey(key)){
+					LockSupport.unpark(flusher);
+					long remaining=deadline-System.nanoTime();
+					if(remaining<=0){
+						break;
+					}
+					try {
+						TimeUnit.NANOSECONDS.timedWait(stripe, remaining);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						break;
+					}
+				}
+				if(stripe.entries.size()<stripeCapacity||stripe.entries.containsKey(key)){
+					if(stripe.entries.put(key, pending)!=null){
+						coalescedCount.incrementAndGet();
+					}
+					buffered=true;
+					size=stripe.entries.size();
+				}
+			}
+		}
+		if(!buffered){
+			//已经关闭或者等待超时，直接写入
+			overflowCount.incrementAndGet();
+			dataSource.setBytes(key, data, expireSeconds, false);
+			return;
+		}
+		if(size>=stripeFlushSize){
+			LockSupport.unpark(flusher);
+		}
+	}
+
+	/**
+	 * pipeline写入一批值
+	 * @param entries
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午11:57:30
+	 */
+	private boolean send(List<Entry> entries){
+		RedisBatch batch=dataSource.batch();
+		for(Entry entry:entries){
+			batch.setPendingBytes(entry.key, entry.pending.data, entry.pending.expireSeconds);
+		}
+		boolean ok=batch.flush();
+		complete(entries, ok);
+		if(ok){
+			flushedCount.addAndGet(entries.size());
+		}
+		return ok;
+	}
+
+	/**
+	 * 结束写入，成功时从缓冲中移除没有被覆盖的值，并唤醒等待的写入线程
+	 * @param entries
+	 * @param written
+	 * @author Gerryle 2026年10月17日 下午11:58:02
+	 */
+	private void complete(List<Entry> entries,boolean written){
+		for(Entry entry:entries){
+			synchronized (entry.stripe) {
+				entry.pending.inflight=false;
+				if(written){
+					entry.stripe.entries.remove(entry.key, entry.pending);
+				}
+				entry.stripe.notifyAll();
+			}
+		}
+	}
+
+	private Stripe stripe(String key){
+		int h=key.hashCode();
+		return stripes[(h^(h>>>16))&(STRIPES-1)];
+	}
+
+	/**
+	 * 缓冲的一个分段，由分段自身的锁保护
+	 */
+	private static class Stripe{
+
+		/**key到最后一次写入的值，覆盖时保留原来的顺序*/
+		final Map<String, Pending> entries=new LinkedHashMap<String, Pending>();
+	}
+
+	/**
+	 * 等待写入的值
+	 */
+	private static class Pending{
+
+		final byte[] data;
+
+		final int expireSeconds;
+
+		/**已经发送或者正在发送，由所在分段的锁保护*/
+		boolean inflight;
+
+		Pending(byte[] data,int expireSeconds){
+			this.data=data;
+			this.expireSeconds=expireSeconds;
+		}
+	}
+
+	/**
+	 * 一次写入中的一个值
+	 */
+	private static class Entry{
+
+		final Stripe stripe;
+
+		final String key;
+
+		final Pending pending;
+
+		Entry(Stripe stripe,String key,Pending pending){
+			this.stripe=stripe;
+			this.key=key;
+			this.pending=pending;
+		}
+	}
+}
@@ -0,0 +1,448 @@
+package com.gerryle.framework.cache.redis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * 客户端分片的redis数据源，每个分片是一个独立的RedisDataSource。
+ *   key通过带虚拟节点的一致性哈希路由到分片，增删分片时只有少量key需要迁移；
+ *   key中包含{tag}时只用tag计算分片，相关的key可以用相同的tag放到同一个分片；
+ *   标志key（key_flag）与原key路由到同一个分片；
+ *   多key操作按分片拆分后并行执行。单key的其它操作可以通过getShard(key)获取分片后执行
+ * @author Gerryle 2026年10月17日 下午6:30:42
+ */
+public class ShardedRedisDataSource {
+
+	/**每个分片默认的虚拟节点数*/
+	public static final int DEFAULT_VIRTUAL_NODES=160;
+
+	private static final String FLAG_SUFFIX="_flag";
+
+	private static final HashFunction HASH=Hashing.murmur3_128();
+
+	private final List<RedisDataSource> shards;
+
+	/**哈希环，虚拟节点的哈希值到分片*/
+	private final TreeMap<Long, RedisDataSource> ring=new TreeMap<Long, RedisDataSource>();
+
+	/**多分片操作的并行线程池*/
+	private final ExecutorService executor;
+
+	private ShardedRedisDataSource(List<RedisInitParam> initParams,int virtualNodes){
+		if(initParams==null||initParams.isEmpty()){
+			throw new IllegalArgumentException("redis shards is empty");
+		}
+		List<RedisDataSource> list=new ArrayList<RedisDataSource>(initParams.size());
+		for(RedisInitParam initParam:initParams){
+			RedisDataSource shard=RedisDataSource.create(initParam);
+			list.add(shard);
+			//虚拟节点只与分片的地址有关，与参数顺序无关
+			String name=initParam.getServer()+":"+initParam.getPort()+"/"+initParam.getDatabase();
+			for(int i=0;i<virtualNodes;i++){
+				ring.put(hash(name+"#"+i), shard);
+			}
+		}
+		this.shards=Collections.unmodifiableList(list);
+		this.executor=Executors.newFixedThreadPool(list.size(), new ThreadFactory() {
+			private final AtomicInteger index=new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread=new Thread(r, "redis-shard-"+index.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * 创建分片数据源，每个分片使用默认的虚拟节点数
+	 * @param initParams 每个分片的初始化参数
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午6:33:10
+	 */
+	public static ShardedRedisDataSource create(List<RedisInitParam> initParams){
+		return create(initParams, DEFAULT_VIRTUAL_NODES);
+	}
+
+	/**
+	 * 创建分片数据源
+	 * @param initParams 每个分片的初始化参数
+	 * @param virtualNodes 每个分片的虚拟节点数，越多key分布越均匀
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午6:33:52
+	 */
+	public static ShardedRedisDataSource create(List<RedisInitParam> initParams,int virtualNodes){
+		return new ShardedRedisDataSource(initParams, virtualNodes>0?virtualNodes:DEFAULT_VIRTUAL_NODES);
+	}
+
+	/**
+	 * 关闭所有分片
+	 * @author Gerryle 2026年10月17日 下午6:34:30
+	 */
+	public void destroy(){
+		executor.shutdown();
+		for(RedisDataSource shard:shards){
+			shard.destroy();
+		}
+	}
+
+	/**
+	 * key所在的分片
+	 * @param key
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午6:35:12
+	 */
+	public RedisDataSource getShard(String key){
+		if(shards.size()==1){
+			return shards.get(0);
+		}
+		SortedMap<Long, RedisDataSource> tail=ring.tailMap(hash(shardKey(key)));
+		return tail.isEmpty()?ring.firstEntry().getValue():tail.get(tail.firstKey());
+	}
+
+	/**
+	 * 所有分片
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午6:35:40
+	 */
+	public List<RedisDataSource> getShards(){
+		return shards;
+	}
+
+	/**
+	 * 计算分片使用的key：有{tag}时使用tag，标志key使用原key
+	 * @param key
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午6:36:25
+	 */
+	static String shardKey(String key){
+		int start=key.indexOf('{');
+		if(start>=0){
+			int end=key.indexOf('}', start+1);
+			if(end>start+1){
+				return key.substring(start+1, end);
+			}
+		}
+		if(key.endsWith(FLAG_SUFFIX)&&key.length()>FLAG_SUFFIX.length()){
+			return key.substring(0, key.length()-FLAG_SUFFIX.length());
+		}
+		return key;
+	}
+
+	private static long hash(String s){
+		return HASH.hashString(s, StandardCharsets.UTF_8).asLong();
+	}
+
+	// ===============================multi-key======================
+
+	/**
+	 * 从缓存获取多个对象，按分片拆分为多个MGET并行执行，结果与keys一一对应，不存在或者分片出错的位置为null
+	 * @param keys
+	 * @param c
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午6:40:12
+	 */
+	public <T> List<T> getValues(String[] keys,final Class<T> c){
+		Map<RedisDataSource, List<Integer>> groups=groupByShard(keys);
+		List<T> result=new ArrayList<T>(Collections.<T>nCopies(keys.length, null));
+		List<Future<List<T>>> futures=new ArrayList<Future<List<T>>>(groups.size());
+		boolean inline=groups.size()==1;
+		List<List<Integer>> indexes=new ArrayList<List<Integer>>(groups.size());
+		for(final Map.Entry<RedisDataSource, List<Integer>> entry:groups.entrySet()){
+			final String[] shardKeys=select(keys, entry.getValue());
+			indexes.add(entry.getValue());
+			futures.add(submit(new Callable<List<T>>() {
+				@Override
+				public List<T> call() {
+					return entry.getKey().getValues(shardKeys, c);
+				}
+			}, inline));
+		}
+		for(int i=0;i<futures.size();i++){
+			List<T> values=await(futures.get(i));
+			List<Integer> index=indexes.get(i);
+			//分片出错时RedisDataSource返回的列表可能不完整，这些位置保持null
+			if(values==null||values.size()!=index.size()){
+				continue;
+			}
+			for(int j=0;j<index.size();j++){
+				result.set(index.get(j), values.get(j));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 删除多个key，按分片拆分后并行执行
+	 * @param keys
+	 * @return 删除的key数
+	 * @author Gerryle 2026年10月17日 下午6:42:30
+	 */
+	public long delKeys(String... keys){
+		if(keys==null||keys.length==0){
+			return 0;
+		}
+		Map<RedisDataSource, List<Integer>> groups=groupByShard(keys);
+		List<Future<Long>> futures=new ArrayList<Future<Long>>(groups.size());
+		boolean inline=groups.size()==1;
+		for(final Map.Entry<RedisDataSource, List<Integer>> entry:groups.entrySet()){
+			final String[] shardKeys=select(keys, entry.getValue());
+			futures.add(submit(new Callable<Long>() {
+				@Override
+				public Long call() {
+					return entry.getKey().delKeys(shardKeys);
+				}
+			}, inline));
+		}
+		long deleted=0;
+		for(Future<Long> future:futures){
+			Long count=await(future);
+			deleted+=count==null?0:count;
+		}
+		return deleted;
+	}
+
+	/**
+	 * 在所有分片上按表达式删除key，各分片并行执行
+	 * @param keyExpression
+	 * @param pageSize
+	 * @return 删除的key数
+	 * @author Gerryle 2026年10月17日 下午6:44:02
+	 */
+	public long delKeysByPattern(final String keyExpression,final int pageSize){
+		List<Future<Long>> futures=new ArrayList<Future<Long>>(shards.size());
+		boolean inline=shards.size()==1;
+		for(final RedisDataSource shard:shards){
+			futures.add(submit(new Callable<Long>() {
+				@Override
+				public Long call() {
+					return shard.delKeysByPattern(keyExpression, pageSize);
+				}
+			}, inline));
+		}
+		long deleted=0;
+		for(Future<Long> future:futures){
+			Long count=await(future);
+			deleted+=count==null?0:count;
+		}
+		return deleted;
+	}
+
+	/**
+	 * 在所有分片上按表达式获取key，各分片并行执行
+	 * @param keyExpression
+	 * @return 任意分片出错返回null
+	 * @author Gerryle 2026年10月17日 下午6:45:10
+	 */
+	public Set<String> getKeys(final String keyExpression){
+		List<Future<Set<String>>> futures=new ArrayList<Future<Set<String>>>(shards.size());
+		boolean inline=shards.size()==1;
+		for(final RedisDataSource shard:shards){
+			futures.add(submit(new Callable<Set<String>>() {
+				@Override
+				public Set<String> call() {
+					return shard.getKeys(keyExpression);
+				}
+			}, inline));
+		}
+		Set<String> keys=new HashSet<String>();
+		for(Future<Set<String>> future:futures){
+			Set<String> shardKeys=await(future);
+			if(shardKeys==null){
+				return null;
+			}
+			keys.addAll(shardKeys);
+		}
+		return keys;
+	}
+
+	private Map<RedisDataSource, List<Integer>> groupByShard(String[] keys){
+		Map<RedisDataSource, List<Integer>> groups=new LinkedHashMap<RedisDataSource, List<Integer>>();
+		for(int i=0;i<keys.length;i++){
+			RedisDataSource shard=getShard(keys[i]);
+			List<Integer> index=groups.get(shard);
+			if(index==null){
+				index=new ArrayList<Integer>();
+				groups.put(shard, index);
+			}
+			index.add(i);
+		}
+		return groups;
+	}
+
+	private static String[] select(String[] keys,List<Integer> index){
+		String[] selected=new String[index.size()];
+		for(int i=0;i<selected.length;i++){
+			selected[i]=keys[index.get(i)];
+		}
+		return selected;
+	}
+
+	/**
+	 * 提交分片任务，只有一个分片参与时直接在调用线程执行，避免线程切换
+	 * @param task
+	 * @param inline
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午6:46:20
+	 */
+	private <T> Future<T> submit(Callable<T> task,boolean inline){
+		if(inline){
+			FutureTask<T> future=new FutureTask<T>(task);
+			future.run();
+			return future;
+		}
+		return executor.submit(task);
+	}
+
+	private static <T> T await(Future<T> future){
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	// ===============================single-key======================
+
+	public boolean existskey(String key){
+		return getShard(key).existskey(key);
+	}
+
+	public void delKey(String key){
+		getShard(key).delKey(key);
+	}
+
+	public void delKeyAndFlagKey(String key){
+		getShard(key).delKeyAndFlagKey(key);
+	}
+
+	public boolean isFlagSet(String key){
+		return getShard(key).isFlagSet(key);
+	}
+
+	public void setKeyExpireTime(String key,int expireSeconds){
+		getShard(key).setKeyExpireTime(key, expireSeconds);
+	}
+
+	public long getKeyExpireTime(String key){
+		return getShard(key).getKeyExpireTime(key);
+	}
+
+	public String getValue(String key){
+		return getShard(key).getValue(key);
+	}
+
+	public <T> T getValue(String key,Class<T> c){
+		return getShard(key).getValue(key, c);
+	}
+
+	public void setValue(String key,String value,int expireSeconds){
+		getShard(key).setValue(key, value, expireSeconds);
+	}
+
+	public void setValue(String key,String value,int expireSeconds,boolean needSetFlag){
+		getShard(key).setValue(key, value, expireSeconds, needSetFlag);
+	}
+
+	public <T> void setValue(String key,T value,int expireSeconds){
+		getShard(key).setValue(key, value, expireSeconds);
+	}
+
+	public <T> void setValue(String key,T value,int expireSeconds,boolean needSetFlag){
+		getShard(key).setValue(key, value, expireSeconds, needSetFlag);
+	}
+
+	public <T> boolean setnx(String key,T value){
+		return getShard(key).setnx(key, value);
+	}
+
+	public boolean setnx(String key,String value,int expireSeconds){
+		return getShard(key).setnx(key, value, expireSeconds);
+	}
+
+	public <T> void addToHashMap(String hashKey,Map<String, T> map){
+		getShard(hashKey).addToHashMap(hashKey, map);
+	}
+
+	public <T> void addToHashMap(String hashKey,Map<String, T> map,int expireSeconds){
+		getShard(hashKey).addToHashMap(hashKey, map, expireSeconds);
+	}
+
+	public <T> void addToHashMap(String hashKey,String key,T value){
+		getShard(hashKey).addToHashMap(hashKey, key, value);
+	}
+
+	public <T> T getValueFromHashMap(String hashKey,String key,Class<T> c){
+		return getShard(hashKey).getValueFromHashMap(hashKey, key, c);
+	}
+
+	public <T> Map<String, T> getValuesFromHashMap(String hashKey,Collection<String> fields,Class<T> c){
+		return getShard(hashKey).getValuesFromHashMap(hashKey, fields, c);
+	}
+
+	public <T> Map<String, T> getAllFromHashMap(String hashKey,Class<T> c){
+		return getShard(hashKey).getAllFromHashMap(hashKey, c);
+	}
+
+	public long removeFromHashMap(String hashKey,String... keys){
+		return getShard(hashKey).removeFromHashMap(hashKey, keys);
+	}
+
+	public boolean hasKeyHashMap(String hashKey,String key){
+		return getShard(hashKey).hasKeyHashMap(hashKey, key);
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> int sAdd(String key,T... values){
+		return getShard(key).sAdd(key, values);
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> int sRemove(String key,T... members){
+		return getShard(key).sRemove(key, members);
+	}
+
+	public <T> boolean sExists(String key,T member){
+		return getShard(key).sExists(key, member);
+	}
+
+	public <T> Set<T> sSet(String key,Class<T> c){
+		return getShard(key).sSet(key, c);
+	}
+
+	public <T> void addList(String key,List<T> list){
+		getShard(key).addList(key, list);
+	}
+
+	public <T> List<T> getListRange(String key,int start,int end,Class<T> c){
+		return getShard(key).getListRange(key, start, end, c);
+	}
+
+	public int getListSize(String key){
+		return getShard(key).getListSize(key);
+	}
+}
@@ -0,0 +1,60 @@
+package com.gerryle.framework.util.object;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 读穿透缓存中保存的数据以及刷新需要的元数据
+ *   data为null表示数据库中不存在，用于缓存空结果
+ * @author Gerryle 2026年10月17日 下午9:05:12
+ */
+class CachedData<T> {
+
+	private T data;
+
+	/**逻辑过期时间（毫秒），redis中的key在此之后还会保留一段宽限时间*/
+	private long expireAt;
+
+	/**上次从数据库加载花费的毫秒数*/
+	private long loadMillis;
+
+	CachedData(){
+	}
+
+	CachedData(T data,long expireAt,long loadMillis){
+		this.data=data;
+		this.expireAt=expireAt;
+		this.loadMillis=loadMillis;
+	}
+
+	/**
+	 * 是否需要刷新（XFetch概率提前过期）
+	 *   now - loadMillis*beta*ln(random) >= expireAt 时刷新，越接近过期、加载越慢，提前刷新的概率越大；
+	 *   已经逻辑过期时一定返回true
+	 * @param now
+	 * @param beta 大于1更倾向提前刷新，小于等于0不提前刷新
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午9:07:30
+	 */
+	boolean shouldRefresh(long now,double beta){
+		if(now>=expireAt){
+			return true;
+		}
+		if(beta<=0){
+			return false;
+		}
+		double random=1-ThreadLocalRandom.current().nextDouble();
+		return now-Math.max(loadMillis, 1)*beta*Math.log(random)>=expireAt;
+	}
+
+	T getData() {
+		return data;
+	}
+
+	long getExpireAt() {
+		return expireAt;
+	}
+
+	long getLoadMillis() {
+		return loadMillis;
+	}
+}
@@ -1,16 +1,500 @@
 package com.gerryle.framework.util.object;
 
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import com.gerryle.framework.cache.redis.RedisBatch;
+import com.gerryle.framework.cache.redis.RedisDataSource;
+import com.gerryle.framework.cache.redis.RedisLease;
+import com.google.common.reflect.TypeParameter;
+import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
 
 /**
  * 数据操作工具类
+ *   读穿透缓存：先读redis，不存在时从mongodb加载并回写redis，数据库中不存在的id也会缓存一段时间。
+ *   防止缓存击穿：
+ *     同一进程内同一个key同时只有一个线程加载，其它线程等待同一个结果；
+ *     多个节点之间通过RedisLock租约只让一个节点加载，其它节点等待回写后的缓存；
+ *     key快过期时按XFetch算法概率提前刷新，已经逻辑过期的值在宽限时间内继续返回，刷新在后台线程进行。
+ *   批量读取一次MGET、一次（或分批）$in查询、一次pipeline回写，页面读取多个id时只需要约三次往返。
+ *   redis中保存的是带过期元数据的CachedData，不要直接用setValue/getValue读写这些key
  * @author Gerryle 2018年2月11日 下午6:03:44
  */
 public class DataUtil {
 
 	private static Gson gson=new Gson();
-	
+
+	/**数据库中不存在的id的最长缓存秒数*/
+	private static final int NULL_EXPIRE_SECONDS=60;
+
+	/**批量读取时一次$in查询的最多id数*/
+	private static final int MAX_IN_SIZE=500;
+
+	/**等待其它节点加载时的最长轮询间隔*/
+	private static final long MAX_WAIT_INTERVAL_MILLIS=200;
+
+	private static volatile RedisDataSource redis;
+
+	private static volatile MongoDatabase mongo;
+
+	/**缓存的逻辑过期秒数*/
+	private static volatile int expireSeconds=3600;
+
+	/**逻辑过期后继续返回旧值的秒数*/
+	private static volatile int staleSeconds=60;
+
+	/**加载租约的秒数，应大于一次数据库加载的最长时间*/
+	private static volatile int leaseSeconds=10;
+
+	/**XFetch提前刷新系数，小于等于0不提前刷新*/
+	private static volatile double earlyRefreshBeta=1.0;
+
+	/**CachedData<T>的泛型类型*/
+	private static final ConcurrentMap<Class<?>, Type> CACHED_TYPES=new ConcurrentHashMap<Class<?>, Type>();
+
+	/**正在前台加载的key*/
+	private static final ConcurrentMap<String, FutureTask<CachedData<?>>> LOADING=new ConcurrentHashMap<String, FutureTask<CachedData<?>>>();
+
+	/**正在后台刷新的key*/
+	private static final Set<String> REFRESHING=ConcurrentHashMap.newKeySet();
+
+	private static final ThreadPoolExecutor REFRESHER=newRefresher();
+
+	/**
+	 * 后台刷新线程池，核心线程数与最大线程数相同并允许核心线程空闲退出：
+	 *   有界队列只有在排满后才会创建核心数以外的线程，核心线程为1时所有刷新都在一个线程中排队
+	 * @return
+	 * @author Gerryle 2026年10月18日 上午3:40:12
+	 */
+	private static ThreadPoolExecutor newRefresher(){
+		ThreadPoolExecutor executor=new ThreadPoolExecutor(4, 4, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(1024), new ThreadFactory() {
+					private final AtomicInteger index=new AtomicInteger();
+
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread thread=new Thread(r, "data-refresh-"+index.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * 初始化数据源
+	 * @param redisDataSource
+	 * @param mongoDatabase
+	 * @author Gerryle 2026年10月17日 下午9:10:20
+	 */
+	public static void init(RedisDataSource redisDataSource,MongoDatabase mongoDatabase){
+		redis=redisDataSource;
+		mongo=mongoDatabase;
+	}
+
+	/**
+	 * 初始化数据源以及缓存时间
+	 * @param redisDataSource
+	 * @param mongoDatabase
+	 * @param expireSeconds 缓存的逻辑过期秒数
+	 * @param staleSeconds 逻辑过期后继续返回旧值的秒数
+	 * @author Gerryle 2026年10月17日 下午9:11:02
+	 */
+	public static void init(RedisDataSource redisDataSource,MongoDatabase mongoDatabase,int expireSeconds,int staleSeconds){
+		DataUtil.expireSeconds=expireSeconds;
+		DataUtil.staleSeconds=Math.max(staleSeconds, 0);
+		init(redisDataSource, mongoDatabase);
+	}
+
+	public static void setLeaseSeconds(int leaseSeconds) {
+		DataUtil.leaseSeconds=Math.max(leaseSeconds, 1);
+	}
+
+	public static void setEarlyRefreshBeta(double earlyRefreshBeta) {
+		DataUtil.earlyRefreshBeta=earlyRefreshBeta;
+	}
+
+	/**
+	 * 根据id获取数据，集合名为类名首字母小写
+	 * @param id
+	 * @param cacheKey
+	 * @param clazz
+	 * @return 不存在返回null
+	 * @author Gerryle 2018年2月11日 下午6:03:44
+	 */
 	public static <T> T getDataFromRedisOrMongoDbById(Object id,String cacheKey,Class<T> clazz){
-		return null;
+		return getDataFromRedisOrMongoDbById(id, cacheKey, clazz, collectionName(clazz));
+	}
+
+	/**
+	 * 根据id获取数据，先读redis，不存在时从mongodb加载并回写redis
+	 * @param id mongodb中的_id
+	 * @param cacheKey
+	 * @param clazz
+	 * @param collection mongodb集合名
+	 * @return 不存在返回null
+	 * @author Gerryle 2026年10月17日 下午9:12:40
+	 */
+	public static <T> T getDataFromRedisOrMongoDbById(Object id,String cacheKey,Class<T> clazz,String collection){
+		if(redis==null||mongo==null){
+			throw new IllegalStateException("DataUtil is not initialized");
+		}
+		Loader<T> loader=new Loader<T>(id, cacheKey, clazz, collection);
+		CachedData<T> cached=redis.getValue(cacheKey, loader.cachedType());
+		if(cached!=null){
+			//快过期或者已经逻辑过期：后台刷新，当前请求返回旧值
+			if(cached.shouldRefresh(System.currentTimeMillis(), earlyRefreshBeta)){
+				refreshAsync(loader);
+			}
+			return cached.getData();
+		}
+		CachedData<T> loaded=loadOnce(loader);
+		return loaded==null?null:loaded.getData();
+	}
+
+	/**
+	 * 根据id批量获取数据，集合名为类名首字母小写
+	 * @param ids
+	 * @param cacheKeyPrefix 缓存key为前缀加id
+	 * @param clazz
+	 * @return 与ids的顺序一致，不存在的位置为null
+	 * @author Gerryle 2026年10月17日 下午9:46:02
+	 */
+	public static <T> List<T> getDataFromRedisOrMongoDbByIds(List<?> ids,String cacheKeyPrefix,Class<T> clazz){
+		return getDataFromRedisOrMongoDbByIds(ids, cacheKeyPrefix, clazz, collectionName(clazz));
+	}
+
+	/**
+	 * 根据id批量获取数据：一次MGET读取全部缓存，未命中的id用$in查询mongodb（超过MAX_IN_SIZE时分批），
+	 * 查询结果在一个pipeline中回写redis。
+	 *   未命中的id不经过单个id读取的租约，列表页的id一般比较分散，不容易集中击穿
+	 * @param ids
+	 * @param cacheKeyPrefix 缓存key为前缀加id
+	 * @param clazz
+	 * @param collection mongodb集合名
+	 * @return 与ids的顺序一致，不存在的位置为null
+	 * @author Gerryle 2026年10月17日 下午9:47:30
+	 */
+	public static <T> List<T> getDataFromRedisOrMongoDbByIds(List<?> ids,String cacheKeyPrefix,Class<T> clazz,String collection){
+		if(redis==null||mongo==null){
+			throw new IllegalStateException("DataUtil is not initialized");
+		}
+		List<T> result=new ArrayList<T>(ids.size());
+		if(ids.isEmpty()){
+			return result;
+		}
+		String[] keys=new String[ids.size()];
+		for(int i=0;i<keys.length;i++){
+			keys[i]=cacheKeyPrefix+ids.get(i);
+		}
+		List<CachedData<T>> cachedList=redis.getValues(keys, cachedType(clazz));
+		long now=System.currentTimeMillis();
+		//id -> 在ids中的位置，重复的id只查询一次
+		Map<Object, List<Integer>> misses=new LinkedHashMap<Object, List<Integer>>();
+		for(int i=0;i<keys.length;i++){
+			CachedData<T> cached=i<cachedList.size()?cachedList.get(i):null;
+			if(cached==null){
+				result.add(null);
+				List<Integer> positions=misses.get(ids.get(i));
+				if(positions==null){
+					positions=new ArrayList<Integer>(1);
+					misses.put(ids.get(i), positions);
+				}
+				positions.add(i);
+				continue;
+			}
+			if(cached.shouldRefresh(now, earlyRefreshBeta)){
+				refreshAsync(new Loader<T>(ids.get(i), keys[i], clazz, collection));
+			}
+			result.add(cached.getData());
+		}
+		if(misses.isEmpty()){
+			return result;
+		}
+		Map<String, T> loaded=findByIds(new ArrayList<Object>(misses.keySet()), clazz, collection);
+		long loadMillis=System.currentTimeMillis()-now;
+		now=System.currentTimeMillis();
+		RedisBatch batch=redis.batch();
+		for(Map.Entry<Object, List<Integer>> entry:misses.entrySet()){
+			T data=loaded.get(idKey(entry.getKey()));
+			CachedData<T> cached=newCachedData(data, now, loadMillis);
+			batch.set(cacheKeyPrefix+entry.getKey(), cached, redisExpireSeconds(cached, now));
+			for(int position:entry.getValue()){
+				result.set(position, data);
+			}
+		}
+		batch.flush();
+		return result;
+	}
+
+	/**
+	 * 用$in查询多个id，超过MAX_IN_SIZE时分批查询
+	 * @param ids
+	 * @param clazz
+	 * @param collection
+	 * @return idKey(_id) -> 对象，不存在的id没有对应项
+	 * @author Gerryle 2026年10月17日 下午9:50:18
+	 */
+	private static <T> Map<String, T> findByIds(List<Object> ids,Class<T> clazz,String collection){
+		Map<String, T> map=new HashMap<String, T>(ids.size()*2);
+		MongoCollection<Document> mongoCollection=mongo.getCollection(collection);
+		for(int from=0;from<ids.size();from+=MAX_IN_SIZE){
+			List<Object> chunk=ids.subList(from, Math.min(from+MAX_IN_SIZE, ids.size()));
+			MongoCursor<Document> cursor=mongoCollection.find(Filters.in("_id", chunk)).iterator();
+			try {
+				while(cursor.hasNext()){
+					Document document=cursor.next();
+					map.put(idKey(document.get("_id")), toObject(document, clazz));
+				}
+			} finally {
+				cursor.close();
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * 查询结果与请求的id对应时使用的id形式：mongodb的$in按数值匹配Integer、Long和Double，
+	 *   HashMap却区分类型，统一转为字符串，整数值的浮点数按整数处理
+	 * @param id
+	 * @return
+	 * @author Gerryle 2026年10月18日 上午3:20:40
+	 */
+	private static String idKey(Object id){
+		if(id instanceof Double||id instanceof Float){
+			double value=((Number)id).doubleValue();
+			if(value==Math.rint(value)&&!Double.isInfinite(value)){
+				return String.valueOf((long)value);
+			}
+		}
+		return String.valueOf(id);
+	}
+
+	/**
+	 * 同一个key在进程内只加载一次，其它线程等待同一个结果
+	 * @param loader
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午9:15:10
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> CachedData<T> loadOnce(final Loader<T> loader){
+		FutureTask<CachedData<?>> task=new FutureTask<CachedData<?>>(new Callable<CachedData<?>>() {
+			@Override
+			public CachedData<?> call() throws Exception {
+				return loader.loadWithLease();
+			}
+		});
+		FutureTask<CachedData<?>> existing=LOADING.putIfAbsent(loader.cacheKey, task);
+		if(existing==null){
+			try {
+				task.run();
+			} finally {
+				LOADING.remove(loader.cacheKey, task);
+			}
+			existing=task;
+		}
+		try {
+			return (CachedData<T>)existing.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			Throwable cause=e.getCause();
+			if(cause instanceof RuntimeException){
+				throw (RuntimeException)cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/**
+	 * 后台刷新，同一个key同时只有一个刷新任务，拿不到租约说明其它节点正在刷新
+	 * @param loader
+	 * @author Gerryle 2026年10月17日 下午9:17:32
+	 */
+	private static <T> void refreshAsync(final Loader<T> loader){
+		if(!REFRESHING.add(loader.cacheKey)){
+			return;
+		}
+		try {
+			REFRESHER.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						RedisLease lease=loader.tryLease();
+						if(lease!=null){
+							try {
+								loader.loadAndStore();
+							} finally {
+								lease.release();
+							}
+						}
+					} catch (Exception e) {
+						e.printStackTrace();
+					} finally {
+						REFRESHING.remove(loader.cacheKey);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			//刷新队列满时放弃本次刷新，继续返回旧值
+			REFRESHING.remove(loader.cacheKey);
+		}
+	}
+
+	/**
+	 * CachedData<T>的泛型类型
+	 * @param clazz
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午9:42:30
+	 */
+	private static <T> Type cachedType(Class<T> clazz){
+		Type type=CACHED_TYPES.get(clazz);
+		if(type==null){
+			type=new TypeToken<CachedData<T>>(){}.where(new TypeParameter<T>(){}, clazz).getType();
+			CACHED_TYPES.putIfAbsent(clazz, type);
+		}
+		return type;
+	}
+
+	private static <T> CachedData<T> newCachedData(T data,long now,long loadMillis){
+		int seconds=data==null?Math.min(expireSeconds, NULL_EXPIRE_SECONDS):expireSeconds;
+		return new CachedData<T>(data, now+TimeUnit.SECONDS.toMillis(seconds), loadMillis);
+	}
+
+	/**
+	 * redis中key的过期秒数：逻辑过期时间加宽限时间
+	 * @param cached
+	 * @param now
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午9:44:10
+	 */
+	private static int redisExpireSeconds(CachedData<?> cached,long now){
+		return (int)TimeUnit.MILLISECONDS.toSeconds(cached.getExpireAt()-now)+staleSeconds;
+	}
+
+	private static String collectionName(Class<?> clazz){
+		String name=clazz.getSimpleName();
+		return Character.toLowerCase(name.charAt(0))+name.substring(1);
+	}
+
+	/**
+	 * mongodb文档转为对象，ObjectId类型的_id转为十六进制字符串
+	 * @param document
+	 * @param clazz
+	 * @return
+	 * @author Gerryle 2026年10月17日 下午9:19:05
+	 */
+	private static <T> T toObject(Document document,Class<T> clazz){
+		Object id=document.get("_id");
+		if(id instanceof ObjectId){
+			document.put("_id", ((ObjectId)id).toHexString());
+		}
+		return gson.fromJson(gson.toJsonTree(document), clazz);
+	}
+
+	/**
+	 * 一次读取的加载参数
+	 */
+	private static class Loader<T>{
+
+		final Object id;
+
+		final String cacheKey;
+
+		final Class<T> clazz;
+
+		final String collection;
+
+		Loader(Object id,String cacheKey,Class<T> clazz,String collection){
+			this.id=id;
+			this.cacheKey=cacheKey;
+			this.clazz=clazz;
+			this.collection=collection;
+		}
+
+		Type cachedType(){
+			return DataUtil.cachedType(clazz);
+		}
+
+		String leaseKey(){
+			return cacheKey+"_lease";
+		}
+
+		/**
+		 * 拿到租约的节点加载，其它节点等待回写后的缓存，租约到期仍没有缓存时自己加载；
+		 *   拿到租约后先再读一次缓存，上一个持有者可能在本节点读取缓存之后刚刚写入并释放了租约
+		 * @return
+		 * @author Gerryle 2026年10月17日 下午9:21:30
+		 */
+		CachedData<T> loadWithLease() throws InterruptedException{
+			long deadline=System.currentTimeMillis()+TimeUnit.SECONDS.toMillis(leaseSeconds);
+			long interval=10;
+			while(true){
+				RedisLease lease=tryLease();
+				if(lease!=null){
+					try {
+						CachedData<T> cached=redis.getValue(cacheKey, cachedType());
+						return cached!=null?cached:loadAndStore();
+					} finally {
+						lease.release();
+					}
+				}
+				//租约不存在却拿不到，说明redis不可用，直接加载
+				if(!redis.getLock(leaseKey()).isLocked()||System.currentTimeMillis()>=deadline){
+					return loadAndStore();
+				}
+				Thread.sleep(interval);
+				interval=Math.min(interval*2, MAX_WAIT_INTERVAL_MILLIS);
+				CachedData<T> cached=redis.getValue(cacheKey, cachedType());
+				if(cached!=null){
+					return cached;
+				}
+			}
+		}
+
+		/**
+		 * 尝试获取加载租约
+		 * @return 失败返回null
+		 * @author Gerryle 2026年10月17日 下午9:23:12
+		 */
+		RedisLease tryLease(){
+			return redis.getLock(leaseKey()).tryAcquire((int)TimeUnit.SECONDS.toMillis(leaseSeconds));
+		}
+
+		CachedData<T> loadAndStore(){
+			long start=System.currentTimeMillis();
+			Document document=mongo.getCollection(collection).find(Filters.eq("_id", id)).first();
+			T data=document==null?null:toObject(document, clazz);
+			long now=System.currentTimeMillis();
+			CachedData<T> cached=newCachedData(data, now, now-start);
+			redis.setValue(cacheKey, cached, redisExpireSeconds(cached, now));
+			return cached;
+		}
 	}
 }